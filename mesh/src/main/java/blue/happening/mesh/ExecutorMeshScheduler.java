@@ -0,0 +1,31 @@
+package blue.happening.mesh;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapter running every node on one plain {@link ScheduledExecutorService}.
+ */
+class ExecutorMeshScheduler implements IMeshScheduler {
+
+    private final ScheduledExecutorService executor;
+
+    ExecutorMeshScheduler(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void scheduleAtFixedRate(String uuid, Runnable runnable, long initialDelay, long period, TimeUnit unit) {
+        executor.scheduleAtFixedRate(runnable, initialDelay, period, unit);
+    }
+
+    @Override
+    public void execute(String uuid, Runnable runnable) {
+        executor.execute(runnable);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
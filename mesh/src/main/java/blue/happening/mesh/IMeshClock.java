@@ -0,0 +1,17 @@
+package blue.happening.mesh;
+
+/**
+ * Source of time for expiration and round trip measurements, so that the mesh
+ * can run on a simulated clock as well as on the wall clock.
+ */
+public interface IMeshClock {
+
+    IMeshClock SYSTEM = new IMeshClock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    long currentTimeMillis();
+}
@@ -0,0 +1,17 @@
+package blue.happening.mesh;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the timer tasks and deferred work of {@link MeshHandler} instances.
+ * Implementations must execute all tasks registered for the same uuid on the
+ * same thread, so the state of a single mesh node is never touched concurrently
+ * by its own timers. Delays and periods are measured on the scheduler's own
+ * clock.
+ */
+public interface IMeshScheduler extends IMeshClock {
+
+    void scheduleAtFixedRate(String uuid, Runnable runnable, long initialDelay, long period, TimeUnit unit);
+
+    void execute(String uuid, Runnable runnable);
+}
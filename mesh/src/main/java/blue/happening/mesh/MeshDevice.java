@@ -48,6 +48,16 @@ public class MeshDevice {
         this.lastSeen = lastSeen;
     }
 
+    MeshDevice copy() {
+        MeshDevice copy = new MeshDevice();
+        copy.quality = quality;
+        copy.uuid = uuid;
+        copy.receivedSize = receivedSize;
+        copy.sentSize = sentSize;
+        copy.lastSeen = lastSeen;
+        return copy;
+    }
+
     public final boolean equals(Object object) {
         if (object == null) {
             return false;
@@ -1,14 +1,25 @@
 package blue.happening.mesh;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import blue.happening.mesh.statistics.NetworkStats;
+import blue.happening.mesh.statistics.RttHistogram;
 import blue.happening.mesh.statistics.StatsResult;
 
 public class MeshHandler {
@@ -23,6 +34,12 @@ public class MeshHandler {
     public static int DEVICE_EXPIRATION = 200;
     public static int INITIAL_MIN_SEQUENCE = 0;
     public static int INITIAL_MAX_SEQUENCE = Integer.MAX_VALUE;
+    public static int MAX_PENDING_TRACES = 16;
+    public static int ROUTE_REQUEST_TTL = 5;
+    public static int ROUTE_DISCOVERY_TIMEOUT = 3;
+    public static int MAX_QUEUED_MESSAGES = 8;
+    public static int LINK_LOSS_OGMS = 3;
+    public static int LINK_LOSS_SEND_FAILURES = 2;
 
     public static final int MESSAGE_ACTION_ARRIVED = 0;
     public static final int MESSAGE_ACTION_RECEIVED = 1;
@@ -32,46 +49,89 @@ public class MeshHandler {
 
     public static final int MESSAGE_TYPE_OGM = 1;
     public static final int MESSAGE_TYPE_UCM = 2;
+    public static final int MESSAGE_TYPE_PING_REQUEST = 3;
+    public static final int MESSAGE_TYPE_PING_REPLY = 4;
+    public static final int MESSAGE_TYPE_TRACE_REQUEST = 5;
+    public static final int MESSAGE_TYPE_TRACE_REPLY = 6;
+    public static final int MESSAGE_TYPE_ROUTE_REQUEST = 7;
+    public static final int MESSAGE_TYPE_ROUTE_REPLY = 8;
     static final String BROADCAST_ADDRESS = "BROADCAST";
 
     private final RoutingTable routingTable;
     private final Router router;
     private final ILayerCallback layerCallback;
     private final String uuid;
+    private final IMeshScheduler scheduler;
     private IMeshHandlerCallback meshHandlerCallback;
     private NetworkStats ucmStats;
     private NetworkStats ogmStats;
+    private final ConcurrentMap<String, RttHistogram> rttHistograms;
+    private final Map<Integer, TraceRoute> pendingTraces;
+    private final AtomicInteger probeId;
+    private final Map<String, RouteDiscovery> routeDiscoveries;
+    private final Map<String, RemoteDevice> lostNeighbours;
 
     public MeshHandler(String uuid) {
         this(uuid, Executors.newSingleThreadScheduledExecutor());
     }
 
     public MeshHandler(String uuid, ScheduledExecutorService executor) {
+        this(uuid, new ExecutorMeshScheduler(executor));
+    }
+
+    public MeshHandler(String uuid, IMeshScheduler scheduler) {
+        this(uuid, scheduler, new Random());
+    }
+
+    /**
+     * @param random Source of the initial sequence numbers and timer offsets,
+     *               seeding it makes the handler's behaviour reproducible
+     */
+    public MeshHandler(String uuid, IMeshScheduler scheduler, Random random) {
+        this(uuid, scheduler, random, new MeshParameters());
+    }
+
+    /**
+     * @param random     Source of the initial sequence numbers and timer offsets,
+     *                   seeding it makes the handler's behaviour reproducible
+     * @param parameters Protocol parameters of this handler alone, leaving
+     *                   other handlers in the same process untouched
+     */
+    public MeshHandler(String uuid, IMeshScheduler scheduler, Random random, MeshParameters parameters) {
         this.uuid = uuid;
-        routingTable = new RoutingTable();
-        router = new Router(routingTable, uuid);
+        this.scheduler = scheduler;
+        routingTable = new RoutingTable(scheduler, parameters);
+        router = new Router(routingTable, uuid, random, parameters);
         layerCallback = new LayerCallback();
         ucmStats = new NetworkStats();
         ogmStats = new NetworkStats();
+        rttHistograms = new ConcurrentHashMap<>();
+        pendingTraces = new LinkedHashMap<>();
+        probeId = new AtomicInteger();
+        routeDiscoveries = new HashMap<>();
+        lostNeighbours = new ConcurrentHashMap<>();
 
-        double currentTime = System.currentTimeMillis();
+        double currentTime = scheduler.currentTimeMillis();
         ucmStats.updateTs(currentTime);
         ogmStats.updateTs(currentTime);
 
         router.addObserver(new RouterObserver());
 
-        executor.scheduleAtFixedRate(
+        scheduler.scheduleAtFixedRate(uuid,
                 new OGMRunner(),
-                ThreadLocalRandom.current().nextInt(OGM_INTERVAL),
-                OGM_INTERVAL, TimeUnit.SECONDS);
-        executor.scheduleAtFixedRate(
+                random.nextInt(parameters.getOgmInterval()),
+                parameters.getOgmInterval(), TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(uuid,
                 new PurgeRunner(),
-                ThreadLocalRandom.current().nextInt(PURGE_INTERVAL),
-                PURGE_INTERVAL, TimeUnit.SECONDS);
-        executor.scheduleAtFixedRate(
+                random.nextInt(parameters.getPurgeInterval()),
+                parameters.getPurgeInterval(), TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(uuid,
                 new NetworkStatsUpdateRunner(),
                 NETWORK_STAT_INTERVAL,
                 NETWORK_STAT_INTERVAL, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(uuid,
+                new RouteDiscoveryRunner(),
+                1, 1, TimeUnit.SECONDS);
     }
 
     public void registerLayer(Layer layer) {
@@ -87,23 +147,166 @@ public class MeshHandler {
         return routingTable;
     }
 
+    /**
+     * @return Reachable devices as of the last published topology snapshot
+     */
     public List<MeshDevice> getDevices() {
-        return routingTable.getReachableMeshDevices();
+        return routingTable.getSnapshot().getDevices();
     }
 
+    public TopologySnapshot getTopology() {
+        return routingTable.getSnapshot();
+    }
+
+    /**
+     * Sends a message to the given device. If the device is not in the routing
+     * table yet, the message is queued until a route has been discovered. If
+     * the discovery times out, the queued messages are logged as dropped.
+     *
+     * @param message Payload to be sent
+     * @param uuid    Destination of the message
+     * @return Whether the message could be routed or queued
+     */
     public boolean sendMessage(byte[] message, String uuid) {
         RemoteDevice remoteDevice = routingTable.get(uuid);
         if (remoteDevice == null) {
-            System.out.println("Mesh handler could not find " + uuid + " in routing table");
-            return false;
+            return discoverRoute(message, uuid);
         } else {
             Message ucm = new Message(this.uuid, uuid, INITIAL_MIN_SEQUENCE, MESSAGE_TYPE_UCM, message);
             try {
-                ucm = router.routeMessage(ucm);
+                router.routeMessage(ucm);
             } catch (Router.RoutingException e) {
                 e.printStackTrace();
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private boolean discoverRoute(byte[] message, String uuid) {
+        boolean dispatch = false;
+        synchronized (routeDiscoveries) {
+            RouteDiscovery discovery = routeDiscoveries.get(uuid);
+            if (discovery == null) {
+                discovery = new RouteDiscovery(scheduler.currentTimeMillis());
+                routeDiscoveries.put(uuid, discovery);
+                dispatch = true;
+            }
+            if (discovery.messages.size() >= MAX_QUEUED_MESSAGES) {
+                System.out.println("Mesh handler queue for " + uuid + " is full");
+                return false;
+            }
+            discovery.messages.add(message);
+        }
+        if (dispatch) {
+            router.dispatchRouteRequest(uuid);
+        }
+        return true;
+    }
+
+    private void flushQueuedMessages(String uuid) {
+        RouteDiscovery discovery;
+        synchronized (routeDiscoveries) {
+            discovery = routeDiscoveries.remove(uuid);
+        }
+        if (discovery != null) {
+            for (byte[] message : discovery.messages) {
+                sendMessage(message, uuid);
+            }
+        }
+    }
+
+    /**
+     * Sends a ping to the given device. Its round trip time will be recorded
+     * in the device's RTT histogram once the reply arrives.
+     *
+     * @param uuid Destination of the ping
+     * @return Whether the destination could be found in the routing table
+     */
+    public boolean ping(String uuid) {
+        return sendProbe(uuid, MESSAGE_TYPE_PING_REQUEST, probeId.incrementAndGet());
+    }
+
+    /**
+     * Sends a trace request to the given device. Every hop on the path answers
+     * it and is added to the returned trace as soon as its reply arrives.
+     *
+     * @param uuid Destination of the trace
+     * @return Trace to be filled asynchronously or null if the destination
+     * could not be found in the routing table
+     */
+    public TraceRoute traceroute(String uuid) {
+        int id = probeId.incrementAndGet();
+        TraceRoute traceRoute = new TraceRoute(uuid);
+        synchronized (pendingTraces) {
+            pendingTraces.put(id, traceRoute);
+            Iterator<Integer> iterator = pendingTraces.keySet().iterator();
+            while (pendingTraces.size() > MAX_PENDING_TRACES) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        if (!sendProbe(uuid, MESSAGE_TYPE_TRACE_REQUEST, id)) {
+            synchronized (pendingTraces) {
+                pendingTraces.remove(id);
+            }
+            return null;
+        }
+        return traceRoute;
+    }
+
+    /**
+     * @param uuid Device which has been pinged
+     * @return Copy of the round trip times recorded so far or null if the
+     * device never answered a ping
+     */
+    public RttHistogram getRttHistogram(String uuid) {
+        RttHistogram histogram = rttHistograms.get(uuid);
+        return histogram == null ? null : histogram.copy();
+    }
+
+    private boolean sendProbe(String uuid, int type, int id) {
+        if (routingTable.get(uuid) == null) {
+            System.out.println("Mesh handler could not find " + uuid + " in routing table");
+            return false;
+        }
+        Probe probe = new Probe(id, INITIAL_MESSAGE_TTL, scheduler.currentTimeMillis());
+        Message request = new Message(this.uuid, uuid, id, type, probe.toBytes());
+        try {
+            router.routeMessage(request);
+        } catch (Router.RoutingException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+
+    private void onProbeReply(Message message) {
+        Probe probe = Probe.fromBytes(message.getBody());
+        if (probe == null) {
+            return;
+        }
+        long rtt = scheduler.currentTimeMillis() - probe.getSentAt();
+        if (message.getType() == MESSAGE_TYPE_PING_REPLY) {
+            RttHistogram histogram = rttHistograms.get(message.getSource());
+            if (histogram == null) {
+                rttHistograms.putIfAbsent(message.getSource(), new RttHistogram());
+                histogram = rttHistograms.get(message.getSource());
+            }
+            histogram.record(rtt);
+        } else if (message.getType() == MESSAGE_TYPE_TRACE_REPLY) {
+            TraceRoute traceRoute;
+            synchronized (pendingTraces) {
+                traceRoute = pendingTraces.get(probe.getId());
+            }
+            if (traceRoute != null) {
+                traceRoute.addHop(new TraceHop(probe.getHopUuid(), probe.getHopIndex(), probe.getHopTq(), rtt));
+                if (traceRoute.isComplete()) {
+                    synchronized (pendingTraces) {
+                        pendingTraces.remove(probe.getId());
+                    }
+                }
             }
-            return ucm != null;
         }
     }
 
@@ -111,18 +314,96 @@ public class MeshHandler {
         @Override
         public void run() {
             try {
-                router.dispatchOgm();
+                router.dispatchOgm(lostNeighbours.values());
+                // Link qualities change without route changes
+                routingTable.publishSnapshot();
             } catch (Exception e) {
                 e.printStackTrace();
             }
         }
     }
 
+    /**
+     * Drops all routes via a neighbour whose link seems dead and advertises the
+     * new topology right away instead of waiting for the device to expire. The
+     * neighbour is restored as soon as a message from it arrives again.
+     *
+     * @param remoteDevice Neighbour whose link has been lost
+     */
+    private void onNeighbourLost(RemoteDevice remoteDevice) {
+        if (lostNeighbours.put(remoteDevice.getUuid(), remoteDevice) != null) {
+            return;
+        }
+        System.out.println("Mesh handler lost link to " + remoteDevice.getUuid());
+        routingTable.removeRoutesVia(remoteDevice);
+        remoteDevice.resetLinkState();
+        try {
+            router.dispatchOgm(lostNeighbours.values());
+        } catch (Router.RoutingException e) {
+            e.printStackTrace();
+        }
+        routingTable.publishSnapshotIfChanged();
+    }
+
+    private void restoreNeighbour(String uuid) {
+        RemoteDevice remoteDevice = lostNeighbours.remove(uuid);
+        if (remoteDevice != null) {
+            routingTable.putRoute(remoteDevice, remoteDevice);
+        }
+    }
+
+    private class RouteDiscoveryRunner implements Runnable {
+        @Override
+        public void run() {
+            try {
+                long expiration = scheduler.currentTimeMillis() - ROUTE_DISCOVERY_TIMEOUT * 1000L;
+                List<String> discovered = new ArrayList<>();
+                List<Message> dropped = new ArrayList<>();
+                synchronized (routeDiscoveries) {
+                    Iterator<Map.Entry<String, RouteDiscovery>> i = routeDiscoveries.entrySet().iterator();
+                    while (i.hasNext()) {
+                        Map.Entry<String, RouteDiscovery> entry = i.next();
+                        if (routingTable.get(entry.getKey()) != null) {
+                            // Route has been learned from OGMs meanwhile
+                            discovered.add(entry.getKey());
+                        } else if (entry.getValue().startedAt < expiration) {
+                            System.out.println("Route discovery for " + entry.getKey() + " timed out, dropping " +
+                                    entry.getValue().messages.size() + " messages");
+                            for (byte[] message : entry.getValue().messages) {
+                                dropped.add(new Message(uuid, entry.getKey(), INITIAL_MIN_SEQUENCE,
+                                        MESSAGE_TYPE_UCM, message));
+                            }
+                            i.remove();
+                        }
+                    }
+                }
+                for (Message message : dropped) {
+                    meshHandlerCallback.onMessageLogged(message, MESSAGE_ACTION_DROPPED);
+                }
+                for (String uuid : discovered) {
+                    flushQueuedMessages(uuid);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static class RouteDiscovery {
+        private final long startedAt;
+        private final Queue<byte[]> messages = new ArrayDeque<>();
+
+        RouteDiscovery(long startedAt) {
+            this.startedAt = startedAt;
+        }
+    }
+
     private class PurgeRunner implements Runnable {
         @Override
         public void run() {
             try {
                 routingTable.flushExpiredRemoteDevices();
+                routingTable.publishSnapshotIfChanged();
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -133,7 +414,7 @@ public class MeshHandler {
         @Override
         public void run() {
             try {
-                double currentTime = System.currentTimeMillis();
+                double currentTime = scheduler.currentTimeMillis();
                 StatsResult networkStat = new StatsResult();
 
                 networkStat.setOgmIncoming(ogmStats.getIncomingStat());
@@ -156,6 +437,16 @@ public class MeshHandler {
         @Override
         public void update(Observable observable, Object o) {
             Router.Event event = (Router.Event) o;
+            if (event.getType() == Router.NEIGHBOUR_LOST) {
+                final RemoteDevice remoteDevice = (RemoteDevice) event.getOptions();
+                scheduler.execute(uuid, new Runnable() {
+                    @Override
+                    public void run() {
+                        onNeighbourLost(remoteDevice);
+                    }
+                });
+                return;
+            }
             Message message = (Message) event.getOptions();
             boolean sent = message.getSource().equals(uuid);
             switch (event.getType()) {
@@ -173,6 +464,22 @@ public class MeshHandler {
                 case Router.UCM_DROPPED:
                     meshHandlerCallback.onMessageLogged(message, MESSAGE_ACTION_DROPPED);
                     break;
+                case Router.PROBE_SENT:
+                    meshHandlerCallback.onMessageLogged(message, sent ? MESSAGE_ACTION_SENT : MESSAGE_ACTION_FORWARDED);
+                    break;
+                case Router.PROBE_DROPPED:
+                    meshHandlerCallback.onMessageLogged(message, MESSAGE_ACTION_DROPPED);
+                    break;
+                case Router.DISCOVERY_SENT:
+                    meshHandlerCallback.onMessageLogged(message, sent ? MESSAGE_ACTION_SENT : MESSAGE_ACTION_FORWARDED);
+                    break;
+                case Router.DISCOVERY_DROPPED:
+                    meshHandlerCallback.onMessageLogged(message, MESSAGE_ACTION_DROPPED);
+                    break;
+                case Router.ROUTE_DISCOVERED:
+                    meshHandlerCallback.onMessageLogged(message, MESSAGE_ACTION_RECEIVED);
+                    flushQueuedMessages(message.getSource());
+                    break;
 
             }
         }
@@ -182,16 +489,28 @@ public class MeshHandler {
 
         @Override
         public void onDeviceAdded(RemoteDevice remoteDevice) {
+            lostNeighbours.remove(remoteDevice.getUuid());
             routingTable.putRoute(remoteDevice, remoteDevice);
+            routingTable.publishSnapshotIfChanged();
         }
 
         @Override
         public void onDeviceRemoved(RemoteDevice remoteDevice) {
+            lostNeighbours.remove(remoteDevice.getUuid());
             routingTable.removeRoutesVia(remoteDevice);
+            routingTable.publishSnapshotIfChanged();
         }
 
         @Override
         public void onMessageReceived(byte[] bytes) {
+            try {
+                receiveMessage(bytes);
+            } finally {
+                routingTable.publishSnapshotIfChanged();
+            }
+        }
+
+        private void receiveMessage(byte[] bytes) {
             Message message, propagate;
 
             try {
@@ -211,6 +530,7 @@ public class MeshHandler {
             }
 
             meshHandlerCallback.onMessageLogged(message, MESSAGE_ACTION_ARRIVED);
+            restoreNeighbour(message.getPreviousHop());
 
             try {
                 propagate = router.routeMessage(message);
@@ -219,7 +539,10 @@ public class MeshHandler {
                 return;
             }
 
-            if (propagate != null) {
+            if (propagate != null && propagate.getType() != MESSAGE_TYPE_UCM) {
+                onProbeReply(propagate);
+                meshHandlerCallback.onMessageLogged(message, MESSAGE_ACTION_RECEIVED);
+            } else if (propagate != null) {
                 MeshDevice source = routingTable.get(message.getSource()).getMeshDevice();
                 meshHandlerCallback.onMessageReceived(message.getBody(), source);
                 meshHandlerCallback.onMessageLogged(message, MESSAGE_ACTION_RECEIVED);
@@ -0,0 +1,64 @@
+package blue.happening.mesh;
+
+/**
+ * Tunable protocol parameters of a single {@link MeshHandler}. A new instance
+ * starts out with the defaults in {@link MeshHandler}, so handlers which are
+ * not given parameters keep following those.
+ */
+public class MeshParameters {
+
+    private int ogmInterval = MeshHandler.OGM_INTERVAL;
+    private int purgeInterval = MeshHandler.PURGE_INTERVAL;
+    private int deviceExpiration = MeshHandler.DEVICE_EXPIRATION;
+    private int hopPenalty = MeshHandler.HOP_PENALTY;
+    private int slidingWindowSize = MeshHandler.SLIDING_WINDOW_SIZE;
+
+    /**
+     * @return Seconds between two OGMs
+     */
+    public int getOgmInterval() {
+        return ogmInterval;
+    }
+
+    public void setOgmInterval(int ogmInterval) {
+        this.ogmInterval = ogmInterval;
+    }
+
+    /**
+     * @return Seconds between two purges of expired devices
+     */
+    public int getPurgeInterval() {
+        return purgeInterval;
+    }
+
+    public void setPurgeInterval(int purgeInterval) {
+        this.purgeInterval = purgeInterval;
+    }
+
+    /**
+     * @return Seconds after which a device which has not been seen expires
+     */
+    public int getDeviceExpiration() {
+        return deviceExpiration;
+    }
+
+    public void setDeviceExpiration(int deviceExpiration) {
+        this.deviceExpiration = deviceExpiration;
+    }
+
+    public int getHopPenalty() {
+        return hopPenalty;
+    }
+
+    public void setHopPenalty(int hopPenalty) {
+        this.hopPenalty = hopPenalty;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+}
@@ -0,0 +1,86 @@
+package blue.happening.mesh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Body of ping and traceroute messages. Requests only carry the originator's
+ * send time, trace replies additionally describe the answering hop.
+ */
+class Probe implements Serializable {
+
+    private int id;
+    private int initialTtl;
+    private long sentAt;
+    private String hopUuid;
+    private int hopIndex;
+    private float hopTq;
+
+    Probe(int id, int initialTtl, long sentAt) {
+        this.id = id;
+        this.initialTtl = initialTtl;
+        this.sentAt = sentAt;
+    }
+
+    static Probe fromBytes(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        try (ByteArrayInputStream bis = new ByteArrayInputStream(bytes);
+             ObjectInput in = new ObjectInputStream(bis)) {
+            return (Probe) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    byte[] toBytes() {
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
+             ObjectOutput out = new ObjectOutputStream(bos)) {
+            out.writeObject(this);
+            return bos.toByteArray();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param message  Trace request as received by the answering hop
+     * @param hopUuid  UUID of the answering hop
+     * @param hopTq    Quality of the link the request arrived on
+     * @return Copy of this probe describing the answering hop
+     */
+    Probe answeredBy(Message message, String hopUuid, float hopTq) {
+        Probe answer = new Probe(id, initialTtl, sentAt);
+        answer.hopUuid = hopUuid;
+        answer.hopIndex = initialTtl - message.getTtl();
+        answer.hopTq = hopTq;
+        return answer;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    long getSentAt() {
+        return sentAt;
+    }
+
+    String getHopUuid() {
+        return hopUuid;
+    }
+
+    int getHopIndex() {
+        return hopIndex;
+    }
+
+    float getHopTq() {
+        return hopTq;
+    }
+}
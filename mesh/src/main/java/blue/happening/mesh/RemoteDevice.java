@@ -1,5 +1,7 @@
 package blue.happening.mesh;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public abstract class RemoteDevice implements IRemoteDevice {
 
     private final String uuid;
@@ -7,12 +9,14 @@ public abstract class RemoteDevice implements IRemoteDevice {
     private SlidingWindow echoSlidingWindow;
     private SlidingWindow receiveSlidingWindow;
     private MeshDevice meshDevice;
+    // counted by the OGM runner as well as on arrival of messages
+    private final AtomicInteger unansweredOgms = new AtomicInteger();
+    private final AtomicInteger sendFailures = new AtomicInteger();
 
     public RemoteDevice(String uuid) {
         this.uuid = uuid;
         meshDevice = new MeshDevice();
         meshDevice.setUuid(uuid);
-        lastSeen = System.currentTimeMillis();
         echoSlidingWindow = new SlidingWindow();
         receiveSlidingWindow = new SlidingWindow();
     }
@@ -25,6 +29,11 @@ public abstract class RemoteDevice implements IRemoteDevice {
         return receiveSlidingWindow;
     }
 
+    void setSlidingWindowSize(int size) {
+        echoSlidingWindow.setSize(size);
+        receiveSlidingWindow.setSize(size);
+    }
+
     public final String getUuid() {
         return uuid;
     }
@@ -37,17 +46,46 @@ public abstract class RemoteDevice implements IRemoteDevice {
         this.lastSeen = lastSeen;
     }
 
-    boolean isExpired() {
-        long expirationMillis = MeshHandler.DEVICE_EXPIRATION * 1000L;
-        return System.currentTimeMillis() - lastSeen > expirationMillis;
+    boolean isExpired(long now, long expirationMillis) {
+        return now - lastSeen > expirationMillis;
+    }
+
+    void countOgm() {
+        unansweredOgms.incrementAndGet();
+    }
+
+    void countEcho() {
+        unansweredOgms.set(0);
+    }
+
+    void countSend(boolean sent) {
+        if (sent) {
+            sendFailures.set(0);
+        } else {
+            sendFailures.incrementAndGet();
+        }
+    }
+
+    void resetLinkState() {
+        unansweredOgms.set(0);
+        sendFailures.set(0);
+    }
+
+    /**
+     * @return Whether the link to this neighbour seems dead, either because
+     * too many OGMs have not been echoed or because sending failed repeatedly
+     */
+    boolean isLinkLost() {
+        return unansweredOgms.get() > MeshHandler.LINK_LOSS_OGMS ||
+                sendFailures.get() >= MeshHandler.LINK_LOSS_SEND_FAILURES;
     }
 
     public final float getEq() {
-        return ((float) echoSlidingWindow.size()) / MeshHandler.SLIDING_WINDOW_SIZE;
+        return ((float) echoSlidingWindow.size()) / echoSlidingWindow.getSize();
     }
 
     public final float getRq() {
-        return ((float) receiveSlidingWindow.size()) / MeshHandler.SLIDING_WINDOW_SIZE;
+        return ((float) receiveSlidingWindow.size()) / receiveSlidingWindow.getSize();
     }
 
     public final float getTq() {
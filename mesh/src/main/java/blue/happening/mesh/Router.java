@@ -1,7 +1,12 @@
 package blue.happening.mesh;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Observable;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Random;
+import java.util.Set;
 
 class Router extends Observable {
 
@@ -9,15 +14,36 @@ class Router extends Observable {
     static final int UCM_SENT = 2;
     static final int OGM_DROPPED = 3;
     static final int UCM_DROPPED = 4;
+    static final int PROBE_SENT = 5;
+    static final int PROBE_DROPPED = 6;
+    static final int DISCOVERY_SENT = 7;
+    static final int DISCOVERY_DROPPED = 8;
+    static final int ROUTE_DISCOVERED = 9;
+    static final int NEIGHBOUR_LOST = 10;
+
+    private static final int SEEN_ROUTE_REQUESTS = 64;
 
     private RoutingTable routingTable;
     private String uuid;
     private int sequence;
+    private int routeRequestSequence;
+    private final Set<String> seenRouteRequests;
+    private final MeshParameters parameters;
 
-    Router(RoutingTable routingTable, String uuid) {
+    Router(RoutingTable routingTable, String uuid, Random random, MeshParameters parameters) {
         this.routingTable = routingTable;
         this.uuid = uuid;
-        sequence = ThreadLocalRandom.current().nextInt(MeshHandler.INITIAL_MIN_SEQUENCE, MeshHandler.INITIAL_MAX_SEQUENCE);
+        this.parameters = parameters;
+        sequence = MeshHandler.INITIAL_MIN_SEQUENCE
+                + random.nextInt(MeshHandler.INITIAL_MAX_SEQUENCE - MeshHandler.INITIAL_MIN_SEQUENCE);
+        routeRequestSequence = MeshHandler.INITIAL_MIN_SEQUENCE
+                + random.nextInt(MeshHandler.INITIAL_MAX_SEQUENCE - MeshHandler.INITIAL_MIN_SEQUENCE);
+        seenRouteRequests = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > SEEN_ROUTE_REQUESTS;
+            }
+        });
     }
 
     /**
@@ -35,6 +61,14 @@ class Router extends Observable {
             return null;
         } else if (message.getType() == MeshHandler.MESSAGE_TYPE_UCM) {
             return routeUcm(message);
+        } else if (isProbe(message)) {
+            return routeProbe(message);
+        } else if (message.getType() == MeshHandler.MESSAGE_TYPE_ROUTE_REQUEST) {
+            routeRouteRequest(message);
+            return null;
+        } else if (message.getType() == MeshHandler.MESSAGE_TYPE_ROUTE_REPLY) {
+            routeRouteReply(message);
+            return null;
         } else {
             throw new RoutingException("Unknown message type");
         }
@@ -47,6 +81,7 @@ class Router extends Observable {
                 throw new RoutingException("slideWindows: Previous hop has left " + message.getPreviousHop());
             }
             previous.getEchoSlidingWindow().slideAndAddSequence(message.getSequence());
+            previous.countEcho();
         } else {
             RemoteDevice source = routingTable.get(message.getSource());
             if (source == null) {
@@ -69,13 +104,26 @@ class Router extends Observable {
         slideWindows(message);
     }
 
-    void dispatchOgm() throws RoutingException {
+    /**
+     * @param lostNeighbours Neighbours whose link seems dead. They still get
+     *                       the OGM so that they can announce their return.
+     * @throws RoutingException Caused by invalid message header
+     */
+    void dispatchOgm(Collection<RemoteDevice> lostNeighbours) throws RoutingException {
         Message message = new Message(uuid, MeshHandler.BROADCAST_ADDRESS, sequence, MeshHandler.MESSAGE_TYPE_OGM, null);
         for (RemoteDevice remoteDevice : routingTable.getNeighbours()) {
-            remoteDevice.sendMessage(message);
+            if (remoteDevice.isLinkLost()) {
+                trigger(NEIGHBOUR_LOST, remoteDevice);
+                continue;
+            }
+            sendTo(remoteDevice, message);
+            remoteDevice.countOgm();
             remoteDevice.getEchoSlidingWindow().slideSequence(sequence);
             trigger(OGM_SENT, message);
         }
+        for (RemoteDevice remoteDevice : lostNeighbours) {
+            remoteDevice.sendMessage(message);
+        }
         sequence++;
     }
 
@@ -95,6 +143,155 @@ class Router extends Observable {
         }
     }
 
+    /**
+     * Forwards ping and trace messages like UCMs. Ping requests are answered
+     * by their destination, trace requests by every hop they pass.
+     *
+     * @param message Probe message to be routed
+     * @return Returns probe reply if current device is destination
+     * @throws RoutingException If someone tried to broadcast a probe
+     */
+    private Message routeProbe(Message message) throws RoutingException {
+        if (message.getDestination().equals(MeshHandler.BROADCAST_ADDRESS)) {
+            throw new RoutingException("Cannot broadcast probe");
+        }
+        boolean arrived = message.getDestination().equals(uuid);
+        boolean own = message.getSource().equals(uuid);
+        switch (message.getType()) {
+            case MeshHandler.MESSAGE_TYPE_PING_REQUEST:
+                if (arrived) {
+                    replyToProbe(message, MeshHandler.MESSAGE_TYPE_PING_REPLY, message.getBody());
+                    return null;
+                }
+                break;
+            case MeshHandler.MESSAGE_TYPE_TRACE_REQUEST:
+                if (!own) {
+                    Probe probe = Probe.fromBytes(message.getBody());
+                    if (probe == null) {
+                        throw new RoutingException("Trace request without probe");
+                    }
+                    RemoteDevice previousHop = routingTable.get(message.getPreviousHop());
+                    float tq = previousHop != null ? previousHop.getTq() : 0;
+                    replyToProbe(message, MeshHandler.MESSAGE_TYPE_TRACE_REPLY,
+                            probe.answeredBy(message, uuid, tq).toBytes());
+                }
+                if (arrived) {
+                    return null;
+                }
+                break;
+            default:
+                if (arrived) {
+                    return message;
+                }
+        }
+        forwardUCM(message);
+        return null;
+    }
+
+    /**
+     * Floods a route request for a device which is not in the routing table yet.
+     * Its TTL limits how far the request travels.
+     *
+     * @param destination UUID of the device to be discovered
+     */
+    void dispatchRouteRequest(String destination) {
+        Message message = new Message(uuid, destination, routeRequestSequence++,
+                MeshHandler.MESSAGE_TYPE_ROUTE_REQUEST, null);
+        message.setTtl(MeshHandler.ROUTE_REQUEST_TTL);
+        isNewRouteRequest(message);
+        for (RemoteDevice remoteDevice : routingTable.getNeighbours()) {
+            sendTo(remoteDevice, message);
+            trigger(DISCOVERY_SENT, message);
+        }
+    }
+
+    /**
+     * Learns the reverse route to the requesting device and either answers the
+     * request or floods it further. Only the destination answers, so that it
+     * learns the reverse route as well. Requests from a previous hop which is
+     * not a known neighbour yet are dropped, as no reply could travel back.
+     *
+     * @param message Route request to be routed
+     * @throws RoutingException If the reply cannot be prepared
+     */
+    private void routeRouteRequest(Message message) throws RoutingException {
+        if (message.getSource().equals(uuid) || !learnRoute(message) || !isNewRouteRequest(message)) {
+            trigger(DISCOVERY_DROPPED, message);
+            return;
+        }
+        if (message.getDestination().equals(uuid)) {
+            Message reply = new Message(uuid, message.getSource(),
+                    message.getSequence(), MeshHandler.MESSAGE_TYPE_ROUTE_REPLY, null);
+            forwardUCM(reply);
+        } else if (message.getTtl() > 1) {
+            Message preparedMessage = prepareMessage(message);
+            for (RemoteDevice remoteDevice : routingTable.getNeighbours()) {
+                if (shouldUCMBeForwardedTo(message, remoteDevice.getUuid())) {
+                    sendTo(remoteDevice, preparedMessage);
+                    trigger(DISCOVERY_SENT, preparedMessage);
+                }
+            }
+        } else {
+            trigger(DISCOVERY_DROPPED, message);
+        }
+    }
+
+    /**
+     * Learns the route to the discovered device on every hop back to the
+     * requesting device.
+     *
+     * @param message Route reply to be routed
+     * @throws RoutingException If the reply cannot be forwarded
+     */
+    private void routeRouteReply(Message message) throws RoutingException {
+        learnRoute(message);
+        if (message.getDestination().equals(uuid)) {
+            trigger(ROUTE_DISCOVERED, message);
+        } else {
+            forwardUCM(message);
+        }
+    }
+
+    /**
+     * @return Whether the route to the message's source could be learned,
+     * which requires its previous hop to be in the routing table
+     */
+    private boolean learnRoute(Message message) {
+        if (routingTable.get(message.getPreviousHop()) == null) {
+            return false;
+        }
+        routingTable.putRoute(message.getSource(), message.getPreviousHop());
+        return true;
+    }
+
+    private boolean isNewRouteRequest(Message message) {
+        synchronized (seenRouteRequests) {
+            return seenRouteRequests.add(message.getSource() + ":" + message.getSequence());
+        }
+    }
+
+    private void replyToProbe(Message request, int type, byte[] body) throws RoutingException {
+        Message reply = new Message(uuid, request.getSource(), request.getSequence(), type, body);
+        forwardUCM(reply);
+    }
+
+    private boolean isProbe(Message message) {
+        switch (message.getType()) {
+            case MeshHandler.MESSAGE_TYPE_PING_REQUEST:
+            case MeshHandler.MESSAGE_TYPE_PING_REPLY:
+            case MeshHandler.MESSAGE_TYPE_TRACE_REQUEST:
+            case MeshHandler.MESSAGE_TYPE_TRACE_REPLY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean isDiscovery(Message message) {
+        return message.getType() == MeshHandler.MESSAGE_TYPE_ROUTE_REQUEST ||
+                message.getType() == MeshHandler.MESSAGE_TYPE_ROUTE_REPLY;
+    }
+
     private boolean isEchoOGM(Message message) {
         return message.getSource().equals(uuid);
     }
@@ -104,7 +301,7 @@ class Router extends Observable {
     }
 
     private boolean isMessageVital(Message message) {
-        return message.getTq() > MeshHandler.HOP_PENALTY && message.getTtl() > 1;
+        return message.getTq() > parameters.getHopPenalty() && message.getTtl() > 1;
     }
 
     private boolean slidingWindowSaysYes(Message message) {
@@ -169,7 +366,7 @@ class Router extends Observable {
         } else {
             throw new RoutingException("calculateTq: Previous hop has left " + message.getPreviousHop());
         }
-        return (int) (message.getTq() * previousTq) - MeshHandler.HOP_PENALTY;
+        return (int) (message.getTq() * previousTq) - parameters.getHopPenalty();
     }
 
     private Message prepareMessage(Message message) throws RoutingException {
@@ -195,12 +392,14 @@ class Router extends Observable {
         for (Route route : routingTable.getBestRoutesTo(destination)) {
             if (shouldUCMBeForwardedTo(message, route.getViaDevice())) {
                 RemoteDevice viaDevice = routingTable.get(route.getViaDevice());
-                viaDevice.sendMessage(preparedMessage);
-                trigger(UCM_SENT, preparedMessage);
+                sendTo(viaDevice, preparedMessage);
+                trigger(isProbe(message) ? PROBE_SENT :
+                        isDiscovery(message) ? DISCOVERY_SENT : UCM_SENT, preparedMessage);
                 return;
             }
         }
-        trigger(UCM_DROPPED, preparedMessage);
+        trigger(isProbe(message) ? PROBE_DROPPED :
+                isDiscovery(message) ? DISCOVERY_DROPPED : UCM_DROPPED, preparedMessage);
     }
 
     private void broadcastOGM(Message message) throws RoutingException {
@@ -208,12 +407,20 @@ class Router extends Observable {
         for (RemoteDevice remoteDevice : routingTable.getNeighbours()) {
             if (shouldOGMBeEchoedTo(message, remoteDevice.getUuid()) ||
                     shouldOGMBeBroadcastTo(message, remoteDevice.getUuid())) {
-                remoteDevice.sendMessage(preparedMessage);
+                sendTo(remoteDevice, preparedMessage);
                 trigger(OGM_SENT, preparedMessage);
             }
         }
     }
 
+    private void sendTo(RemoteDevice remoteDevice, Message message) {
+        boolean sent = remoteDevice.sendMessage(message);
+        remoteDevice.countSend(sent);
+        if (!sent && remoteDevice.isLinkLost()) {
+            trigger(NEIGHBOUR_LOST, remoteDevice);
+        }
+    }
+
     class RoutingException extends Exception {
         RoutingException(String message) {
             super(message);
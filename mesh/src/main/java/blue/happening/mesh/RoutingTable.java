@@ -4,18 +4,52 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 
 public class RoutingTable extends ConcurrentHashMap<String, RemoteDevice> {
 
+    private final IMeshClock clock;
+    private final MeshParameters parameters;
     private IMeshHandlerCallback meshHandlerCallback;
     private Set<Route> routes;
+    private volatile TopologySnapshot snapshot;
+    private volatile boolean changed;
 
     public RoutingTable() {
+        this(IMeshClock.SYSTEM, new MeshParameters());
+    }
+
+    RoutingTable(IMeshClock clock, MeshParameters parameters) {
+        this.clock = clock;
+        this.parameters = parameters;
         this.routes = Collections.newSetFromMap(new ConcurrentHashMap<Route, Boolean>());
+        this.snapshot = TopologySnapshot.EMPTY;
+    }
+
+    /**
+     * @return Topology as of the last published batch of changes
+     */
+    public TopologySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publish a new snapshot if routes or devices changed since the last one.
+     */
+    void publishSnapshotIfChanged() {
+        if (changed) {
+            publishSnapshot();
+        }
+    }
+
+    /**
+     * Publish a new snapshot regardless of changes, e.g. to refresh link qualities.
+     */
+    synchronized void publishSnapshot() {
+        changed = false;
+        snapshot = TopologySnapshot.of(this, routes, clock.currentTimeMillis());
     }
 
     void registerMeshHandlerCallback(IMeshHandlerCallback meshHandlerCallback) {
@@ -44,17 +78,6 @@ public class RoutingTable extends ConcurrentHashMap<String, RemoteDevice> {
         return bestRoutes;
     }
 
-    List<MeshDevice> getReachableMeshDevices() {
-        List<MeshDevice> meshDevices = new ArrayList<>();
-        for (Map.Entry<String, RemoteDevice> entry : entrySet()) {
-            RemoteDevice remoteDevice = entry.getValue();
-            if (isReachable(remoteDevice)) {
-                meshDevices.add(remoteDevice.getMeshDevice());
-            }
-        }
-        return meshDevices;
-    }
-
     /**
      * Overloaded method for {@link RoutingTable#putRoute(RemoteDevice, RemoteDevice)}
      * putRoute} which retrieves or creates devices from UUIDs.
@@ -102,13 +125,17 @@ public class RoutingTable extends ConcurrentHashMap<String, RemoteDevice> {
             discoveredDevice = existingDevice;
         }
 
-        discoveredDevice.setLastSeen(System.currentTimeMillis());
-        routes.add(new Route(viaDevice.getUuid(), discoveredDevice.getUuid()));
+        discoveredDevice.setLastSeen(clock.currentTimeMillis());
+        if (routes.add(new Route(viaDevice.getUuid(), discoveredDevice.getUuid()))) {
+            changed = true;
+        }
     }
 
     @Override
     public RemoteDevice put(String uuid, RemoteDevice remoteDevice) {
+        remoteDevice.setSlidingWindowSize(parameters.getSlidingWindowSize());
         RemoteDevice existing = super.put(uuid, remoteDevice);
+        changed = true;
         if (isReachable(existing)) {
             meshHandlerCallback.onDeviceUpdated(remoteDevice.getMeshDevice());
         } else {
@@ -118,8 +145,10 @@ public class RoutingTable extends ConcurrentHashMap<String, RemoteDevice> {
     }
 
     boolean flushExpiredRemoteDevices() {
+        long now = clock.currentTimeMillis();
+        long expirationMillis = parameters.getDeviceExpiration() * 1000L;
         for (RemoteDevice device : values()) {
-            if (device.isExpired()) {
+            if (device.isExpired(now, expirationMillis)) {
                 remove(device);
             }
         }
@@ -133,6 +162,7 @@ public class RoutingTable extends ConcurrentHashMap<String, RemoteDevice> {
             if (route.getViaDevice().equals(remoteDevice.getUuid())) {
                 // Remove any route via remoteDevice
                 i.remove();
+                changed = true;
                 remoteDevice.getEchoSlidingWindow().clear();
                 RemoteDevice toDevice = get(route.getToDevice());
                 if (!isReachable(toDevice)) {
@@ -151,6 +181,7 @@ public class RoutingTable extends ConcurrentHashMap<String, RemoteDevice> {
             if (route.getToDevice().equals(remoteDevice.getUuid())) {
                 // Remove any route to remoteDevice
                 i.remove();
+                changed = true;
             }
         }
     }
@@ -205,6 +236,7 @@ public class RoutingTable extends ConcurrentHashMap<String, RemoteDevice> {
             RemoteDevice remoteDevice = get(key);
             if (!isReachable(remoteDevice)) {
                 RemoteDevice removedDevice = super.remove(key);
+                changed = true;
                 flushed |= remoteDevice == null;
             }
         }
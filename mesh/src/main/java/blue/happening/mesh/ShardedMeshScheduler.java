@@ -0,0 +1,176 @@
+package blue.happening.mesh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler for running many {@link MeshHandler} instances inside one JVM.
+ * <p>
+ * Mesh nodes are sharded by their uuid onto a fixed number of single threaded
+ * workers, so every node is always served by the same thread. Periodic tasks
+ * are not scheduled individually but collected per shard and executed in
+ * batches on a shared tick. Their periods must therefore be multiples of the
+ * tick, initial delays are rounded down to whole ticks. Ticks keep their
+ * period from the end of the previous tick, so that ticks missed while a
+ * shard was held do not all fire at once.
+ */
+public class ShardedMeshScheduler implements IMeshScheduler {
+
+    public static final long DEFAULT_TICK_MILLIS = 250;
+
+    private final Shard[] shards;
+    private final long tickMillis;
+    private final Runnable gate;
+
+    public ShardedMeshScheduler() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_TICK_MILLIS);
+    }
+
+    public ShardedMeshScheduler(int shardCount, long tickMillis) {
+        this(shardCount, tickMillis, null);
+    }
+
+    /**
+     * @param gate Runs on a shard's thread before each of its tasks, or null.
+     *             Blocking in it holds the shard, which allows pausing all
+     *             nodes at once.
+     */
+    public ShardedMeshScheduler(int shardCount, long tickMillis, Runnable gate) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick must be at least one millisecond");
+        }
+        this.tickMillis = tickMillis;
+        this.gate = gate;
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @param uuid Uuid of a mesh node
+     * @return The worker owning the given node. Work submitted to it will
+     * never run concurrently with the node's timers.
+     */
+    public ScheduledExecutorService getExecutor(String uuid) {
+        return shardOf(uuid).executor;
+    }
+
+    /**
+     * @throws IllegalArgumentException If {@code period} is not a positive
+     *                                  multiple of the tick
+     */
+    @Override
+    public void scheduleAtFixedRate(String uuid, Runnable runnable, long initialDelay, long period, TimeUnit unit) {
+        long periodMillis = unit.toMillis(period);
+        if (periodMillis < tickMillis || periodMillis % tickMillis != 0) {
+            throw new IllegalArgumentException("Period of " + periodMillis
+                    + " ms is no multiple of the " + tickMillis + " ms tick");
+        }
+        long periodTicks = periodMillis / tickMillis;
+        long delayTicks = Math.max(0, unit.toMillis(initialDelay) / tickMillis);
+        shardOf(uuid).register(new PeriodicTask(runnable, delayTicks, periodTicks));
+    }
+
+    @Override
+    public void execute(String uuid, Runnable runnable) {
+        shardOf(uuid).executor.execute(runnable);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public void shutdown() {
+        for (Shard shard : shards) {
+            shard.executor.shutdownNow();
+        }
+    }
+
+    private Shard shardOf(String uuid) {
+        return shards[(uuid.hashCode() & Integer.MAX_VALUE) % shards.length];
+    }
+
+    private class Shard implements Runnable {
+
+        private final ScheduledExecutorService executor;
+        private final Queue<PeriodicTask> pending;
+        private final List<PeriodicTask> tasks;
+        private long tick;
+
+        Shard(final int index) {
+            pending = new ConcurrentLinkedQueue<>();
+            tasks = new ArrayList<>();
+            executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "mesh-shard-" + index);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }) {
+                @Override
+                protected void beforeExecute(Thread thread, Runnable runnable) {
+                    super.beforeExecute(thread, runnable);
+                    if (gate != null) {
+                        gate.run();
+                    }
+                }
+            };
+            executor.scheduleWithFixedDelay(this, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+
+        void register(PeriodicTask task) {
+            pending.offer(task);
+        }
+
+        @Override
+        public void run() {
+            PeriodicTask task;
+            while ((task = pending.poll()) != null) {
+                task.nextTick = tick + task.nextTick;
+                tasks.add(task);
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                task = tasks.get(i);
+                if (task.nextTick <= tick) {
+                    task.nextTick += task.periodTicks;
+                    try {
+                        task.runnable.run();
+                    } catch (Throwable e) {
+                        // anything escaping would cancel the tick of the whole shard
+                        e.printStackTrace();
+                    }
+                }
+            }
+            tick++;
+        }
+    }
+
+    private static class PeriodicTask {
+
+        private final Runnable runnable;
+        private final long periodTicks;
+        private long nextTick;
+
+        PeriodicTask(Runnable runnable, long delayTicks, long periodTicks) {
+            this.runnable = runnable;
+            this.nextTick = delayTicks;
+            this.periodTicks = periodTicks;
+        }
+    }
+}
@@ -6,6 +6,15 @@ import java.util.Iterator;
 class SlidingWindow extends HashSet<Integer> {
 
     private Integer sequence;
+    private int size = MeshHandler.SLIDING_WINDOW_SIZE;
+
+    int getSize() {
+        return size;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
 
     void slideAndAddSequence(int sequence) {
         slideSequence(sequence);
@@ -33,7 +42,7 @@ class SlidingWindow extends HashSet<Integer> {
         if (this.sequence == null) {
             return true;
         } else {
-            return (sequence > this.sequence) || (sequence <= this.sequence - MeshHandler.SLIDING_WINDOW_SIZE);
+            return (sequence > this.sequence) || (sequence <= this.sequence - size);
         }
     }
 }
@@ -0,0 +1,83 @@
+package blue.happening.mesh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of the reachable devices, published by the {@link RoutingTable}
+ * after each batch of changes so that readers never contend with routing.
+ */
+public final class TopologySnapshot {
+
+    static final TopologySnapshot EMPTY = new TopologySnapshot(
+            Collections.<MeshDevice>emptyList(),
+            Collections.<String, List<String>>emptyMap(), 0);
+
+    private final List<MeshDevice> devices;
+    private final Map<String, List<String>> nextHops;
+    private final long createdAt;
+
+    TopologySnapshot(List<MeshDevice> devices, Map<String, List<String>> nextHops, long createdAt) {
+        this.devices = Collections.unmodifiableList(devices);
+        this.nextHops = Collections.unmodifiableMap(nextHops);
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * @return Copies of all reachable devices at the time of the snapshot
+     */
+    public List<MeshDevice> getDevices() {
+        return devices;
+    }
+
+    /**
+     * @param uuid UUID of a reachable device
+     * @return Neighbours via which the device can be reached, best link first
+     */
+    public List<String> getNextHops(String uuid) {
+        List<String> hops = nextHops.get(uuid);
+        return hops == null ? Collections.<String>emptyList() : hops;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    static TopologySnapshot of(RoutingTable routingTable, Iterable<Route> routes, long createdAt) {
+        final Map<String, RemoteDevice> vias = new HashMap<>();
+        // devices may be purged concurrently, so each is looked up only once
+        Map<String, RemoteDevice> targets = new HashMap<>();
+        Map<String, List<String>> nextHops = new HashMap<>();
+        for (Route route : routes) {
+            RemoteDevice viaDevice = routingTable.get(route.getViaDevice());
+            RemoteDevice toDevice = routingTable.get(route.getToDevice());
+            if (viaDevice == null || toDevice == null) {
+                continue;
+            }
+            vias.put(viaDevice.getUuid(), viaDevice);
+            targets.put(route.getToDevice(), toDevice);
+            List<String> hops = nextHops.get(route.getToDevice());
+            if (hops == null) {
+                hops = new ArrayList<>();
+                nextHops.put(route.getToDevice(), hops);
+            }
+            hops.add(route.getViaDevice());
+        }
+        List<MeshDevice> devices = new ArrayList<>(nextHops.size());
+        for (Map.Entry<String, List<String>> entry : nextHops.entrySet()) {
+            Collections.sort(entry.getValue(), new Comparator<String>() {
+                @Override
+                public int compare(String a, String b) {
+                    return Float.compare(vias.get(b).getTq(), vias.get(a).getTq());
+                }
+            });
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            devices.add(targets.get(entry.getKey()).getMeshDevice().copy());
+        }
+        return new TopologySnapshot(devices, nextHops, createdAt);
+    }
+}
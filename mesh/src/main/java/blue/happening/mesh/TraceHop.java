@@ -0,0 +1,51 @@
+package blue.happening.mesh;
+
+public class TraceHop implements Comparable<TraceHop> {
+
+    private final String uuid;
+    private final int index;
+    private final float tq;
+    private final long rtt;
+
+    TraceHop(String uuid, int index, float tq, long rtt) {
+        this.uuid = uuid;
+        this.index = index;
+        this.tq = tq;
+        this.rtt = rtt;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    /**
+     * @return Number of hops between the tracing device and this hop
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return Quality of the link via which this hop received the trace
+     */
+    public float getTq() {
+        return tq;
+    }
+
+    /**
+     * @return Round trip time from the tracing device to this hop in milliseconds
+     */
+    public long getRtt() {
+        return rtt;
+    }
+
+    @Override
+    public int compareTo(TraceHop other) {
+        return Integer.compare(index, other.index);
+    }
+
+    @Override
+    public String toString() {
+        return index + ": " + uuid + ", TQ: " + tq + ", RTT: " + rtt + "ms";
+    }
+}
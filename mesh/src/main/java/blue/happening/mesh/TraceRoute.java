@@ -0,0 +1,53 @@
+package blue.happening.mesh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a traceroute. Hops are filled in asynchronously as their replies
+ * arrive at the tracing device.
+ */
+public class TraceRoute {
+
+    private final String destination;
+    private final List<TraceHop> hops;
+    private boolean complete;
+
+    TraceRoute(String destination) {
+        this.destination = destination;
+        this.hops = new ArrayList<>();
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    /**
+     * @return Hops that answered so far, ordered by their distance
+     */
+    public synchronized List<TraceHop> getHops() {
+        List<TraceHop> copy = new ArrayList<>(hops);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    /**
+     * @return Whether the destination itself has answered
+     */
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    synchronized void addHop(TraceHop hop) {
+        hops.add(hop);
+        if (hop.getUuid().equals(destination)) {
+            complete = true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Trace to " + destination + (isComplete() ? "" : " (incomplete)") + ": " + getHops();
+    }
+}
@@ -0,0 +1,89 @@
+package blue.happening.mesh.statistics;
+
+/**
+ * Histogram of round trip times with logarithmic buckets. Bucket {@code i}
+ * counts samples below {@code 2^i} milliseconds, the last bucket also collects
+ * everything beyond.
+ */
+public class RttHistogram {
+
+    public static final int BUCKET_COUNT = 18;
+
+    private final long[] buckets;
+    private long count;
+    private long sum;
+    private long min;
+    private long max;
+
+    public RttHistogram() {
+        buckets = new long[BUCKET_COUNT];
+        min = Long.MAX_VALUE;
+    }
+
+    public synchronized void record(long rttMillis) {
+        rttMillis = Math.max(0, rttMillis);
+        int bucket = 64 - Long.numberOfLeadingZeros(rttMillis);
+        buckets[Math.min(bucket, BUCKET_COUNT - 1)]++;
+        count++;
+        sum += rttMillis;
+        min = Math.min(min, rttMillis);
+        max = Math.max(max, rttMillis);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100
+     * @return Upper bound of the bucket containing the given percentile,
+     * capped by the largest recorded sample
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(max, (1L << i) - 1);
+            }
+        }
+        return max;
+    }
+
+    public synchronized long[] getBuckets() {
+        return buckets.clone();
+    }
+
+    public synchronized RttHistogram copy() {
+        RttHistogram histogram = new RttHistogram();
+        System.arraycopy(buckets, 0, histogram.buckets, 0, BUCKET_COUNT);
+        histogram.count = count;
+        histogram.sum = sum;
+        histogram.min = min;
+        histogram.max = max;
+        return histogram;
+    }
+
+    @Override
+    public String toString() {
+        return "n=" + getCount() + ", min=" + getMin() + "ms, mean=" + Math.round(getMean())
+                + "ms, p50<=" + getPercentile(50) + "ms, p99<=" + getPercentile(99)
+                + "ms, max=" + getMax() + "ms";
+    }
+}
@@ -0,0 +1,84 @@
+package blue.happening.mesh;
+
+import junit.framework.TestCase;
+
+
+public class LinkLossTest extends TestCase {
+
+    private static final long OGM_MILLIS = MeshHandler.OGM_INTERVAL * 1000L;
+
+    private TestMesh mesh;
+    private TestMesh.Node a;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        mesh = new TestMesh();
+        a = mesh.add("device_a");
+        mesh.add("device_b");
+        mesh.connect("device_a", "device_b");
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        mesh = null;
+    }
+
+    public void testEchoResetsUnansweredOgms() {
+        RemoteDevice remoteDevice = a.handler.getRoutingTable().get("device_b");
+        for (int i = 0; i < MeshHandler.LINK_LOSS_OGMS; i++) {
+            remoteDevice.countOgm();
+        }
+        assertFalse(remoteDevice.isLinkLost());
+        remoteDevice.countOgm();
+        assertTrue(remoteDevice.isLinkLost());
+        remoteDevice.countEcho();
+        assertFalse(remoteDevice.isLinkLost());
+    }
+
+    public void testSuccessfulSendResetsSendFailures() {
+        RemoteDevice remoteDevice = a.handler.getRoutingTable().get("device_b");
+        for (int i = 1; i < MeshHandler.LINK_LOSS_SEND_FAILURES; i++) {
+            remoteDevice.countSend(false);
+        }
+        assertFalse(remoteDevice.isLinkLost());
+        remoteDevice.countSend(false);
+        assertTrue(remoteDevice.isLinkLost());
+        remoteDevice.countSend(true);
+        assertFalse(remoteDevice.isLinkLost());
+    }
+
+    public void testEchoedNeighbourIsKept() {
+        mesh.advance(10 * OGM_MILLIS);
+        assertTrue(a.knows("device_b"));
+    }
+
+    public void testNeighbourIsLostAfterUnansweredOgms() {
+        mesh.setLossy("device_b", "device_a", true);
+        // at most LINK_LOSS_OGMS + 1 OGMs, the last of which finds the link lost
+        mesh.advance(1000 + MeshHandler.LINK_LOSS_OGMS * OGM_MILLIS);
+        assertTrue(a.knows("device_b"));
+        mesh.advance(OGM_MILLIS);
+        assertFalse(a.knows("device_b"));
+    }
+
+    public void testNeighbourIsLostAfterSendFailures() {
+        mesh.setFailing("device_a", "device_b", true);
+        // nothing arrives from device_b either, which would restore it
+        mesh.setLossy("device_b", "device_a", true);
+        // a single OGM fails to be sent
+        mesh.advance(1000);
+        assertTrue(a.knows("device_b"));
+        mesh.advance((MeshHandler.LINK_LOSS_SEND_FAILURES - 1) * OGM_MILLIS);
+        assertFalse(a.knows("device_b"));
+    }
+
+    public void testLostNeighbourIsRestoredByNextMessage() {
+        mesh.setLossy("device_b", "device_a", true);
+        mesh.advance(1000 + (MeshHandler.LINK_LOSS_OGMS + 1) * OGM_MILLIS);
+        assertFalse(a.knows("device_b"));
+
+        mesh.setLossy("device_b", "device_a", false);
+        mesh.advance(OGM_MILLIS);
+        assertTrue(a.knows("device_b"));
+    }
+}
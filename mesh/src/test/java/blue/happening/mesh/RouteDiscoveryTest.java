@@ -0,0 +1,69 @@
+package blue.happening.mesh;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+
+public class RouteDiscoveryTest extends TestCase {
+
+    private static final byte[] PAYLOAD = "hello".getBytes();
+
+    private int routeRequestTtl;
+    private TestMesh mesh;
+    private TestMesh.Node a;
+    private TestMesh.Node c;
+    private TestMesh.Node d;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        routeRequestTtl = MeshHandler.ROUTE_REQUEST_TTL;
+        mesh = new TestMesh();
+        a = mesh.add("device_a");
+        mesh.add("device_b");
+        c = mesh.add("device_c");
+        d = mesh.add("device_d");
+        mesh.line("device_a", "device_b", "device_c", "device_d");
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        MeshHandler.ROUTE_REQUEST_TTL = routeRequestTtl;
+        mesh = null;
+    }
+
+    public void testFirstMessageIsDeliveredAfterDiscovery() {
+        assertFalse(a.knows("device_d"));
+        assertTrue(a.handler.sendMessage(PAYLOAD, "device_d"));
+        mesh.deliver();
+
+        assertTrue(a.knows("device_d"));
+        assertTrue(d.knows("device_a"));
+        assertEquals(1, d.received.size());
+        assertTrue(Arrays.equals(PAYLOAD, d.received.get(0)));
+    }
+
+    public void testRouteRequestStaysWithinTtl() {
+        MeshHandler.ROUTE_REQUEST_TTL = 2;
+        a.handler.sendMessage(PAYLOAD, "device_d");
+        mesh.deliver();
+
+        assertTrue(c.hasArrived(MeshHandler.MESSAGE_TYPE_ROUTE_REQUEST));
+        assertFalse(d.hasArrived(MeshHandler.MESSAGE_TYPE_ROUTE_REQUEST));
+        assertFalse(a.knows("device_d"));
+        assertTrue(d.received.isEmpty());
+    }
+
+    public void testQueuedMessageIsLoggedAsDroppedOnTimeout() {
+        assertTrue(a.handler.sendMessage(PAYLOAD, "device_x"));
+        mesh.advance((MeshHandler.ROUTE_DISCOVERY_TIMEOUT + 2) * 1000L);
+
+        boolean dropped = false;
+        for (Message message : a.dropped) {
+            dropped |= message.getType() == MeshHandler.MESSAGE_TYPE_UCM
+                    && message.getDestination().equals("device_x")
+                    && Arrays.equals(PAYLOAD, message.getBody());
+        }
+        assertTrue(dropped);
+    }
+}
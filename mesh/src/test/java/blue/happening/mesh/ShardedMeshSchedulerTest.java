@@ -0,0 +1,104 @@
+package blue.happening.mesh;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+
+public class ShardedMeshSchedulerTest extends TestCase {
+
+    private ShardedMeshScheduler scheduler;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        scheduler = new ShardedMeshScheduler(4, 5);
+    }
+
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        scheduler.shutdown();
+        scheduler = null;
+    }
+
+    public void testNodeIsAlwaysServedBySameShard() {
+        assertSame(scheduler.getExecutor("device_1"), scheduler.getExecutor("device_1"));
+    }
+
+    public void testPeriodicTasksRunOnNodeShard() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final Thread[] threads = new Thread[1];
+        scheduler.execute("device_1", new Runnable() {
+            @Override
+            public void run() {
+                threads[0] = Thread.currentThread();
+            }
+        });
+        scheduler.scheduleAtFixedRate("device_1", new Runnable() {
+            @Override
+            public void run() {
+                if (Thread.currentThread() == threads[0]) {
+                    latch.countDown();
+                }
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+    }
+
+    public void testErrorOfOneTaskDoesNotStopShard() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        scheduler.scheduleAtFixedRate("device_1", new Runnable() {
+            @Override
+            public void run() {
+                throw new AssertionError("failing task");
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate("device_1", new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+    }
+
+    public void testPeriodMustBeMultipleOfTick() {
+        try {
+            scheduler.scheduleAtFixedRate("device_1", new Runnable() {
+                @Override
+                public void run() {
+                }
+            }, 0, 12, TimeUnit.MILLISECONDS);
+            fail("Period of 12 ms accepted with a 5 ms tick");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testGateHoldsShard() throws Exception {
+        final CountDownLatch open = new CountDownLatch(1);
+        final CountDownLatch ran = new CountDownLatch(1);
+        ShardedMeshScheduler gated = new ShardedMeshScheduler(1, 5, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    open.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        try {
+            gated.execute("device_1", new Runnable() {
+                @Override
+                public void run() {
+                    ran.countDown();
+                }
+            });
+            assertFalse(ran.await(50, TimeUnit.MILLISECONDS));
+            open.countDown();
+            assertTrue(ran.await(2, TimeUnit.SECONDS));
+        } finally {
+            gated.shutdown();
+        }
+    }
+}
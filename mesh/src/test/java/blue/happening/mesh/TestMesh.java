@@ -0,0 +1,238 @@
+package blue.happening.mesh;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import blue.happening.mesh.statistics.StatsResult;
+
+/**
+ * In-memory mesh of {@link MeshHandler}s on a clock which only moves when a
+ * test advances it. Frames and deferred work are queued and run by
+ * {@link #deliver()}, so tests decide when the mesh makes progress.
+ */
+class TestMesh implements IMeshScheduler {
+
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+    private final List<Timer> timers = new ArrayList<>();
+    private final Set<String> lossyLinks = new HashSet<>();
+    private final Set<String> failingLinks = new HashSet<>();
+    private long now;
+
+    Node add(String uuid) {
+        Node node = new Node(uuid);
+        nodes.put(uuid, node);
+        return node;
+    }
+
+    /**
+     * Connects the given devices one after another in a line.
+     */
+    void line(String... uuids) {
+        for (int i = 1; i < uuids.length; i++) {
+            connect(uuids[i - 1], uuids[i]);
+        }
+    }
+
+    void connect(String a, String b) {
+        Node nodeA = nodes.get(a);
+        Node nodeB = nodes.get(b);
+        nodeA.getLayerCallback().onDeviceAdded(new Peer(nodeA, nodeB));
+        nodeB.getLayerCallback().onDeviceAdded(new Peer(nodeB, nodeA));
+    }
+
+    /**
+     * Lets frames from one device to another silently get lost.
+     */
+    void setLossy(String from, String to, boolean lossy) {
+        if (lossy) {
+            lossyLinks.add(from + ">" + to);
+        } else {
+            lossyLinks.remove(from + ">" + to);
+        }
+    }
+
+    /**
+     * Lets sending frames from one device to another fail.
+     */
+    void setFailing(String from, String to, boolean failing) {
+        if (failing) {
+            failingLinks.add(from + ">" + to);
+        } else {
+            failingLinks.remove(from + ">" + to);
+        }
+    }
+
+    /**
+     * Runs queued frames and work until the mesh is idle.
+     */
+    void deliver() {
+        Runnable runnable;
+        while ((runnable = pending.poll()) != null) {
+            runnable.run();
+        }
+    }
+
+    /**
+     * Moves the clock forward, running every timer which becomes due and
+     * delivering everything it sends right away.
+     */
+    void advance(long millis) {
+        long end = now + millis;
+        deliver();
+        while (true) {
+            Timer next = null;
+            for (Timer timer : timers) {
+                if (timer.nextRun <= end && (next == null || timer.nextRun < next.nextRun)) {
+                    next = timer;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            now = next.nextRun;
+            next.nextRun += next.period;
+            next.runnable.run();
+            deliver();
+        }
+        now = end;
+    }
+
+    @Override
+    public void scheduleAtFixedRate(String uuid, Runnable runnable, long initialDelay, long period, TimeUnit unit) {
+        timers.add(new Timer(runnable, now + unit.toMillis(initialDelay), unit.toMillis(period)));
+    }
+
+    @Override
+    public void execute(String uuid, Runnable runnable) {
+        pending.offer(runnable);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    private static class Timer {
+
+        private final Runnable runnable;
+        private final long period;
+        private long nextRun;
+
+        Timer(Runnable runnable, long firstRun, long period) {
+            this.runnable = runnable;
+            this.nextRun = firstRun;
+            this.period = period;
+        }
+    }
+
+    private class Peer extends RemoteDevice {
+
+        private final Node from;
+        private final Node to;
+
+        Peer(Node from, Node to) {
+            super(to.uuid);
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean sendMessage(Message message) {
+            String link = from.uuid + ">" + to.uuid;
+            if (failingLinks.contains(link)) {
+                return false;
+            } else if (!lossyLinks.contains(link)) {
+                final byte[] bytes = message.toBytes();
+                pending.offer(new Runnable() {
+                    @Override
+                    public void run() {
+                        to.getLayerCallback().onMessageReceived(bytes);
+                    }
+                });
+            }
+            return true;
+        }
+
+        @Override
+        public boolean remove() {
+            return true;
+        }
+    }
+
+    class Node extends Layer implements IMeshHandlerCallback {
+
+        final String uuid;
+        final MeshHandler handler;
+        final List<byte[]> received = new ArrayList<>();
+        final List<Message> arrived = new ArrayList<>();
+        final List<Message> dropped = new ArrayList<>();
+
+        Node(String uuid) {
+            this.uuid = uuid;
+            handler = new MeshHandler(uuid, TestMesh.this, new Random(uuid.hashCode()));
+            handler.registerCallback(this);
+            handler.registerLayer(this);
+        }
+
+        /**
+         * @return Whether the device is reachable as of the last published
+         * topology snapshot
+         */
+        boolean knows(String uuid) {
+            for (MeshDevice meshDevice : handler.getDevices()) {
+                if (meshDevice.getUuid().equals(uuid)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean hasArrived(int type) {
+            for (Message message : arrived) {
+                if (message.getType() == type) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void onDeviceAdded(MeshDevice meshDevice) {
+        }
+
+        @Override
+        public void onDeviceUpdated(MeshDevice meshDevice) {
+        }
+
+        @Override
+        public void onDeviceRemoved(MeshDevice meshDevice) {
+        }
+
+        @Override
+        public void onMessageReceived(byte[] message, MeshDevice source) {
+            received.add(message);
+        }
+
+        @Override
+        public void onNetworkStatsUpdated(StatsResult networkStats) {
+        }
+
+        @Override
+        public void onMessageLogged(Message message, int action) {
+            if (action == MeshHandler.MESSAGE_ACTION_ARRIVED) {
+                arrived.add(message);
+            } else if (action == MeshHandler.MESSAGE_ACTION_DROPPED) {
+                dropped.add(message);
+            }
+        }
+    }
+}
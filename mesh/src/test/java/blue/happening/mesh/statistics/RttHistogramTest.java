@@ -0,0 +1,32 @@
+package blue.happening.mesh.statistics;
+
+import junit.framework.TestCase;
+
+
+public class RttHistogramTest extends TestCase {
+
+    public void testPercentilesUseBucketUpperBounds() {
+        RttHistogram histogram = new RttHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(10);
+        }
+        histogram.record(1000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(10, histogram.getMin());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(15, histogram.getPercentile(50));
+        assertEquals(15, histogram.getPercentile(99));
+        assertEquals(1000, histogram.getPercentile(100));
+    }
+
+    public void testCopyIsIndependent() {
+        RttHistogram histogram = new RttHistogram();
+        histogram.record(3);
+        RttHistogram copy = histogram.copy();
+        histogram.record(5);
+
+        assertEquals(1, copy.getCount());
+        assertEquals(2, histogram.getCount());
+    }
+}
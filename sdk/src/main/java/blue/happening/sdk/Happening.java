@@ -230,4 +230,66 @@ public class Happening {
         }
     }
 
+    /**
+     * Ping a device. Its round trip time is recorded once the reply arrives.
+     *
+     * @return Whether the device could be found in the routing table
+     */
+    public boolean ping(HappeningClient destination) {
+        try {
+            return service.ping(destination.getUuid());
+        } catch (RemoteException | NullPointerException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Start a traceroute to a device. Its hops are filled in as their replies arrive, see
+     * {@link #getTraceRoute(HappeningClient)}.
+     */
+    public void traceroute(HappeningClient destination) {
+        try {
+            service.traceroute(destination.getUuid());
+        } catch (RemoteException | NullPointerException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return Description of the latest traceroute to the device, or null if there is none
+     */
+    public String getTraceRoute(HappeningClient destination) {
+        try {
+            return service.getTraceRoute(destination.getUuid());
+        } catch (RemoteException | NullPointerException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * @return Summary of the round trip times to the device, or null if it never answered a ping
+     */
+    public String getRttHistogram(HappeningClient destination) {
+        try {
+            return service.getRttHistogram(destination.getUuid());
+        } catch (RemoteException | NullPointerException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Let the service ping and traceroute a few reachable devices in turn every few seconds.
+     * Probing is off by default, as it adds traffic to the mesh.
+     */
+    public void setProbing(boolean probing) {
+        try {
+            service.setProbing(probing);
+        } catch (RemoteException | NullPointerException e) {
+            e.printStackTrace();
+        }
+    }
+
 }
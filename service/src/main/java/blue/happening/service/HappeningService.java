@@ -20,6 +20,7 @@ import blue.happening.mesh.IMeshHandlerCallback;
 import blue.happening.mesh.MeshDevice;
 import blue.happening.mesh.MeshHandler;
 import blue.happening.mesh.Message;
+import blue.happening.mesh.statistics.RttHistogram;
 import blue.happening.mesh.statistics.StatsResult;
 import blue.happening.service.bluetooth.AppPackage;
 import blue.happening.service.bluetooth.Layer;
@@ -103,6 +104,34 @@ public class HappeningService extends Service {
             Intent happening = new Intent(getApplicationContext(), HappeningService.class);
             getApplication().stopService(happening);
         }
+
+        @Override
+        public boolean ping(String uuid) throws RemoteException {
+            Log.v(TAG, "ping " + uuid);
+            return meshHandler.ping(uuid);
+        }
+
+        @Override
+        public void traceroute(String uuid) throws RemoteException {
+            Log.v(TAG, "traceroute " + uuid);
+            statsLogTimer.traceroute(uuid);
+        }
+
+        @Override
+        public String getTraceRoute(String uuid) throws RemoteException {
+            return statsLogTimer.getTraceRoute(uuid);
+        }
+
+        @Override
+        public String getRttHistogram(String uuid) throws RemoteException {
+            RttHistogram histogram = meshHandler.getRttHistogram(uuid);
+            return histogram == null ? null : histogram.toString();
+        }
+
+        @Override
+        public void setProbing(boolean probing) throws RemoteException {
+            statsLogTimer.setProbing(probing);
+        }
     };
 
     /**
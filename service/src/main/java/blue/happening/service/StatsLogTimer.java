@@ -2,11 +2,19 @@ package blue.happening.service;
 
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 
+import blue.happening.mesh.MeshDevice;
 import blue.happening.mesh.MeshHandler;
+import blue.happening.mesh.TraceRoute;
 import blue.happening.service.bluetooth.Layer;
 
 /**
@@ -27,13 +35,19 @@ public class StatsLogTimer {
 
     private String TAG = "__________" + getClass().getSimpleName();
     private boolean d = true;
+    // pings and traceroutes reachable devices, off unless enabled via setProbing
+    private volatile boolean probe = false;
 
     private MeshHandler meshHandler;
     private Layer layer;
 
     private static final int RATE = 5000;
+    // devices probed per run, well below MeshHandler.MAX_PENDING_TRACES
+    private static final int PROBES_PER_RUN = 2;
     private Timer timer;
     private TimerTask timerTask;
+    private Map<String, TraceRoute> traceRoutes = new ConcurrentHashMap<>();
+    private int probeCursor;
 
     StatsLogTimer(MeshHandler meshHandler, Layer layer){
         if (d) Log.d(TAG, "StatsLogTimer: ");
@@ -50,11 +64,62 @@ public class StatsLogTimer {
                 if (d) Log.d(TAG, "meshHandler.getDevices().size()   " + meshHandler.getDevices().size());
                 if (d) Log.d(TAG, "layer.getNumOfConnectedDevices()  " + layer.getNumOfConnectedDevices());
                 if (d) Log.d(TAG, "layer.getScannedDevices().size()  " + layer.getScannedDevices().size());
+                if (probe) probeDevices();
             }
         };
         timer.scheduleAtFixedRate(timerTask, RATE, RATE);
     }
 
+    /**
+     * Probes the next few reachable devices in turn, so that every device is
+     * probed once every few runs without flooding the mesh.
+     */
+    private void probeDevices(){
+        List<MeshDevice> devices = new ArrayList<>(meshHandler.getDevices());
+        Set<String> reachable = new HashSet<>();
+        for (MeshDevice meshDevice : devices) {
+            reachable.add(meshDevice.getUuid());
+        }
+        traceRoutes.keySet().retainAll(reachable);
+        for (int i = 0; i < Math.min(PROBES_PER_RUN, devices.size()); i++) {
+            probeCursor = (probeCursor + 1) % devices.size();
+            String uuid = devices.get(probeCursor).getUuid();
+            Log.d(TAG, "rtt " + uuid + "  " + meshHandler.getRttHistogram(uuid));
+            TraceRoute traceRoute = traceRoutes.get(uuid);
+            if (traceRoute != null) {
+                Log.d(TAG, traceRoute.toString());
+            }
+            meshHandler.ping(uuid);
+            traceroute(uuid);
+        }
+    }
+
+    void setProbing(boolean probe) {
+        if (d) Log.d(TAG, "setProbing: " + probe);
+        this.probe = probe;
+    }
+
+    /**
+     * Starts a traceroute whose hops can be read via {@link #getTraceRoute(String)}.
+     *
+     * @return Whether the device could be found in the routing table
+     */
+    boolean traceroute(String uuid) {
+        TraceRoute traceRoute = meshHandler.traceroute(uuid);
+        if (traceRoute != null) {
+            traceRoutes.put(uuid, traceRoute);
+        }
+        return traceRoute != null;
+    }
+
+    /**
+     * @return Latest traceroute to the device, or null if there is none
+     */
+    String getTraceRoute(String uuid) {
+        TraceRoute traceRoute = traceRoutes.get(uuid);
+        return traceRoute == null ? null : traceRoute.toString();
+    }
+
     void stop(){
         if (d) Log.d(TAG, "stop: ");
         timerTask.cancel();
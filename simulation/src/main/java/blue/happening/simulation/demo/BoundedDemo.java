@@ -27,7 +27,8 @@ import blue.happening.simulation.graph.internal.StringStringNetworkGraph;
 import blue.happening.simulation.mobility.MobilityPattern;
 import blue.happening.simulation.mobility.RandomDSMobilityPattern;
 import blue.happening.simulation.mobility.RectangularBoundary;
-import blue.happening.simulation.visualization.NOOPAction;
+import blue.happening.simulation.visualization.PacingAction;
+import blue.happening.simulation.visualization.PacingController;
 import blue.happening.simulation.visualization.SimpleVisualizerFrame;
 import blue.happening.simulation.visualization.SimpleVisualizerPanel;
 import jsl.modeling.Replication;
@@ -86,8 +87,8 @@ public class BoundedDemo {
         @SuppressWarnings("unused")
         SimpleVisualizerPanel<String, String> panel = frame.getVisualizerPanel();
 
-        // introduce noop events to slow down simulation
-        new NOOPAction(graph, 1, 10);
+        // run at 100 time units per second so the simulation can be watched
+        new PacingAction(graph, new PacingController(100));
 
         // create replication
         Replication replication = new Replication(graph.getModel());
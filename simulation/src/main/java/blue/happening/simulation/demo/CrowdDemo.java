@@ -21,7 +21,7 @@ public class CrowdDemo extends HappeningDemo {
 
     @Override
     MeshGraph createGraph(String ignored) {
-        final MeshGraph graph = new MeshGraph(noopInterval, noopSleep);
+        final MeshGraph graph = new MeshGraph();
         final double frameHeight = getFrame().getContentPane().getHeight();
         final double frameWidth = getFrame().getContentPane().getWidth() / 2;
         final int root = (int) Math.ceil(Math.sqrt(deviceCount));
@@ -35,7 +35,7 @@ public class CrowdDemo extends HappeningDemo {
         for (int i = 0; i < root; i++) {
             for (int j = 0; j < root; j++) {
                 if (deviceIndex < deviceCount) {
-                    Device device = new Device("device_" + deviceIndex, HappeningDemo.getRunner(), messageDelay, messageLoss);
+                    Device device = new Device("device_" + deviceIndex, HappeningDemo.getScheduler(), messageDelay, messageLoss);
                     double sx = horizontalPadding + (i * horizontalStep);
                     double sy = verticalPadding + (j * verticalStep);
                     MobilityPattern<Device, Connection> pattern = new RandomDSMobilityPattern<>(bound, 0.25D, 0.75D);
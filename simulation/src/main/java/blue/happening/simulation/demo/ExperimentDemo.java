@@ -22,16 +22,23 @@
 package blue.happening.simulation.demo;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 import blue.happening.simulation.graph.internal.StringStringNetworkGraph;
+import blue.happening.simulation.headless.ExperimentExecutor;
 import blue.happening.simulation.mobility.MobilityPattern;
 import blue.happening.simulation.mobility.RandomDSMobilityPattern;
 import blue.happening.simulation.mobility.RectangularBoundary;
 import blue.happening.simulation.statistic.EdgeCountStatistician;
 import blue.happening.simulation.statistic.EdgeCreationRateStatistician;
 import blue.happening.simulation.statistic.EdgeDurationStatistician;
+import blue.happening.simulation.statistic.ReplicationStoppingRule;
 import jsl.modeling.Experiment;
+import jsl.utilities.statistic.Statistic;
 
 
 /**
@@ -45,7 +52,8 @@ import jsl.modeling.Experiment;
  */
 public class ExperimentDemo {
 
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws IOException, InterruptedException,
+            ExecutionException {
         /*
          * Enable one of these. Each varies a differnt variables: the number of
 		 * vertices, the speed, the radii, the arena size, and all of the above.
@@ -65,7 +73,7 @@ public class ExperimentDemo {
         final double width = 10000;
         final double height = 10000;
         final double replicationLength = 1000;
-        final int nReplications = 10;
+        final ReplicationStoppingRule replications = new ReplicationStoppingRule(3, 30, 0.05, 0.95);
 
         // write simulation parameters to file
         System.out.println("# speed \t= " + speed);
@@ -74,24 +82,23 @@ public class ExperimentDemo {
         System.out.println("# height \t= " + height);
         System.out.println("#");
         System.out.println("# Replication Length \t\t= " + replicationLength);
-        System.out.println("# Number of Replications \t= " + nReplications);
+        System.out.println("# Number of Replications \t= " + replications);
         System.out.println("#");
-        System.out.println("# vertices,edge count,edge rate,edge duration");
+        System.out.println("# vertices,edge count,edge rate,edge duration,replications");
 
         for (int vertices = 1; vertices <= 100; vertices += 1) {
 
             ManetExperiment experiment1 = new ManetExperiment(vertices, radius,
                     radius, speed, speed, width, height);
             experiment1.setLengthOfReplication(replicationLength);
-            experiment1.setNumberOfReplications(nReplications);
-            experiment1.runAll();
+            final int n = experiment1.runAll(replications);
 
             final double edgeCount = experiment1.getAverageEdgeCount();
             final double edgeRate = experiment1.getAverageEdgeRate();
             final double edgeDuration = experiment1.getAverageEdgeDuration();
 
             System.out.println(
-                    vertices + "," + edgeCount + "," + edgeRate + "," + edgeDuration);
+                    vertices + "," + edgeCount + "," + edgeRate + "," + edgeDuration + "," + n);
         }
     }
 
@@ -103,7 +110,7 @@ public class ExperimentDemo {
         final double width = 10000;
         final double height = 10000;
         final double replicationLength = 1000;
-        final int nReplications = 10;
+        final ReplicationStoppingRule replications = new ReplicationStoppingRule(3, 30, 0.05, 0.95);
 
         // write simulation parameters to file
         System.out.println("# vertices \t= " + vertices);
@@ -112,9 +119,9 @@ public class ExperimentDemo {
         System.out.println("# height \t= " + height);
         System.out.println("#");
         System.out.println("# Replication Length \t\t= " + replicationLength);
-        System.out.println("# Number of Replications \t= " + nReplications);
+        System.out.println("# Number of Replications \t= " + replications);
         System.out.println("#");
-        System.out.println("# speed,edge count,edge rate,edge duration");
+        System.out.println("# speed,edge count,edge rate,edge duration,replications");
 
         for (int speed = 1; speed <= 100; speed += 1) {
 
@@ -122,15 +129,14 @@ public class ExperimentDemo {
                     speed, speed, width, height);
 
             experiment.setLengthOfReplication(replicationLength);
-            experiment.setNumberOfReplications(nReplications);
-            experiment.runAll();
+            final int n = experiment.runAll(replications);
 
             final double edgeCount = experiment.getAverageEdgeCount();
             final double edgeRate = experiment.getAverageEdgeRate();
             final double edgeDuration = experiment.getAverageEdgeDuration();
 
             System.out.println(
-                    speed + "," + edgeCount + "," + edgeRate + "," + edgeDuration);
+                    speed + "," + edgeCount + "," + edgeRate + "," + edgeDuration + "," + n);
         }
     }
 
@@ -142,7 +148,7 @@ public class ExperimentDemo {
         final double width = 10000;
         final double height = 10000;
         final double replicationLength = 1000;
-        final int nReplications = 10;
+        final ReplicationStoppingRule replications = new ReplicationStoppingRule(3, 30, 0.05, 0.95);
 
         // write simulation parameters to file
         System.out.println("# vertices \t= " + vertices);
@@ -151,24 +157,23 @@ public class ExperimentDemo {
         System.out.println("# height \t= " + height);
         System.out.println("#");
         System.out.println("# Replication Length \t\t= " + replicationLength);
-        System.out.println("# Number of Replications \t= " + nReplications);
+        System.out.println("# Number of Replications \t= " + replications);
         System.out.println("#");
-        System.out.println("# radius,edge count,edge rate,edge duration");
+        System.out.println("# radius,edge count,edge rate,edge duration,replications");
 
         for (int radius = 1; radius <= 100; radius += 1) {
 
             ManetExperiment experiment1 = new ManetExperiment(vertices, radius,
                     radius, speed, speed, width, height);
             experiment1.setLengthOfReplication(replicationLength);
-            experiment1.setNumberOfReplications(nReplications);
-            experiment1.runAll();
+            final int n = experiment1.runAll(replications);
 
             final double edgeCount = experiment1.getAverageEdgeCount();
             final double edgeRate = experiment1.getAverageEdgeRate();
             final double edgeDuration = experiment1.getAverageEdgeDuration();
 
             System.out.println(
-                    radius + "," + edgeCount + "," + edgeRate + "," + edgeDuration);
+                    radius + "," + edgeCount + "," + edgeRate + "," + edgeDuration + "," + n);
         }
     }
 
@@ -179,7 +184,7 @@ public class ExperimentDemo {
         final double speed = 10;
         final double radius = 10;
         final double replicationLength = 1000;
-        final int nReplications = 10;
+        final ReplicationStoppingRule replications = new ReplicationStoppingRule(3, 30, 0.05, 0.95);
 
         // write simulation parameters to file
         System.out.println("# vertices \t= " + vertices);
@@ -187,28 +192,27 @@ public class ExperimentDemo {
         System.out.println("# radius \t= " + radius);
         System.out.println("#");
         System.out.println("# Replication Length \t\t= " + replicationLength);
-        System.out.println("# Number of Replications \t= " + nReplications);
+        System.out.println("# Number of Replications \t= " + replications);
         System.out.println("#");
-        System.out.println("# width (and height),edge count,edge rate,edge duration");
+        System.out.println("# width (and height),edge count,edge rate,edge duration,replications");
 
         for (int width = 10; width <= 1000; width += 10) {
 
             ManetExperiment experiment1 = new ManetExperiment(vertices, radius,
                     radius, speed, speed, width, width);
             experiment1.setLengthOfReplication(replicationLength);
-            experiment1.setNumberOfReplications(nReplications);
-            experiment1.runAll();
+            final int n = experiment1.runAll(replications);
 
             final double edgeCount = experiment1.getAverageEdgeCount();
             final double edgeRate = experiment1.getAverageEdgeRate();
             final double edgeDuration = experiment1.getAverageEdgeDuration();
 
             System.out.println(
-                    width + "," + edgeCount + "," + edgeRate + "," + edgeDuration);
+                    width + "," + edgeCount + "," + edgeRate + "," + edgeDuration + "," + n);
         }
     }
 
-    public static void varyingEverything() {
+    public static void varyingEverything() throws InterruptedException, ExecutionException {
 
         // fixed simulation parameters
         // final int vertices = 10;
@@ -216,46 +220,86 @@ public class ExperimentDemo {
         // final double width = 10000;
         // final double height = 10000;
         final double replicationLength = 1000;
-        final int nReplications = 10;
+        final ReplicationStoppingRule replications = new ReplicationStoppingRule(3, 30, 0.05, 0.95);
+        final long seed = 1;
+        final int parallelism = Runtime.getRuntime().availableProcessors();
 
         // write simulation parameters to file
 
         final long startTime = System.currentTimeMillis();
         System.out.println("#");
         System.out.println("# Replication Length \t\t= " + replicationLength);
-        System.out.println("# Number of Replications \t= " + nReplications);
+        System.out.println("# Number of Replications \t= " + replications);
+        System.out.println("# Seed \t\t\t\t= " + seed);
+        System.out.println("# Parallelism \t\t\t= " + parallelism);
         System.out.println("#");
-        System.out.println("# vertices, radius, speed, width, edge count,edge rate,edge duration");
+        System.out.println("# vertices, radius, speed, width, edge count,edge count half-width,"
+                + "edge rate,edge rate half-width,edge duration,edge duration half-width,replications");
 
+        // every point and replication is independent, so they all run concurrently
+        final List<double[]> points = new ArrayList<>();
         for (int vertices = 100; vertices >= 10; vertices -= 10) {
             for (int radius = 100; radius >= 100; radius -= 10) {
                 for (double speed = 100; speed >= 10; speed -= 10) {
                     for (double width = 1000; width >= 100; width -= 100) {
-
-                        ManetExperiment experiment = new ManetExperiment(vertices, radius,
-                                radius, speed, speed, width, width);
-
-                        experiment.setLengthOfReplication(replicationLength);
-                        experiment.setNumberOfReplications(nReplications);
-                        experiment.runAll();
-
-                        final double edgeCount = experiment.getAverageEdgeCount();
-                        final double edgeRate = experiment.getAverageEdgeRate();
-                        final double edgeDuration = experiment.getAverageEdgeDuration();
-
-                        System.out.println(
-                                vertices + "," + radius + "," + speed + "," + width + ","
-                                        + edgeCount + "," + edgeRate + "," + edgeDuration);
+                        points.add(new double[]{vertices, radius, radius, speed, speed, width,
+                                width, replicationLength});
                     }
                 }
             }
         }
 
+        final List<ExperimentExecutor.PointResult> results = new ExperimentExecutor(parallelism).run(
+                ManetExperimentTask.class, points, replications, new int[]{0, 1, 2}, seed);
+
+        for (int i = 0; i < points.size(); i++) {
+            final double[] point = points.get(i);
+            final ExperimentExecutor.PointResult result = results.get(i);
+            final StringBuilder row = new StringBuilder();
+            row.append((int) point[0]).append(',').append((int) point[1]).append(',')
+                    .append(point[3]).append(',').append(point[5]);
+            for (int metric = 0; metric < 3; metric++) {
+                final Statistic statistic = result.getStatistic(metric);
+                row.append(',').append(statistic.getAverage()).append(',').append(statistic.getHalfWidth());
+            }
+            row.append(',').append(result.getReplications());
+            System.out.println(row);
+        }
+
         final long endTime = System.currentTimeMillis();
         final float runtime = (endTime - startTime) / 1000;
         System.out.println("# Runtime: " + runtime + " seconds");
     }
 
+    /**
+     * Runs a single replication of a {@code ManetExperiment} for
+     * {@link ExperimentExecutor}. The parameters are the number of vertices,
+     * TX radius, RX radius, minimum speed, maximum speed, width, height and
+     * replication length. Returns edge count, edge rate and edge duration.
+     */
+    public static class ManetExperimentTask implements Callable<double[]> {
+
+        private final double[] parameters;
+        private final long seed;
+
+        public ManetExperimentTask(final double[] parameters, final long seed) {
+            this.parameters = parameters;
+            this.seed = seed;
+        }
+
+        @Override
+        public double[] call() {
+            final ManetExperiment experiment = new ManetExperiment((int) parameters[0],
+                    parameters[1], parameters[2], parameters[3], parameters[4],
+                    parameters[5], parameters[6], new Random(seed));
+            experiment.setLengthOfReplication(parameters[7]);
+            experiment.setNumberOfReplications(1);
+            experiment.runAll();
+            return new double[]{experiment.getAverageEdgeCount(),
+                    experiment.getAverageEdgeRate(), experiment.getAverageEdgeDuration()};
+        }
+    }
+
     private static class ManetExperiment extends Experiment {
 
         private final EdgeCountStatistician<String, String> edgeCount;
@@ -265,14 +309,20 @@ public class ExperimentDemo {
         public ManetExperiment(final int nVertices, final double txRadius,
                                final double rxRadius, final double speedMin, final double speedMax,
                                final double width, final double height) {
+            this(nVertices, txRadius, rxRadius, speedMin, speedMax, width, height, new Random());
+        }
+
+        public ManetExperiment(final int nVertices, final double txRadius,
+                               final double rxRadius, final double speedMin, final double speedMax,
+                               final double width, final double height, final Random random) {
 
             super();
 
             final StringStringNetworkGraph graph = new StringStringNetworkGraph(getModel());
 
             final RectangularBoundary<String, String> bound = new RectangularBoundary<>(0, 0, width, height);
-            MobilityPattern<String, String> pattern = new RandomDSMobilityPattern<>(bound, speedMin, speedMax);
-            final Random random = new Random();
+            MobilityPattern<String, String> pattern = new RandomDSMobilityPattern<>(bound, speedMin,
+                    speedMax, random);
             for (int i = 0; i < nVertices; i++) {
                 final double initialX = bound.getX() + (random.nextDouble() * (bound.getWidth()));
                 final double initialY = bound.getY() + (random.nextDouble() * (bound.getHeight()));
@@ -288,6 +338,29 @@ public class ExperimentDemo {
             setSaveReplicationStatisticOption(true);
         }
 
+        /**
+         * Runs replications until {@code rule} is satisfied by the edge
+         * count, edge rate and edge duration.
+         *
+         * @return number of replications run
+         */
+        public int runAll(final ReplicationStoppingRule rule) {
+            setNumberOfReplications(rule.getMaxReplications());
+            initialize();
+            int replications = 0;
+            while (hasNext()) {
+                runNext();
+                replications++;
+                if (rule.isDone(replications, edgeCount.getAcrossReplicationStatistic(),
+                        edgeRate.getAcrossReplicationStatistic(),
+                        edgeDuration.getAcrossReplicationStatistic())) {
+                    break;
+                }
+            }
+            end();
+            return replications;
+        }
+
         public double getAverageEdgeCount() {
             return edgeCount.getAcrossReplicationAverageEdgeCount();
         }
@@ -3,15 +3,16 @@ package blue.happening.simulation.demo;
 import java.util.Observable;
 import java.util.Observer;
 import java.util.Random;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 import blue.happening.mesh.MeshHandler;
+import blue.happening.mesh.ShardedMeshScheduler;
 import blue.happening.simulation.entities.Connection;
 import blue.happening.simulation.entities.Device;
 import blue.happening.simulation.graph.MeshGraph;
 import blue.happening.simulation.visualization.MeshVisualizerFrame;
+import blue.happening.simulation.visualization.PacingAction;
+import blue.happening.simulation.visualization.PacingController;
+import blue.happening.simulation.visualization.listener.DeviceObserver;
 import jsl.modeling.IterativeProcess;
 import jsl.modeling.Replication;
 import jsl.modeling.conditions.ConditionIfc;
@@ -26,17 +27,22 @@ public abstract class HappeningDemo {
     float messageLoss;
     double txRadius;
     double rxRadius;
-    double noopInterval;
-    long noopSleep;
+    // set -Dsimulation.seed to replay the same patterns and crowd sizes
+    final Random random = Long.getLong("simulation.seed") != null
+            ? new Random(Long.getLong("simulation.seed")) : new Random();
 
-    private static ScheduledExecutorService runner;
+    // set -Dsimulation.speed to a number of time units per second, or to max
+    private static final PacingController pacing = new PacingController(
+            "max".equals(System.getProperty("simulation.speed")) ? PacingController.MAX_SPEED
+                    : Double.parseDouble(System.getProperty("simulation.speed", "20")));
+
+    private static ShardedMeshScheduler scheduler;
     private static MeshGraph graph;
     private static MeshVisualizerFrame frame;
     private static String pattern = "random_crowd";
     private static String[] patternKeys;
 
     private static boolean loop;
-    private static boolean pause;
     private static boolean interrupt;
 
     HappeningDemo() {
@@ -57,29 +63,29 @@ public abstract class HappeningDemo {
         this.messageLoss = 0.1F;
         this.txRadius = 100D;
         this.rxRadius = 100D;
-        this.noopInterval = 1D;
-        this.noopSleep = 50L;
     }
 
     abstract MeshGraph createGraph(String patternKey);
 
     abstract String[] createPatternKeys();
 
-    ScheduledExecutorService createRunner() {
-        ScheduledExecutorService runner = Executors.newSingleThreadScheduledExecutor();
-        runner.scheduleAtFixedRate(new Runnable() {
+    /**
+     * @return Scheduler running the mesh timers and message deliveries of the
+     * demo devices on the wall clock, sharded onto one thread per processor.
+     * Its shards are held while the demo is paused.
+     */
+    ShardedMeshScheduler createScheduler() {
+        return new ShardedMeshScheduler(Runtime.getRuntime().availableProcessors(),
+                ShardedMeshScheduler.DEFAULT_TICK_MILLIS, new Runnable() {
             @Override
             public void run() {
-                while (pause) {
-                    try {
-                        Thread.sleep(10);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
+                try {
+                    pacing.awaitResumed();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
             }
-        }, 0, 50, TimeUnit.MILLISECONDS);
-        return runner;
+        });
     }
 
 
@@ -91,16 +97,7 @@ public abstract class HappeningDemo {
             @Override
             public void update(Observable observable, Object object) {
                 IterativeProcess ip = (IterativeProcess) observable;
-                if (ip.isRunning() && pause) {
-                    // TODO: prevent runner scheduling explosion after resume (ND)
-                    while (pause) {
-                        try {
-                            Thread.sleep(50);
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                } else if (interrupt) {
+                if (interrupt) {
                     interrupt = false;
                     if (ip.isRunning()) {
                         ip.setEndCondition(new ConditionIfc() {
@@ -147,26 +144,32 @@ public abstract class HappeningDemo {
         int replicationLength = 500;
 
         while (true) {
-            runner = createRunner();
+            scheduler = createScheduler();
             if (pattern != null && pattern.contains("durable") && pattern.contains("large")) {
                 replicationLength = 50000;
             } else if (pattern != null && pattern.contains("crowd")) {
                 replicationLength = 5000;
             }
             graph = createGraph(pattern);
+            System.out.println("Running " + graph.getVertexCount() + " devices on "
+                    + scheduler.getShardCount() + " mesh shards");
+            new PacingAction(graph, pacing);
             if (patternKeys == null) {
                 patternKeys = createPatternKeys();
             }
+            for (Device device : graph.getVertices()) {
+                device.addObserver(new DeviceObserver());
+            }
             frame.init();
             for (Device device : graph.getVertices()) {
                 device.setClicked(true);
                 break;
             }
             if (!loop) {
-                pattern = patternKeys[2 + new Random().nextInt(patternKeys.length - 2)];
+                pattern = patternKeys[2 + random.nextInt(patternKeys.length - 2)];
             }
             runReplication(replicationLength);
-            runner.shutdownNow();
+            scheduler.shutdown();
             frame.destroy();
         }
     }
@@ -176,11 +179,23 @@ public abstract class HappeningDemo {
     }
 
     public static void setPause(boolean pause) {
-        HappeningDemo.pause = pause;
+        if (pause) {
+            pacing.pause();
+        } else {
+            pacing.resume();
+        }
     }
 
     public static boolean isPaused() {
-        return pause;
+        return pacing.isPaused();
+    }
+
+    /**
+     * @return Controller for the speed of the demo, which also runs changes
+     * to the simulated world on the simulation thread
+     */
+    public static PacingController getPacing() {
+        return pacing;
     }
 
     public static boolean isLoop() {
@@ -191,8 +206,8 @@ public abstract class HappeningDemo {
         HappeningDemo.loop = loop;
     }
 
-    public static ScheduledExecutorService getRunner() {
-        return runner;
+    public static ShardedMeshScheduler getScheduler() {
+        return scheduler;
     }
 
     public static MeshGraph getGraph() {
@@ -6,6 +6,7 @@ import java.util.Random;
 
 import blue.happening.simulation.entities.Connection;
 import blue.happening.simulation.entities.Device;
+import blue.happening.simulation.entities.RandomStreams;
 import blue.happening.simulation.graph.MeshGraph;
 import blue.happening.simulation.mobility.DTWaypoint;
 import blue.happening.simulation.mobility.MobilityPattern;
@@ -59,7 +60,8 @@ public class KioskDemo extends HappeningDemo {
                         if (deviceIndex < count) {
                             double sxf = hPadding + (i * Math.min(99, hSpace / root));
                             double syf = vPadding + (j * Math.min(99, vSpace / root));
-                            MobilityPattern<V, E> mobilityPattern = new RandomDSMobilityPattern<>(bound, minSpeed, maxSpeed);
+                            MobilityPattern<V, E> mobilityPattern = new RandomDSMobilityPattern<>(bound, minSpeed, maxSpeed,
+                                    new Random(random.nextLong()));
                             mobilityPattern.setStartpoint(new DTWaypoint<V, E>(sxf, syf, 10));
                             patterns.add(mobilityPattern);
                             deviceIndex++;
@@ -81,27 +83,27 @@ public class KioskDemo extends HappeningDemo {
         switch (patternKey) {
             case "durable_crowd":
                 return factory
-                        .addRandomDevices(16 + new Random().nextInt(24), 0.25D, 2.0D)
+                        .addRandomDevices(16 + random.nextInt(24), 0.25D, 2.0D)
                         .getPatterns();
 
             case "large_crowd":
                 return factory
-                        .addRandomDevices(56 + new Random().nextInt(16), 0.15D, 0.85D)
+                        .addRandomDevices(56 + random.nextInt(16), 0.15D, 0.85D)
                         .getPatterns();
 
             case "random_crowd":
                 return factory
-                        .addRandomDevices(8 + new Random().nextInt(12), 0.2D, 1.8D)
+                        .addRandomDevices(8 + random.nextInt(12), 0.2D, 1.8D)
                         .getPatterns();
 
             case "static_crowd":
                 return factory
-                        .addRandomDevices(12 + new Random().nextInt(24), 0.0D, 0.0D)
+                        .addRandomDevices(12 + random.nextInt(24), 0.0D, 0.0D)
                         .getPatterns();
 
             case "slow_crowd":
                 return factory
-                        .addRandomDevices(12 + new Random().nextInt(16), 0.05D, 0.25D)
+                        .addRandomDevices(12 + random.nextInt(16), 0.05D, 0.25D)
                         .getPatterns();
 
             case "new_neighbour":
@@ -182,10 +184,10 @@ public class KioskDemo extends HappeningDemo {
 
     @Override
     MeshGraph createGraph(String patternKey) {
-        final MeshGraph graph = new MeshGraph(noopInterval, noopSleep);
+        final MeshGraph graph = new MeshGraph(new RandomStreams(random.nextLong()));
         final List<MobilityPattern<Device, Connection>> patternList = getPattern(patternKey);
         for (int i = 0; i < patternList.size(); i++) {
-            Device device = new Device("device_" + i, HappeningDemo.getRunner(), messageDelay, messageLoss);
+            Device device = new Device("device_" + i, HappeningDemo.getScheduler(), messageDelay, messageLoss);
             MobilityPattern<Device, Connection> p = patternList.get(i);
             Waypoint<Device, Connection> initial = p.getStartpoint(graph, device);
             graph.addVertex(device, initial.getSxf(), initial.getSyf(), p, txRadius, rxRadius);
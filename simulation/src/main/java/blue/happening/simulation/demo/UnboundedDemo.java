@@ -24,7 +24,8 @@ package blue.happening.simulation.demo;
 import blue.happening.simulation.graph.internal.StringStringNetworkGraph;
 import blue.happening.simulation.mobility.MobilityPattern;
 import blue.happening.simulation.mobility.RandomVTMobilityPattern;
-import blue.happening.simulation.visualization.NOOPAction;
+import blue.happening.simulation.visualization.PacingAction;
+import blue.happening.simulation.visualization.PacingController;
 import blue.happening.simulation.visualization.SimpleVisualizerFrame;
 import blue.happening.simulation.visualization.SimpleVisualizerPanel;
 import jsl.modeling.Replication;
@@ -75,8 +76,8 @@ public class UnboundedDemo {
         @SuppressWarnings("unused")
         SimpleVisualizerPanel<String, String> panel = frame.getVisualizerPanel();
 
-        // introduce noop events to slow down simulation
-        new NOOPAction(graph, 1, 10);
+        // run at 100 time units per second so the simulation can be watched
+        new PacingAction(graph, new PacingController(100));
 
         // create replication
         Replication replication = new Replication(graph.getModel());
@@ -1,13 +1,13 @@
 package blue.happening.simulation.entities;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
+import blue.happening.mesh.MeshHandler;
 import blue.happening.mesh.Message;
-import blue.happening.simulation.demo.HappeningDemo;
 import blue.happening.simulation.graph.MeshGraph;
 
 public class Connection {
@@ -18,11 +18,14 @@ public class Connection {
     private final Device fromDevice;
     private final Device toDevice;
     private final Queue<MessageDelivery> deliverance;
+    // links are looked up by hash on every frame, the devices never change
+    private final int hash;
 
     public Connection(Device fromDevice, Device toDevice) {
         this.fromDevice = fromDevice;
         this.toDevice = toDevice;
         this.deliverance = new LinkedBlockingQueue<>();
+        this.hash = toString().hashCode();
     }
 
     public Device getFromDevice() {
@@ -48,52 +51,93 @@ public class Connection {
     }
 
     public int getStatus() {
-        purge();
-        MeshGraph graph = HappeningDemo.getGraph();
-        Device clickedDevice = graph == null ? null : graph.getClickedDevice();
-        MessageDelivery delivery = deliverance.peek();
+        MeshGraph graph = fromDevice.getGraph();
+        return getStatus(graph == null ? null : graph.getClickedDevice());
+    }
+
+    /**
+     * Reads the status without modifying the link, so painting never contends
+     * with message deliveries.
+     *
+     * @param clickedDevice Device whose messages are highlighted, or null to
+     *                      highlight all messages
+     */
+    public int getStatus(Device clickedDevice) {
+        MessageDelivery delivery = null;
+        for (MessageDelivery candidate : deliverance) {
+            if (!candidate.isComplete()) {
+                delivery = candidate;
+                break;
+            }
+        }
         if (delivery == null) {
             return IDLE;
-        } else if (clickedDevice == null) {
-            if (delivery.isLost()) {
-                return LOSS;
-            } else {
-                return SEND;
-            }
-        } else if (clickedDevice.getName().equals(delivery.getMessage().getSource())) {
-            if (delivery.isLost()) {
-                return LOSS;
-            } else {
-                return SEND;
-            }
+        } else if (clickedDevice == null
+                || clickedDevice.getName().equals(delivery.getMessage().getSource())) {
+            return delivery.isLost() ? LOSS : SEND;
         }
         return IDLE;
     }
 
-    void queueMessage(Message message) {
+    /**
+     * Transmits {@code message} over this link. Frames are sent one after
+     * another on the sender's radio, which all of its links share, and
+     * arrive after the message delay once fully transmitted. A frame is
+     * dropped when the sender's transmit queue is full. Like a real radio,
+     * the link still accepts such a frame, so that congestion does not look
+     * like a dead link to the mesh.
+     */
+    synchronized void queueMessage(final Message message) {
         final byte[] bytes = message.toBytes();
-        final boolean lost = Math.random() < fromDevice.getMockLayer().getMessageLoss();
+        final int frameSize = bytes.length + fromDevice.getFrameOverhead();
+
+        purge();
+        long now = toDevice.currentTimeMillis();
+        double transmitEnd = fromDevice.transmit(frameSize, now);
+        if (Double.isNaN(transmitEnd)) {
+            fromDevice.countDroppedFrame();
+            for (LinkObserver observer : getLinkObservers()) {
+                observer.frameDropped(this, message, frameSize);
+            }
+            return;
+        }
 
-        final Runnable runnable = new Runnable() {
+        final boolean lost = fromDevice.getLinkRandom().nextDouble() < fromDevice.getMockLayer().getMessageLoss();
+        double deliveryTime = transmitEnd + fromDevice.getMessageDelay();
+        long delay = Math.max(0, Math.round(deliveryTime - now));
+        final MessageDelivery delivery = new MessageDelivery(now + delay, message, lost);
+        deliverance.offer(delivery);
+        fromDevice.countSentFrame(frameSize, bytes.length, message.getType() == MeshHandler.MESSAGE_TYPE_UCM);
+        for (LinkObserver observer : getLinkObservers()) {
+            observer.frameSent(this, message, frameSize);
+        }
+
+        toDevice.schedule(new Runnable() {
             @Override
             public void run() {
+                delivery.complete();
+                for (LinkObserver observer : getLinkObservers()) {
+                    if (lost) {
+                        observer.frameLost(Connection.this, message, frameSize);
+                    } else {
+                        observer.frameArrived(Connection.this, message, frameSize);
+                    }
+                }
                 if (!lost) {
                     toDevice.getMockLayer().getLayerCallback().onMessageReceived(bytes);
                 }
             }
-        };
+        }, delay);
+    }
 
-        int delay = getFromDevice().getMessageDelay();
-        for (MessageDelivery delivery : deliverance) {
-            delay += delivery.getDelay();
-        }
-        ScheduledFuture future = getToDevice().getRunner().schedule(runnable, delay, TimeUnit.MILLISECONDS);
-        deliverance.offer(new MessageDelivery(future, message, lost));
+    private List<LinkObserver> getLinkObservers() {
+        MeshGraph graph = fromDevice.getGraph();
+        return graph == null ? Collections.<LinkObserver>emptyList() : graph.getLinkObservers();
     }
 
     @Override
     public int hashCode() {
-        return toString().hashCode();
+        return hash;
     }
 
     @Override
@@ -112,22 +156,27 @@ public class Connection {
     }
 
     private class MessageDelivery implements Comparable<MessageDelivery> {
-        private ScheduledFuture future;
-        private Message message;
-        private boolean lost;
+        private final long deliveryTime;
+        private final Message message;
+        private final boolean lost;
+        private volatile boolean complete;
 
-        MessageDelivery(ScheduledFuture future, Message message, boolean lost) {
-            this.future = future;
+        MessageDelivery(long deliveryTime, Message message, boolean lost) {
+            this.deliveryTime = deliveryTime;
             this.message = message;
             this.lost = lost;
         }
 
         boolean isComplete() {
-            return (future.isDone() || future.isCancelled());
+            return complete;
+        }
+
+        void complete() {
+            complete = true;
         }
 
-        long getDelay() {
-            return future.getDelay(TimeUnit.MILLISECONDS);
+        long getDeliveryTime() {
+            return deliveryTime;
         }
 
         Message getMessage() {
@@ -140,7 +189,7 @@ public class Connection {
 
         @Override
         public int compareTo(MessageDelivery other) {
-            return Long.compare(getDelay(), other.getDelay());
+            return Long.compare(deliveryTime, other.deliveryTime);
         }
     }
 }
@@ -1,12 +1,20 @@
 package blue.happening.simulation.entities;
 
+import java.util.ArrayDeque;
 import java.util.List;
 import java.util.Observable;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import blue.happening.mesh.MeshDevice;
 import blue.happening.mesh.MeshHandler;
-import blue.happening.simulation.demo.HappeningDemo;
+import blue.happening.mesh.MeshParameters;
+import blue.happening.mesh.ShardedMeshScheduler;
 import blue.happening.simulation.graph.MeshGraph;
 import blue.happening.simulation.graph.internal.VertexProperties;
 import blue.happening.simulation.visualization.listener.DeviceObserver;
@@ -17,29 +25,103 @@ public class Device extends Observable {
     private String name;
     private MeshHandler meshHandler;
     private int messageDelay;
+    private int bitRate;
+    private int frameOverhead;
+    private int queueCapacity;
+    private int maxConnections;
+    private int connectLatencyMin;
+    private int connectLatencyMax;
+    private PeerSelectionPolicy peerSelectionPolicy = new FirstSeenPeerPolicy();
+    private final AtomicLong sentFrames = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong sentUcmBytes = new AtomicLong();
+    private final AtomicLong sentControlBytes = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    // the device has a single radio, all of its links share its bit rate and queue
+    private final Queue<Double> transmitEnds = new ArrayDeque<>();
+    private double transmitEnd;
     private boolean isEnabled = true;
     private boolean isNeighbour = false;
     private MockLayer mockLayer;
     private ScheduledExecutorService runner;
+    private VirtualMeshScheduler virtualScheduler;
     private LogQueue ucmLog;
     private LogQueue ogmLog;
+    private MeshGraph graph;
+    private final Random linkRandom;
+    private final ConcurrentMap<String, Connection> incomingConnections = new ConcurrentHashMap<>();
 
     public Device(String name, ScheduledExecutorService runner, int messageDelay, float messageLoss) {
-        addObserver(new DeviceObserver());
+        this(name, runner, new MeshHandler(name, runner), messageDelay, messageLoss, new Random());
+    }
+
+    /**
+     * Creates a device whose mesh timers and message deliveries all run on
+     * the shard of {@code scheduler} that owns this device.
+     */
+    public Device(String name, ShardedMeshScheduler scheduler, int messageDelay, float messageLoss) {
+        this(name, scheduler.getExecutor(name), new MeshHandler(name, scheduler), messageDelay, messageLoss,
+                new Random());
+    }
+
+    /**
+     * Creates a device whose mesh timers and message deliveries run as events
+     * on the simulated clock of {@code scheduler}.
+     */
+    public Device(String name, VirtualMeshScheduler scheduler, int messageDelay, float messageLoss) {
+        this(name, scheduler, messageDelay, messageLoss, RandomStreams.unseeded());
+    }
+
+    /**
+     * Creates a device like
+     * {@link #Device(String, VirtualMeshScheduler, int, float)} whose mesh and
+     * links draw from the streams named after the device, so that the device
+     * behaves the same in every run with the same root seed.
+     */
+    public Device(String name, VirtualMeshScheduler scheduler, int messageDelay, float messageLoss,
+                  RandomStreams streams) {
+        this(name, scheduler, messageDelay, messageLoss, streams, new MeshParameters());
+    }
+
+    /**
+     * Creates a device like
+     * {@link #Device(String, VirtualMeshScheduler, int, float, RandomStreams)}
+     * whose mesh handler runs with the given protocol parameters.
+     */
+    public Device(String name, VirtualMeshScheduler scheduler, int messageDelay, float messageLoss,
+                  RandomStreams streams, MeshParameters parameters) {
+        this(name, null, new MeshHandler(name, scheduler, streams.stream(name + "/mesh"), parameters),
+                messageDelay, messageLoss, streams.stream(name + "/link"));
+        this.virtualScheduler = scheduler;
+    }
+
+    private Device(String name, ScheduledExecutorService runner, MeshHandler meshHandler,
+                   int messageDelay, float messageLoss, Random linkRandom) {
         this.name = name;
+        this.linkRandom = linkRandom;
         this.runner = runner;
         this.messageDelay = messageDelay;
         mockLayer = new MockLayer();
         mockLayer.setMessageLoss(messageLoss);
-        meshHandler = new MeshHandler(this.name, runner);
+        this.meshHandler = meshHandler;
         meshHandler.registerLayer(mockLayer);
         meshHandler.registerCallback(new MockMeshHandlerCallback(this));
         ucmLog = new LogQueue(16);
         ogmLog = new LogQueue(64);
     }
 
+    /**
+     * @return Graph this device has been added to, or null before that
+     */
+    public MeshGraph getGraph() {
+        return graph;
+    }
+
+    public void setGraph(MeshGraph graph) {
+        this.graph = graph;
+    }
+
     public boolean isClicked() {
-        MeshGraph graph = HappeningDemo.getGraph();
         Device clicked = graph == null ? null : graph.getClickedDevice();
         return clicked != null && clicked.equals(this);
     }
@@ -47,10 +129,10 @@ public class Device extends Observable {
     public void setClicked(boolean clicked) {
         boolean wasClicked = isClicked();
         if (!wasClicked && clicked) {
-            HappeningDemo.getGraph().setClickedDevice(this);
+            graph.setClickedDevice(this);
             notifyDeviceObserver(DeviceObserver.Events.DEVICE_CLICKED, null);
         } else if (wasClicked && !clicked) {
-            HappeningDemo.getGraph().setClickedDevice(null);
+            graph.setClickedDevice(null);
             notifyDeviceObserver(DeviceObserver.Events.DEVICE_UNCLICKED, null);
         }
     }
@@ -81,17 +163,162 @@ public class Device extends Observable {
         mockLayer.setMessageLoss(messageLoss);
     }
 
+    /**
+     * @return Bits per second this device transmits at, shared by all of its
+     * outgoing connections, 0 for no limit
+     */
+    public int getBitRate() {
+        return bitRate;
+    }
+
+    public void setBitRate(int bitRate) {
+        this.bitRate = bitRate;
+    }
+
+    /**
+     * @return Bytes added to every message by the link layer
+     */
+    public int getFrameOverhead() {
+        return frameOverhead;
+    }
+
+    public void setFrameOverhead(int frameOverhead) {
+        this.frameOverhead = frameOverhead;
+    }
+
+    /**
+     * @return Frames the radio buffers across all outgoing connections
+     * before dropping new ones, 0 for no limit
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @return Connections this device keeps at the same time, 0 for no limit
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * @return Least milliseconds it takes this device to connect to a peer
+     */
+    public int getConnectLatencyMin() {
+        return connectLatencyMin;
+    }
+
+    /**
+     * @return Most milliseconds it takes this device to connect to a peer
+     */
+    public int getConnectLatencyMax() {
+        return connectLatencyMax;
+    }
+
+    public void setConnectLatency(int min, int max) {
+        this.connectLatencyMin = min;
+        this.connectLatencyMax = max;
+    }
+
+    /**
+     * @return Source of the losses on this device's outgoing links
+     */
+    Random getLinkRandom() {
+        return linkRandom;
+    }
+
+    public PeerSelectionPolicy getPeerSelectionPolicy() {
+        return peerSelectionPolicy;
+    }
+
+    public void setPeerSelectionPolicy(PeerSelectionPolicy peerSelectionPolicy) {
+        this.peerSelectionPolicy = peerSelectionPolicy;
+    }
+
+    /**
+     * Puts a frame on the radio behind the frames still being transmitted
+     * on any of this device's connections.
+     *
+     * @param frameSize Bytes of the frame including the frame overhead
+     * @param now       Current time in milliseconds
+     * @return Time the frame is fully transmitted, or NaN if the transmit
+     * queue is full and the frame has to be dropped
+     */
+    synchronized double transmit(int frameSize, long now) {
+        while (!transmitEnds.isEmpty() && transmitEnds.peek() <= now) {
+            transmitEnds.poll();
+        }
+        if (queueCapacity > 0 && transmitEnds.size() >= queueCapacity) {
+            return Double.NaN;
+        }
+        double serialization = bitRate > 0 ? frameSize * 8 * 1000D / bitRate : 0;
+        transmitEnd = Math.max(now, transmitEnd) + serialization;
+        transmitEnds.offer(transmitEnd);
+        return transmitEnd;
+    }
+
+    void countSentFrame(int frameSize, int messageSize, boolean unicast) {
+        sentFrames.incrementAndGet();
+        sentBytes.addAndGet(frameSize);
+        if (unicast) {
+            sentUcmBytes.addAndGet(messageSize);
+        } else {
+            sentControlBytes.addAndGet(frameSize);
+        }
+    }
+
+    void countDroppedFrame() {
+        droppedFrames.incrementAndGet();
+    }
+
+    public long getSentFrames() {
+        return sentFrames.get();
+    }
+
+    /**
+     * @return Bytes transmitted including frame overhead
+     */
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    /**
+     * @return Bytes of unicast messages transmitted, without frame overhead
+     */
+    public long getSentUcmBytes() {
+        return sentUcmBytes.get();
+    }
+
+    /**
+     * @return Bytes of all messages but unicast messages transmitted,
+     * including frame overhead
+     */
+    public long getSentControlBytes() {
+        return sentControlBytes.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
     public void toggleEnabled() {
-        MeshGraph graph = HappeningDemo.getGraph();
         VertexProperties<Device, Connection> properties = graph.getVertexProperties(this);
         if (isEnabled) {
             graph.removeEdges(this);
-            properties.getRxRadius().setValue(0);
-            properties.getTxRadius().setValue(0);
+            properties.setRxRadius(0);
+            properties.setTxRadius(0);
         } else {
             graph.addEdges(this);
-            properties.getRxRadius().setValue(properties.getRxRadius().getInitialValue());
-            properties.getTxRadius().setValue(properties.getTxRadius().getInitialValue());
+            properties.setRxRadius(properties.getInitialRxRadius());
+            properties.setTxRadius(properties.getInitialTxRadius());
         }
         isEnabled = !isEnabled;
     }
@@ -108,6 +335,22 @@ public class Device extends Observable {
         return runner;
     }
 
+    /**
+     * Runs {@code runnable} on this device after {@code delayMillis}, either
+     * on the simulated clock or on the wall clock.
+     */
+    void schedule(Runnable runnable, long delayMillis) {
+        if (virtualScheduler != null) {
+            virtualScheduler.schedule(runnable, delayMillis);
+        } else {
+            runner.schedule(runnable, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public long currentTimeMillis() {
+        return virtualScheduler != null ? virtualScheduler.currentTimeMillis() : System.currentTimeMillis();
+    }
+
     public List<MeshDevice> getDevices() {
         return getMeshHandler().getDevices();
     }
@@ -120,6 +363,23 @@ public class Device extends Observable {
         return ogmLog;
     }
 
+    /**
+     * @param fromName name of the sending device
+     * @return Connection from that device to this one, or null if they are
+     * not in range
+     */
+    public Connection getIncomingConnection(String fromName) {
+        return incomingConnections.get(fromName);
+    }
+
+    public void addIncomingConnection(Connection connection) {
+        incomingConnections.put(connection.getFromDevice().getName(), connection);
+    }
+
+    public void removeIncomingConnection(Connection connection) {
+        incomingConnections.remove(connection.getFromDevice().getName(), connection);
+    }
+
     public void connectTo(Device device) {
         mockLayer.addDevice(device);
     }
@@ -132,13 +392,28 @@ public class Device extends Observable {
         return meshHandler;
     }
 
+    /**
+     * Hands a unicast message to the mesh and tells the observers that this
+     * device sent it, so that its delivery can be followed.
+     *
+     * @return Whether the mesh could route or queue the message
+     */
+    public boolean sendMessage(byte[] message, String destination) {
+        notifyDeviceObserver(DeviceObserver.Events.MESSAGE_SENT, message, destination);
+        return meshHandler.sendMessage(message, destination);
+    }
+
     public MockLayer getMockLayer() {
         return mockLayer;
     }
 
     void notifyDeviceObserver(DeviceObserver.Events arg, Object options) {
+        notifyDeviceObserver(arg, options, null);
+    }
+
+    void notifyDeviceObserver(DeviceObserver.Events arg, Object options, String peer) {
         setChanged();
-        notifyObservers(new DeviceChangedEvent(arg, options));
+        notifyObservers(new DeviceChangedEvent(arg, options, peer));
     }
 
     @Override
@@ -163,10 +438,12 @@ public class Device extends Observable {
     public class DeviceChangedEvent {
         private DeviceObserver.Events type;
         private Object options;
+        private String peer;
 
-        DeviceChangedEvent(DeviceObserver.Events type, Object options) {
+        DeviceChangedEvent(DeviceObserver.Events type, Object options, String peer) {
             this.type = type;
             this.options = options;
+            this.peer = peer;
         }
 
         public DeviceObserver.Events getType() {
@@ -176,5 +453,13 @@ public class Device extends Observable {
         public Object getOptions() {
             return options;
         }
+
+        /**
+         * @return Name of the device that sent a received message or that a
+         * sent message is addressed to, or null for other events
+         */
+        public String getPeer() {
+            return peer;
+        }
     }
 }
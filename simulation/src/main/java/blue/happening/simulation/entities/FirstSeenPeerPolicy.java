@@ -0,0 +1,15 @@
+package blue.happening.simulation.entities;
+
+import java.util.List;
+
+
+/**
+ * Connects to peers in the order they came into range.
+ */
+public class FirstSeenPeerPolicy implements PeerSelectionPolicy {
+
+    @Override
+    public Device select(Device device, List<Device> candidates) {
+        return candidates.get(0);
+    }
+}
@@ -0,0 +1,34 @@
+package blue.happening.simulation.entities;
+
+import blue.happening.mesh.Message;
+
+
+/**
+ * Observes the frames sent over the links of a
+ * {@link blue.happening.simulation.graph.MeshGraph}. Methods are called on the
+ * thread that sends or delivers the frame, which is the simulation thread
+ * when the mesh runs on the simulated clock.
+ */
+public interface LinkObserver {
+
+    /**
+     * {@code message} has been queued for transmission on {@code connection}.
+     */
+    void frameSent(Connection connection, Message message, int frameSize);
+
+    /**
+     * {@code message} has been dropped because the transmit queue of the
+     * sender was full.
+     */
+    void frameDropped(Connection connection, Message message, int frameSize);
+
+    /**
+     * {@code message} has been fully transmitted but lost on the link.
+     */
+    void frameLost(Connection connection, Message message, int frameSize);
+
+    /**
+     * {@code message} has arrived at the receiver.
+     */
+    void frameArrived(Connection connection, Message message, int frameSize);
+}
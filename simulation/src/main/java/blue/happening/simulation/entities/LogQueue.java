@@ -1,35 +1,110 @@
 package blue.happening.simulation.entities;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.ConcurrentModificationException;
+import java.util.AbstractList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 import java.util.UUID;
 
 
-public class LogQueue extends HashMap<UUID, LogItem> {
-    private int capacity;
+/**
+ * Keeps the latest log items of a device in a ring buffer of fixed capacity.
+ * Adding an item evicts the oldest one once the buffer is full, and an index
+ * by id lets status updates find their item without a scan. The mesh threads
+ * write while the UI reads, so all access is synchronized on the queue.
+ */
+public class LogQueue {
+
+    private final LogItem[] items;
+    private final Map<UUID, LogItem> index;
+    private final List<LogItem> view;
+    // position of the oldest item
+    private int head;
+    private int size;
 
     LogQueue(int capacity) {
-        this.capacity = capacity;
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        items = new LogItem[capacity];
+        index = new HashMap<>();
+        view = new NewestFirstView();
     }
 
+    /**
+     * @return Live, read only view of the logged items, newest first
+     */
     public List<LogItem> getLogs() {
-        try {
-            List<LogItem> values = new ArrayList<>(values());
-            Collections.sort(values);
-            return values;
-        } catch (ConcurrentModificationException e) {
-            e.printStackTrace();
-            return new ArrayList<>();
+        return view;
+    }
+
+    public synchronized LogItem get(UUID id) {
+        return index.get(id);
+    }
+
+    public synchronized boolean containsKey(UUID id) {
+        return index.containsKey(id);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return items.length;
+    }
+
+    /**
+     * Adds {@code item}, evicting the oldest item if the queue is full. An
+     * item whose id has already been logged replaces it in place.
+     *
+     * @return The item that has been replaced or evicted, or null if there
+     * was none
+     */
+    public synchronized LogItem put(LogItem item) {
+        LogItem existing = index.put(item.getId(), item);
+        if (existing == item) {
+            // status updates log the same item again
+            return null;
+        } else if (existing != null) {
+            for (int i = 0; i < size; i++) {
+                int position = (head + i) % items.length;
+                if (items[position] == existing) {
+                    items[position] = item;
+                    break;
+                }
+            }
+            return existing;
         }
+        LogItem evicted = null;
+        if (size == items.length) {
+            evicted = items[head];
+            index.remove(evicted.getId());
+            items[head] = null;
+            head = (head + 1) % items.length;
+            size--;
+        }
+        items[(head + size) % items.length] = item;
+        size++;
+        return evicted;
     }
 
-    public LogItem put(LogItem item) {
-        if (size() > capacity - 1) {
-            remove(get(0));
+    private class NewestFirstView extends AbstractList<LogItem> implements RandomAccess {
+
+        @Override
+        public LogItem get(int i) {
+            synchronized (LogQueue.this) {
+                if (i < 0 || i >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+                }
+                return items[(head + size - 1 - i) % items.length];
+            }
+        }
+
+        @Override
+        public int size() {
+            return LogQueue.this.size();
         }
-        return super.put(item.getId(), item);
     }
 }
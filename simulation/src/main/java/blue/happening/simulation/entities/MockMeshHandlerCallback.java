@@ -19,6 +19,7 @@ class MockMeshHandlerCallback implements IMeshHandlerCallback {
     @Override
     public void onMessageReceived(byte[] message, MeshDevice meshDevice) {
         System.out.println(meshDevice.getUuid() + ": " + new String(message));
+        device.notifyDeviceObserver(DeviceObserver.Events.MESSAGE_RECEIVED, message, meshDevice.getUuid());
     }
 
     @Override
@@ -1,10 +1,8 @@
 package blue.happening.simulation.entities;
 
-import java.util.ConcurrentModificationException;
-
 import blue.happening.mesh.Message;
 import blue.happening.mesh.RemoteDevice;
-import blue.happening.simulation.demo.HappeningDemo;
+import blue.happening.simulation.graph.MeshGraph;
 
 
 public class MockRemoteDevice extends RemoteDevice {
@@ -24,30 +22,17 @@ public class MockRemoteDevice extends RemoteDevice {
     }
 
     public boolean sendMessage(Message message) {
-        return sendMessageWithRetries(message, 2);
-    }
-
-    private boolean sendMessageWithRetries(Message message, int retries) {
-        try {
-            for (Connection connection : HappeningDemo.getGraph().getEdges()) {
-                if (connection.getToDevice().getName().equals(getUuid()) &&
-                        connection.getFromDevice().getName().equals(message.getPreviousHop())) {
-                    connection.queueMessage(message);
-                    return true;
-                }
-            }
-        } catch (ConcurrentModificationException e) {
-            if (retries > 0) {
-                return sendMessageWithRetries(message, --retries);
-            } else {
-                e.printStackTrace();
-            }
+        Connection connection = device.getIncomingConnection(message.getPreviousHop());
+        if (connection == null) {
+            return false;
         }
-        return false;
+        connection.queueMessage(message);
+        return true;
     }
 
     @Override
     public boolean remove() {
-        return HappeningDemo.getGraph().removeVertex(device);
+        MeshGraph graph = device.getGraph();
+        return graph != null && graph.removeVertex(device);
     }
 }
@@ -0,0 +1,31 @@
+package blue.happening.simulation.entities;
+
+import java.util.List;
+
+import blue.happening.simulation.graph.MeshGraph;
+
+
+/**
+ * Connects to the closest peer first, which is the one with the best signal
+ * on real hardware.
+ */
+public class NearestPeerPolicy implements PeerSelectionPolicy {
+
+    @Override
+    public Device select(Device device, List<Device> candidates) {
+        MeshGraph graph = device.getGraph();
+        double x = graph.getDisplacementX(device);
+        double y = graph.getDisplacementY(device);
+        Device nearest = null;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        for (Device candidate : candidates) {
+            double distance = Math.hypot(graph.getDisplacementX(candidate) - x,
+                    graph.getDisplacementY(candidate) - y);
+            if (distance < nearestDistance) {
+                nearest = candidate;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,19 @@
+package blue.happening.simulation.entities;
+
+import java.util.List;
+
+
+/**
+ * Decides which peer a device connects to next, when more peers are in range
+ * than the device may connect to.
+ */
+public interface PeerSelectionPolicy {
+
+    /**
+     * @param device     device that has a free connection slot
+     * @param candidates peers in range that are not connected to {@code device}
+     *                   yet and have a free slot themselves, never empty
+     * @return One of {@code candidates}, or null to leave the slot free
+     */
+    Device select(Device device, List<Device> candidates);
+}
@@ -0,0 +1,155 @@
+package blue.happening.simulation.entities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+
+/**
+ * Decides which devices in range of each other are connected, like the
+ * Bluetooth layer does on phones. Two devices can only connect once each is
+ * in range of the other, and only while both have fewer connections than
+ * their limit. Connecting takes a random time between the initiator's minimum
+ * and maximum connect latency, and devices that drift apart in the meantime
+ * never connect. Free slots are filled with the peers the device's
+ * {@link PeerSelectionPolicy} picks.
+ * <p>
+ * With no limit and no latency, devices connect as soon as they are in range.
+ */
+public class PiconetManager {
+
+    private final Map<Device, Set<Device>> inRange = new HashMap<>();
+    private final Map<Device, Set<Device>> connecting = new HashMap<>();
+    private final Map<Device, Set<Device>> connected = new HashMap<>();
+    private final Map<String, Object> attempts = new HashMap<>();
+    private final Random random;
+
+    public PiconetManager() {
+        this(new Random());
+    }
+
+    /**
+     * @param random Source of the connect latencies
+     */
+    public PiconetManager(Random random) {
+        this.random = random;
+    }
+
+    private static Set<Device> peers(Map<Device, Set<Device>> map, Device device) {
+        Set<Device> peers = map.get(device);
+        if (peers == null) {
+            peers = new LinkedHashSet<>();
+            map.put(device, peers);
+        }
+        return peers;
+    }
+
+    /**
+     * Called when {@code to} came into range of {@code from}.
+     */
+    public synchronized void inRange(Device from, Device to) {
+        peers(inRange, from).add(to);
+        fillSlots(from);
+        fillSlots(to);
+    }
+
+    /**
+     * Called when {@code to} went out of range of {@code from}. Tears down
+     * their connection, or aborts connecting, and lets both fill their slot.
+     */
+    public synchronized void outOfRange(Device from, Device to) {
+        peers(inRange, from).remove(to);
+        if (peers(connected, from).remove(to)) {
+            peers(connected, to).remove(from);
+            from.disconnectFrom(to);
+            to.disconnectFrom(from);
+        } else if (peers(connecting, from).remove(to)) {
+            peers(connecting, to).remove(from);
+            attempts.remove(attemptKey(from, to));
+        } else {
+            return;
+        }
+        fillSlots(from);
+        fillSlots(to);
+    }
+
+    /**
+     * @return Peers {@code device} is currently connected to
+     */
+    public synchronized List<Device> getConnectedPeers(Device device) {
+        return new ArrayList<>(peers(connected, device));
+    }
+
+    private boolean hasFreeSlot(Device device) {
+        int limit = device.getMaxConnections();
+        return limit <= 0 || peers(connected, device).size() + peers(connecting, device).size() < limit;
+    }
+
+    private void fillSlots(Device device) {
+        while (hasFreeSlot(device)) {
+            List<Device> candidates = new ArrayList<>();
+            for (Device peer : peers(inRange, device)) {
+                if (peers(inRange, peer).contains(device)
+                        && !peers(connected, device).contains(peer)
+                        && !peers(connecting, device).contains(peer)
+                        && hasFreeSlot(peer)) {
+                    candidates.add(peer);
+                }
+            }
+            if (candidates.isEmpty()) {
+                return;
+            }
+            Device peer = device.getPeerSelectionPolicy().select(device, candidates);
+            if (peer == null || !candidates.contains(peer)) {
+                return;
+            }
+            connect(device, peer);
+        }
+    }
+
+    private static String attemptKey(Device device, Device peer) {
+        return device.getName().compareTo(peer.getName()) < 0
+                ? device.getName() + "|" + peer.getName()
+                : peer.getName() + "|" + device.getName();
+    }
+
+    private void connect(final Device device, final Device peer) {
+        peers(connecting, device).add(peer);
+        peers(connecting, peer).add(device);
+        int min = device.getConnectLatencyMin();
+        int max = Math.max(min, device.getConnectLatencyMax());
+        long latency = min + (max > min ? random.nextInt(max - min + 1) : 0);
+        if (latency <= 0) {
+            establish(device, peer);
+            return;
+        }
+        // an aborted attempt must not complete a later attempt between the same devices
+        final String key = attemptKey(device, peer);
+        final Object attempt = new Object();
+        attempts.put(key, attempt);
+        device.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (PiconetManager.this) {
+                    if (attempts.get(key) == attempt) {
+                        establish(device, peer);
+                    }
+                }
+            }
+        }, latency);
+    }
+
+    private void establish(Device device, Device peer) {
+        attempts.remove(attemptKey(device, peer));
+        peers(connecting, device).remove(peer);
+        peers(connecting, peer).remove(device);
+        peers(connected, device).add(peer);
+        peers(connected, peer).add(device);
+        device.connectTo(peer);
+        peer.connectTo(device);
+    }
+}
@@ -0,0 +1,57 @@
+package blue.happening.simulation.entities;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+
+/**
+ * Splits the root seed of a simulation run into independent random streams,
+ * one per named component. A stream only depends on the root seed and its
+ * name, never on how many other streams were created or drawn from before,
+ * so adding a component or reordering the setup leaves all other streams
+ * untouched. Together with the simulated clock this makes runs with the same
+ * root seed reproducible.
+ */
+public class RandomStreams {
+
+    private final long seed;
+
+    public RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return Streams with a root seed that differs from run to run
+     */
+    public static RandomStreams unseeded() {
+        return new RandomStreams(new Random().nextLong());
+    }
+
+    /**
+     * Mixes the bits of {@code z} (SplitMix64 finalizer), so that related
+     * inputs give unrelated seeds.
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @param name Name of the component, like "piconet" or "device_3/mesh"
+     * @return A new random stream that is the same for the same root seed and
+     * name
+     */
+    public Random stream(String name) {
+        // 64 bit FNV-1a, String.hashCode collides too easily for short names
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001B3L;
+        }
+        return new Random(mix(seed + 0x9E3779B97F4A7C15L * mix(hash)));
+    }
+}
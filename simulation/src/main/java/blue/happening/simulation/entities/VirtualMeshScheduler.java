@@ -0,0 +1,117 @@
+package blue.happening.simulation.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import blue.happening.mesh.IMeshScheduler;
+import jsl.modeling.ActionListenerIfc;
+import jsl.modeling.JSLEvent;
+import jsl.modeling.ModelElement;
+import jsl.modeling.SchedulingElement;
+
+
+/**
+ * Runs mesh timers and message deliveries as JSL events, so that the mesh
+ * advances on the same simulated clock as the devices move on. One unit of
+ * simulation time corresponds to one second.
+ * <p>
+ * Everything runs on the simulation thread, which also satisfies the
+ * per-node threading contract of {@link IMeshScheduler}.
+ */
+public class VirtualMeshScheduler extends SchedulingElement implements IMeshScheduler {
+
+    public static final double MILLIS_PER_TIME_UNIT = 1000D;
+
+    private final List<PeriodicAction> periodicActions;
+    private boolean running;
+
+    public VirtualMeshScheduler(ModelElement parent) {
+        super(parent);
+        periodicActions = new ArrayList<>();
+    }
+
+    @Override
+    protected void initialize() {
+        super.initialize();
+        running = true;
+        for (PeriodicAction action : periodicActions) {
+            scheduleEvent(action, action.initialDelay);
+        }
+    }
+
+    @Override
+    protected void afterReplication() {
+        super.afterReplication();
+        running = false;
+    }
+
+    /**
+     * Periodic tasks registered before the replication starts are scheduled
+     * once it initializes, and again at the start of every later replication.
+     */
+    @Override
+    public void scheduleAtFixedRate(String uuid, Runnable runnable, long initialDelay, long period, TimeUnit unit) {
+        PeriodicAction action = new PeriodicAction(runnable,
+                toTime(unit.toMillis(initialDelay)), toTime(unit.toMillis(period)));
+        periodicActions.add(action);
+        if (running) {
+            scheduleEvent(action, action.initialDelay);
+        }
+    }
+
+    @Override
+    public void execute(String uuid, Runnable runnable) {
+        schedule(runnable, 0);
+    }
+
+    /**
+     * @param runnable    Task to be run once
+     * @param delayMillis Delay in simulated milliseconds
+     */
+    public void schedule(final Runnable runnable, long delayMillis) {
+        if (!running) {
+            return;
+        }
+        scheduleEvent(new ActionListenerIfc() {
+            @Override
+            public void action(JSLEvent event) {
+                runnable.run();
+            }
+        }, toTime(delayMillis));
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return (long) (getTime() * MILLIS_PER_TIME_UNIT);
+    }
+
+    private static double toTime(long millis) {
+        return millis / MILLIS_PER_TIME_UNIT;
+    }
+
+    private class PeriodicAction implements ActionListenerIfc {
+
+        private final Runnable runnable;
+        private final double initialDelay;
+        private final double period;
+
+        PeriodicAction(Runnable runnable, double initialDelay, double period) {
+            this.runnable = runnable;
+            this.initialDelay = initialDelay;
+            this.period = period;
+        }
+
+        @Override
+        public void action(JSLEvent event) {
+            try {
+                runnable.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            if (running) {
+                rescheduleEvent(event, period);
+            }
+        }
+    }
+}
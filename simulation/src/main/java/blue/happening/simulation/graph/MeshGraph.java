@@ -1,18 +1,58 @@
 package blue.happening.simulation.graph;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import blue.happening.simulation.entities.Connection;
 import blue.happening.simulation.entities.Device;
-import blue.happening.simulation.visualization.NOOPAction;
+import blue.happening.simulation.entities.LinkObserver;
+import blue.happening.simulation.entities.PiconetManager;
+import blue.happening.simulation.entities.RandomStreams;
 
 
 public class MeshGraph extends NetworkGraph<Device, Connection> {
 
+    private final RandomStreams randomStreams;
+    private final PiconetManager piconetManager;
+    private final List<LinkObserver> linkObservers = new CopyOnWriteArrayList<>();
     private Device clickedDevice = null;
 
-    public MeshGraph(double noopInterval, long noopSleep) {
+    public MeshGraph() {
+        this(RandomStreams.unseeded());
+    }
+
+    /**
+     * @param randomStreams Streams every random component of this graph draws
+     *                      from
+     */
+    public MeshGraph(RandomStreams randomStreams) {
         super("Happening Mesh", new DeviceEdgePool());
-        new NOOPAction(this, noopInterval, noopSleep);
-        addObserver(new MeshGraphObserver());
+        this.randomStreams = randomStreams;
+        this.piconetManager = new PiconetManager(randomStreams.stream("piconet"));
+        addObserver(new MeshGraphObserver(piconetManager));
+    }
+
+    public RandomStreams getRandomStreams() {
+        return randomStreams;
+    }
+
+    public PiconetManager getPiconetManager() {
+        return piconetManager;
+    }
+
+    public void addLinkObserver(LinkObserver observer) {
+        linkObservers.add(observer);
+    }
+
+    public void removeLinkObserver(LinkObserver observer) {
+        linkObservers.remove(observer);
+    }
+
+    /**
+     * @return Observers of the frames sent over the links of this graph
+     */
+    public List<LinkObserver> getLinkObservers() {
+        return linkObservers;
     }
 
     private static class DeviceEdgePool implements EdgePool<Device, Connection> {
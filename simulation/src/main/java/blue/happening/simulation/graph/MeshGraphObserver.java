@@ -2,23 +2,37 @@ package blue.happening.simulation.graph;
 
 import blue.happening.simulation.entities.Connection;
 import blue.happening.simulation.entities.Device;
+import blue.happening.simulation.entities.PiconetManager;
 
 
 class MeshGraphObserver extends NetworkGraphObserver<Device, Connection> {
 
+    private final PiconetManager piconetManager;
+
+    MeshGraphObserver(PiconetManager piconetManager) {
+        this.piconetManager = piconetManager;
+    }
+
+    @Override
+    protected void addedVertex(
+            final NetworkGraph<Device, Connection> networkGraph,
+            final Device vertex) {
+        vertex.setGraph((MeshGraph) networkGraph);
+    }
+
     @Override
     protected void addedEdge(
             final NetworkGraph<Device, Connection> networkGraph,
             final Connection edge) {
-        edge.getFromDevice().connectTo(edge.getToDevice());
-        edge.getToDevice().connectTo(edge.getFromDevice());
+        edge.getToDevice().addIncomingConnection(edge);
+        piconetManager.inRange(edge.getFromDevice(), edge.getToDevice());
     }
 
     @Override
     protected void removedEdge(
             final NetworkGraph<Device, Connection> networkGraph,
             final Connection edge) {
-        edge.getFromDevice().disconnectFrom(edge.getToDevice());
-        edge.getToDevice().disconnectFrom(edge.getFromDevice());
+        edge.getToDevice().removeIncomingConnection(edge);
+        piconetManager.outOfRange(edge.getFromDevice(), edge.getToDevice());
     }
 }
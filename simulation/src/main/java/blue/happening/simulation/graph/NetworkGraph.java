@@ -25,13 +25,16 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import blue.happening.simulation.graph.internal.AbstractSchedulingElementGraph;
 import blue.happening.simulation.graph.internal.Motion;
+import blue.happening.simulation.graph.internal.SpatialGrid;
 import blue.happening.simulation.graph.internal.VertexProperties;
+import blue.happening.simulation.graph.internal.VertexStore;
 import blue.happening.simulation.graph.internal.VerticesDistance;
 import blue.happening.simulation.mobility.MobilityPattern;
 import blue.happening.simulation.mobility.StationaryMobilityPattern;
@@ -221,9 +224,14 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
     static final int ADDED_EDGE = JSL.getNextEnumConstant();
     static final int REMOVED_EDGE = JSL.getNextEnumConstant();
     private static Logger logger = LogManager.getLogger(NetworkGraph.class);
+    // smallest cell edge of the spatial index, guards against tiny radii
+    private static final double MIN_CELL_SIZE = 1;
     // containers
     private final Map<V, VertexProperties<V, E>> verticesProperties;
+    private final VertexStore store = new VertexStore();
     private final EdgePool<V, E> edgePool;
+    private final SpatialGrid<V> spatialGrid;
+    private double maxRadius = 0;
 
     // notify helper variables
     private V lastAddedVertex = null;
@@ -349,6 +357,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
 
         this.verticesProperties = new HashMap<V, VertexProperties<V, E>>();
         this.edgePool = edgePool;
+        this.spatialGrid = new SpatialGrid<V>(MIN_CELL_SIZE);
         logger.debug("Graph instantiated.");
     }
 
@@ -372,17 +381,13 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
 
         this.verticesProperties = new HashMap<V, VertexProperties<V, E>>();
         this.edgePool = edgePool;
+        this.spatialGrid = new SpatialGrid<V>(MIN_CELL_SIZE);
         logger.debug("Graph instantiated.");
     }
 
-    private static void timeValidationCheck(final double time, final VertexProperties<?, ?>... properties) {
-        assert properties != null;
-        double tStart = Double.NEGATIVE_INFINITY;
-        double tEnd = Double.POSITIVE_INFINITY;
-        for (VertexProperties<?, ?> prop : properties) {
-            tStart = Math.max(tStart, prop.getTStart().getValue());
-            tEnd = Math.min(tEnd, prop.getTEnd().getValue());
-        }
+    private void timeValidationCheck(final double time, final int slot) {
+        final double tStart = store.getTStart(slot);
+        final double tEnd = store.getTEnd(slot);
         if (time < tStart || tEnd < time) {
             try {
                 throw new IllegalArgumentException("invalid time argument: " + time + "; tStart = " + tStart + ", tEnd = " + tEnd);
@@ -398,9 +403,24 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
     @Override
     protected void initialize() {
         removeAllEdges();
+        rebuildSpatialGrid();
         addStartEdges();
     }
 
+    private void rebuildSpatialGrid() {
+        maxRadius = 0;
+        for (VertexProperties<V, E> properties : verticesProperties.values()) {
+            maxRadius = Math.max(maxRadius, Math.max(properties.getInitialTxRadius(),
+                    properties.getInitialRxRadius()));
+        }
+        spatialGrid.reset(Math.max(maxRadius, MIN_CELL_SIZE));
+        for (VertexProperties<V, E> properties : verticesProperties.values()) {
+            final double sxi = store.getInitialSx(properties.getSlot());
+            final double syi = store.getInitialSy(properties.getSlot());
+            spatialGrid.update(properties.getVertex(), sxi, syi, sxi, syi);
+        }
+    }
+
     private void removeAllEdges() {
         List<E> edges = new ArrayList<E>(getEdges());
         for (E e : edges) {
@@ -410,7 +430,10 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
 
     private void addStartEdges() {
         for (VertexProperties<V, E> from : verticesProperties.values()) {
-            for (VertexProperties<V, E> to : verticesProperties.values()) {
+            final double sxi = store.getInitialSx(from.getSlot());
+            final double syi = store.getInitialSy(from.getSlot());
+            for (V toVertex : spatialGrid.query(sxi, syi, sxi, syi, maxRadius)) {
+                final VertexProperties<V, E> to = verticesProperties.get(toVertex);
                 if (from == to)
                     continue;
 
@@ -463,8 +486,10 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
         if (wasAdded) {
             final String name = Integer.toHexString(vertex.hashCode());
             final VertexProperties<V, E> properties = new VertexProperties<V, E>(this,
-                    name, vertex, sx, sy, mobilityPattern, txRadius, rxRadius);
+                    name, vertex, store, sx, sy, mobilityPattern, txRadius, rxRadius);
             verticesProperties.put(vertex, properties);
+            maxRadius = Math.max(maxRadius, Math.max(txRadius, rxRadius));
+            spatialGrid.update(vertex, sx, sy, sx, sy);
             notifyAddedVertexObservers(vertex);
 
             logger.debug(
@@ -489,6 +514,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
         if (wasRemoved) {
             final VertexProperties<V, E> properties = verticesProperties.get(vertex);
             properties.removeFromModel();
+            spatialGrid.remove(vertex);
             notifyRemovedVertexObservers(vertex);
 
             logger.debug("Removed vertex '" + vertex + "' from blue.happening.simulation.graph.");
@@ -585,24 +611,76 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
 
     public boolean addEdges(V fromVertex) {
         boolean allAdded = true;
-        for (VertexProperties<V, E> to : verticesProperties.values()) {
-            if (fromVertex == to.getVertex()) {
+        final double sx = getDisplacementX(fromVertex);
+        final double sy = getDisplacementY(fromVertex);
+        for (V toVertex : spatialGrid.query(sx, sy, sx, sy, maxRadius)) {
+            if (fromVertex == toVertex) {
                 continue;
             }
             final VerticesDistance<V, E> distance = new VerticesDistance<>(this,
-                    fromVertex, to.getVertex());
-            final double fromTxRadius = getRadiusTx(fromVertex, to.getVertex());
-            final double toTxRadius = getRadiusTx(to.getVertex(), fromVertex);
+                    fromVertex, toVertex);
+            final double fromTxRadius = getRadiusTx(fromVertex, toVertex);
+            final double toTxRadius = getRadiusTx(toVertex, fromVertex);
             if (distance.getDistance() <= fromTxRadius) {
-                allAdded &= addEdge(fromVertex, to.getVertex());
+                allAdded &= addEdge(fromVertex, toVertex);
             }
             if (distance.getDistance() <= toTxRadius) {
-                allAdded &= addEdge(to.getVertex(), fromVertex);
+                allAdded &= addEdge(toVertex, fromVertex);
             }
         }
         return allAdded;
     }
 
+    /**
+     * Registers the leg {@code vertex} is currently travelling with the
+     * spatial index. Must be called whenever the vertex picks a new waypoint,
+     * otherwise {@link #getVerticesInReach(Object)} will miss it.
+     *
+     * @param vertex the vertex that started a new leg
+     */
+    public void updateSpatialIndex(final V vertex) {
+        final int slot = slot(vertex);
+        spatialGrid.update(vertex, store.getSx(slot), store.getSy(slot),
+                getLegEndX(slot), getLegEndY(slot));
+    }
+
+    /**
+     * Returns every vertex whose current leg may bring it within radio range
+     * of {@code vertex} while {@code vertex} travels its current leg. Vertices
+     * outside the result cannot gain or lose an edge to {@code vertex} before
+     * one of the two picks a new waypoint. The result may include
+     * {@code vertex} itself.
+     * <p>
+     * Radii are assumed to never grow beyond the largest radius any vertex
+     * was added with.
+     *
+     * @param vertex the vertex to query
+     * @return candidate neighbours of {@code vertex} for its current leg
+     */
+    public Collection<V> getVerticesInReach(final V vertex) {
+        final int slot = slot(vertex);
+        return spatialGrid.query(store.getSx(slot), store.getSy(slot),
+                getLegEndX(slot), getLegEndY(slot), maxRadius);
+    }
+
+    private double getLegEndX(final int slot) {
+        final double s = store.getSx(slot);
+        final double v = store.getVx(slot);
+        if (v == 0)
+            return s;
+        final double t = store.getTEnd(slot) - store.getTStart(slot);
+        return Motion.solveForFinalDisplacement(s, v, t);
+    }
+
+    private double getLegEndY(final int slot) {
+        final double s = store.getSy(slot);
+        final double v = store.getVy(slot);
+        if (v == 0)
+            return s;
+        final double t = store.getTEnd(slot) - store.getTStart(slot);
+        return Motion.solveForFinalDisplacement(s, v, t);
+    }
+
     /**
      * Return {@code true} if an edge incident from {@code fromVertex} and
      * incident to {@code toVertex} exists in blue.happening.simulation.graph, {@code false } otherwise.
@@ -621,6 +699,10 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
         return verticesProperties.get(vertex);
     }
 
+    private int slot(final V vertex) {
+        return verticesProperties.get(vertex).getSlot();
+    }
+
     /**
      * Returns the initial x-axis coordinate of {@code vertex}.
      *
@@ -628,9 +710,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the initial x-axis coordinate of {@code vertex}
      */
     public double getInitialDisplacementX(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double sxi = properties.getSx().getInitialValue();
-        return sxi;
+        return store.getInitialSx(slot(vertex));
     }
 
     /**
@@ -640,9 +720,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the initial y-axis coordinate of {@code vertex}
      */
     public double getInitialDisplacementY(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double syi = properties.getSy().getInitialValue();
-        return syi;
+        return store.getInitialSy(slot(vertex));
     }
 
     /**
@@ -652,9 +730,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the start x-axis coordinate of {@code vertex}
      */
     public double getStartDisplacementX(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double sxi = properties.getSx().getValue();
-        return sxi;
+        return store.getSx(slot(vertex));
     }
 
     /**
@@ -664,9 +740,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the start y-axis coordinate of {@code vertex}
      */
     public double getStartDisplacementY(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double syi = properties.getSy().getValue();
-        return syi;
+        return store.getSy(slot(vertex));
     }
 
     /**
@@ -676,9 +750,8 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the end x-axis coordinate of {@code vertex}
      */
     public double getEndDisplacementX(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double time = properties.getTEnd().getValue();
-        return getDisplacementX(vertex, time);
+        final int slot = slot(vertex);
+        return store.getX(slot, store.getTEnd(slot));
     }
 
     /**
@@ -688,9 +761,8 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the end y-axis coordinate of {@code vertex}
      */
     public double getEndDisplacementY(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double time = properties.getTEnd().getValue();
-        return getDisplacementY(vertex, time);
+        final int slot = slot(vertex);
+        return store.getY(slot, store.getTEnd(slot));
     }
 
     /**
@@ -700,9 +772,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the previous start x-axis coordinate of {@code vertex}
      */
     public double getPreviousStartDisplacementX(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double sxp = properties.getSx().getPreviousValue();
-        return sxp;
+        return store.getPreviousSx(slot(vertex));
     }
 
     /**
@@ -712,9 +782,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the previous start y-axis coordinate of {@code vertex}
      */
     public double getPreviousStartDisplacementY(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double syp = properties.getSy().getPreviousValue();
-        return syp;
+        return store.getPreviousSy(slot(vertex));
     }
 
     /**
@@ -738,14 +806,9 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      */
     public double getDisplacementX(final V vertex, final double time)
             throws IllegalArgumentException {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        timeValidationCheck(time, properties);
-
-        final double s = properties.getSx().getValue();
-        final double v = properties.getVx().getValue();
-        final double tStart = properties.getTStart().getValue();
-        final double t = time - tStart;
-        return Motion.solveForFinalDisplacement(s, v, t);
+        final int slot = slot(vertex);
+        timeValidationCheck(time, slot);
+        return store.getX(slot, time);
     }
 
     /**
@@ -769,14 +832,9 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      */
     public double getDisplacementY(final V vertex, final double time)
             throws IllegalArgumentException {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        timeValidationCheck(time, properties);
-
-        final double s = properties.getSy().getValue();
-        final double v = properties.getVy().getValue();
-        final double tStart = properties.getTStart().getValue();
-        final double t = time - tStart;
-        return Motion.solveForFinalDisplacement(s, v, t);
+        final int slot = slot(vertex);
+        timeValidationCheck(time, slot);
+        return store.getY(slot, time);
     }
 
     /**
@@ -786,9 +844,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the x-axis velocity of {@code vertex}
      */
     public double getVelocityX(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double vx = properties.getVx().getValue();
-        return vx;
+        return store.getVx(slot(vertex));
     }
 
     /**
@@ -798,9 +854,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the y-axis velocity of {@code vertex}
      */
     public double getVelocityY(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double vy = properties.getVy().getValue();
-        return vy;
+        return store.getVy(slot(vertex));
     }
 
     /**
@@ -810,9 +864,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the previous x-axis velocity of {@code vertex}
      */
     public double getPreviousVelocityX(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double vxp = properties.getVx().getPreviousValue();
-        return vxp;
+        return store.getPreviousVx(slot(vertex));
     }
 
     /**
@@ -822,9 +874,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the previous y-axis velocity of {@code vertex}
      */
     public double getPreviousVelocityY(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double vyp = properties.getVy().getPreviousValue();
-        return vyp;
+        return store.getPreviousVy(slot(vertex));
     }
 
     /**
@@ -834,8 +884,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the current start time of {@code vertex}
      */
     public double getTimeStart(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        return properties.getTStart().getValue();
+        return store.getTStart(slot(vertex));
     }
 
     /**
@@ -845,8 +894,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the current end time of {@code vertex}
      */
     public double getTimeEnd(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        return properties.getTEnd().getValue();
+        return store.getTEnd(slot(vertex));
     }
 
     /**
@@ -856,9 +904,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the previous start time of {@code vertex}
      */
     public double getPreviousTimeStart(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double tStartPrev = properties.getTStart().getPreviousValue();
-        return tStartPrev;
+        return store.getPreviousTStart(slot(vertex));
     }
 
     /**
@@ -868,9 +914,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return the previous end time of {@code vertex}
      */
     public double getPreviousTimeEnd(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double tEndPrev = properties.getTEnd().getPreviousValue();
-        return tEndPrev;
+        return store.getPreviousTEnd(slot(vertex));
     }
 
     /**
@@ -880,9 +924,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return {@code vertex}'s TX radius.
      */
     public double getRadiusTx(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double radiusTx = properties.getTxRadius().getValue();
-        return radiusTx;
+        return store.getTxRadius(slot(vertex));
     }
 
     /**
@@ -892,9 +934,7 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * @return {@code vertex}'s RX radius.
      */
     public double getRadiusRx(final V vertex) {
-        final VertexProperties<V, E> properties = verticesProperties.get(vertex);
-        final double radiusRx = properties.getRxRadius().getValue();
-        return radiusRx;
+        return store.getRxRadius(slot(vertex));
     }
 
     /**
@@ -907,12 +947,8 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * {@code toVertex}
      */
     public double getRadiusTx(final V fromVertex, final V toVertex) {
-        final VertexProperties<V, E> fromProperties = verticesProperties
-                .get(fromVertex);
-        final VertexProperties<V, E> toProperties = verticesProperties
-                .get(toVertex);
-        final double fromTx = fromProperties.getTxRadius().getValue();
-        final double toRx = toProperties.getRxRadius().getValue();
+        final double fromTx = store.getTxRadius(slot(fromVertex));
+        final double toRx = store.getRxRadius(slot(toVertex));
         return Math.max(fromTx, toRx);
     }
 
@@ -926,12 +962,8 @@ public class NetworkGraph<V, E> extends AbstractSchedulingElementGraph<V, E> imp
      * {@code fromVertex}
      */
     public double getRadiusRx(final V fromVertex, final V toVertex) {
-        final VertexProperties<V, E> fromProperties = verticesProperties
-                .get(fromVertex);
-        final VertexProperties<V, E> toProperties = verticesProperties
-                .get(toVertex);
-        final double fromRx = fromProperties.getRxRadius().getValue();
-        final double toTx = toProperties.getTxRadius().getValue();
+        final double fromRx = store.getRxRadius(slot(fromVertex));
+        final double toTx = store.getTxRadius(slot(toVertex));
         return Math.max(fromRx, toTx);
     }
 
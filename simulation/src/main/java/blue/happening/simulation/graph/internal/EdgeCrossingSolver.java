@@ -0,0 +1,164 @@
+package blue.happening.simulation.graph.internal;
+
+import java.util.Arrays;
+
+
+/**
+ * Solves when one vertex enters and leaves the radio range of many others
+ * while both travel their current legs. The crossings are written to buffers
+ * that are reused by the next call, so solving allocates nothing once the
+ * buffers have grown to the largest batch.
+ * <p>
+ * Every pair is solved in both directions. The squared distance of a pair is
+ * the same polynomial in time either way, so when both directions share the
+ * same radius their roots are computed once.
+ */
+public class EdgeCrossingSolver {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size;
+    private int[] others = new int[INITIAL_CAPACITY];
+    private boolean[] outgoing = new boolean[INITIAL_CAPACITY];
+    private boolean[] additions = new boolean[INITIAL_CAPACITY];
+    private double[] times = new double[INITIAL_CAPACITY];
+
+    /**
+     * Solves the crossings between the vertex in {@code slot} and the
+     * vertices in the first {@code count} elements of {@code slots}. Entries
+     * equal to {@code slot} are skipped.
+     *
+     * @return number of crossings found
+     */
+    public int solve(final VertexStore store, final int slot, final int[] slots, final int count) {
+        size = 0;
+        for (int k = 0; k < count; k++) {
+            final int other = slots[k];
+            if (other == slot)
+                continue;
+
+            final double tStart = Math.max(store.getTStart(slot), store.getTStart(other));
+            final double tEnd = Math.min(store.getTEnd(slot), store.getTEnd(other));
+            if (tStart == tEnd)
+                continue;
+
+            // squared distance over time is a * t^2 + b * t + c0
+            final double dx = store.getSx(slot) - store.getVx(slot) * store.getTStart(slot)
+                    - store.getSx(other) + store.getVx(other) * store.getTStart(other);
+            final double dy = store.getSy(slot) - store.getVy(slot) * store.getTStart(slot)
+                    - store.getSy(other) + store.getVy(other) * store.getTStart(other);
+            final double dvx = store.getVx(slot) - store.getVx(other);
+            final double dvy = store.getVy(slot) - store.getVy(other);
+            final double a = dvx * dvx + dvy * dvy;
+            if (a == 0)
+                continue; // the distance never changes
+
+            final double b = 2 * dx * dvx + 2 * dy * dvy;
+            final double c0 = dx * dx + dy * dy;
+
+            final double outRadius = Math.max(store.getTxRadius(slot), store.getRxRadius(other));
+            final double inRadius = Math.max(store.getTxRadius(other), store.getRxRadius(slot));
+            final int first = size;
+            solvePair(k, true, a, b, c0 - outRadius * outRadius, tStart, tEnd);
+            if (inRadius == outRadius) {
+                final int last = size;
+                for (int i = first; i < last; i++) {
+                    add(k, false, additions[i], times[i]);
+                }
+            } else {
+                solvePair(k, false, a, b, c0 - inRadius * inRadius, tStart, tEnd);
+            }
+        }
+        return size;
+    }
+
+    private void solvePair(final int other, final boolean outgoing, final double a,
+                           final double b, final double c, final double tStart,
+                           final double tEnd) {
+        final double delta = (b * b) - (4 * a * c);
+        if (delta > 0) {
+            final double sqrtDelta = Math.sqrt(delta);
+            final double leaving = (-b + sqrtDelta) / (2.0 * a);
+            final double entering = (-b - sqrtDelta) / (2.0 * a);
+            classify(other, outgoing, leaving, 2 * a * leaving + b, tStart, tEnd);
+            classify(other, outgoing, entering, 2 * a * entering + b, tStart, tEnd);
+        } else if (delta == 0) {
+            classify(other, outgoing, -b / (2 * a), 0, tStart, tEnd);
+        }
+    }
+
+    /**
+     * Turns the root {@code time} of the distance polynomial into an edge
+     * addition or removal, depending on whether the distance grows or shrinks
+     * there and where in the legs of both vertices it lies.
+     */
+    private void classify(final int other, final boolean outgoing, final double time,
+                          final double derivative, final double tStart, final double tEnd) {
+        // keep only valid times
+        if (time < tStart || tEnd < time)
+            return;
+
+        if (derivative > 0) {
+            // leaving range, unless the legs end right there
+            if (time < tEnd)
+                add(other, outgoing, false, time);
+        } else if (derivative == 0) {
+            // touching range, at the start of the legs it is left and at
+            // their end it is entered
+            if (time == tStart)
+                add(other, outgoing, false, time);
+            else if (time == tEnd)
+                add(other, outgoing, true, time);
+        } else if (derivative < 0) {
+            // entering range, unless the legs start right there
+            if (tStart < time)
+                add(other, outgoing, true, time);
+        } else {
+            throw new AssertionError();
+        }
+    }
+
+    private void add(final int other, final boolean outgoing, final boolean addition,
+                     final double time) {
+        if (size == times.length) {
+            final int capacity = size * 2;
+            others = Arrays.copyOf(others, capacity);
+            this.outgoing = Arrays.copyOf(this.outgoing, capacity);
+            additions = Arrays.copyOf(additions, capacity);
+            times = Arrays.copyOf(times, capacity);
+        }
+        others[size] = other;
+        this.outgoing[size] = outgoing;
+        additions[size] = addition;
+        times[size] = time;
+        size++;
+    }
+
+    /**
+     * @return index into the solved slots of the other vertex of crossing
+     * {@code i}
+     */
+    public int getOther(final int i) {
+        return others[i];
+    }
+
+    /**
+     * @return true if crossing {@code i} concerns the edge from the solved
+     * vertex to the other one, false for the edge back
+     */
+    public boolean isOutgoing(final int i) {
+        return outgoing[i];
+    }
+
+    /**
+     * @return true if the edge of crossing {@code i} is added, false if it is
+     * removed
+     */
+    public boolean isAddition(final int i) {
+        return additions[i];
+    }
+
+    public double getTime(final int i) {
+        return times[i];
+    }
+}
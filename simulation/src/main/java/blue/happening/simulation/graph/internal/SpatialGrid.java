@@ -0,0 +1,155 @@
+package blue.happening.simulation.graph.internal;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Uniform grid over the plane that indexes the leg every vertex is currently
+ * travelling. A leg is split into pieces no longer than one cell, and the
+ * vertex is registered in every cell touched by the bounding box of a piece.
+ * A query sweeps another leg the same way, widened by a range, so any vertex
+ * that can come within that range of the queried leg is returned. Legs that
+ * cannot be bounded (infinite travel with a non-zero velocity) are returned
+ * by every query.
+ *
+ * @param <V> the type of vertex
+ */
+public class SpatialGrid<V> {
+
+    // legs are registered slightly widened to absorb rounding in positions
+    private static final double SLACK = 1e-6;
+
+    private final Map<Long, Set<V>> cells = new HashMap<>();
+    private final Map<V, Collection<Long>> registrations = new HashMap<>();
+    private final Set<V> unbounded = new LinkedHashSet<>();
+    private double cellSize;
+
+    public SpatialGrid(final double cellSize) {
+        reset(cellSize);
+    }
+
+    private static long key(final long cellX, final long cellY) {
+        return (cellX << 32) | (cellY & 0xffffffffL);
+    }
+
+    private static boolean isFinite(final double... values) {
+        for (double value : values) {
+            if (Double.isNaN(value) || Double.isInfinite(value))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drops all registrations and changes the cell edge length.
+     *
+     * @param cellSize the new cell edge length, must be positive
+     */
+    public void reset(final double cellSize) {
+        if (!(cellSize > 0) || Double.isInfinite(cellSize))
+            throw new IllegalArgumentException("invalid cell size: " + cellSize);
+        this.cellSize = cellSize;
+        cells.clear();
+        registrations.clear();
+        unbounded.clear();
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Registers {@code vertex} as travelling from ({@code x0},{@code y0}) to
+     * ({@code x1},{@code y1}), replacing any previous leg.
+     */
+    public void update(final V vertex, final double x0, final double y0,
+                       final double x1, final double y1) {
+        remove(vertex);
+        if (!isFinite(x0, y0, x1, y1)) {
+            unbounded.add(vertex);
+            return;
+        }
+        final Collection<Long> keys = sweep(x0, y0, x1, y1, cellSize * SLACK);
+        for (Long key : keys) {
+            Set<V> cell = cells.get(key);
+            if (cell == null) {
+                cell = new LinkedHashSet<>();
+                cells.put(key, cell);
+            }
+            cell.add(vertex);
+        }
+        registrations.put(vertex, keys);
+    }
+
+    public void remove(final V vertex) {
+        unbounded.remove(vertex);
+        final Collection<Long> keys = registrations.remove(vertex);
+        if (keys == null)
+            return;
+        for (Long key : keys) {
+            final Set<V> cell = cells.get(key);
+            cell.remove(vertex);
+            if (cell.isEmpty())
+                cells.remove(key);
+        }
+    }
+
+    /**
+     * Returns every vertex whose registered leg may pass within
+     * {@code range} of the leg from ({@code x0},{@code y0}) to
+     * ({@code x1},{@code y1}). The result may contain vertices that never
+     * actually come that close, but never misses one that does.
+     */
+    public Set<V> query(final double x0, final double y0, final double x1,
+                        final double y1, final double range) {
+        if (!isFinite(x0, y0, x1, y1, range))
+            return getAll();
+
+        final Set<V> result = new LinkedHashSet<>(unbounded);
+        for (Long key : sweep(x0, y0, x1, y1, range)) {
+            final Set<V> cell = cells.get(key);
+            if (cell != null)
+                result.addAll(cell);
+        }
+        return result;
+    }
+
+    private Set<V> getAll() {
+        final Set<V> result = new LinkedHashSet<>(unbounded);
+        result.addAll(registrations.keySet());
+        return result;
+    }
+
+    private Collection<Long> sweep(final double x0, final double y0,
+                                   final double x1, final double y1, final double range) {
+        final Collection<Long> keys = new LinkedHashSet<>();
+        final double length = Math.hypot(x1 - x0, y1 - y0);
+        final int pieces = Math.max(1, (int) Math.ceil(length / cellSize));
+        for (int i = 0; i < pieces; i++) {
+            final double f0 = (double) i / pieces;
+            final double f1 = (double) (i + 1) / pieces;
+            final double ax = x0 + (x1 - x0) * f0;
+            final double ay = y0 + (y1 - y0) * f0;
+            final double bx = x0 + (x1 - x0) * f1;
+            final double by = y0 + (y1 - y0) * f1;
+            final long minX = cell(Math.min(ax, bx) - range);
+            final long maxX = cell(Math.max(ax, bx) + range);
+            final long minY = cell(Math.min(ay, by) - range);
+            final long maxY = cell(Math.max(ay, by) + range);
+            for (long cx = minX; cx <= maxX; cx++) {
+                for (long cy = minY; cy <= maxY; cy++) {
+                    keys.add(key(cx, cy));
+                }
+            }
+        }
+        return keys;
+    }
+
+    private long cell(final double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+}
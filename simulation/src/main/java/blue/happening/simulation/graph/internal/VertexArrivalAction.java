@@ -24,11 +24,10 @@ package blue.happening.simulation.graph.internal;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
 
 import blue.happening.simulation.graph.NetworkGraph;
-import blue.happening.simulation.graph.internal.ExactRootSolver.RootSolution;
 import blue.happening.simulation.mobility.MobilityPattern;
 import blue.happening.simulation.mobility.Waypoint;
 import jsl.modeling.ActionListenerIfc;
@@ -53,6 +52,9 @@ public class VertexArrivalAction<V, E> implements ActionListenerIfc {
     private final NetworkGraph<V, E> graph;
     private final VertexProperties<V, E> vertexProperties;
     private final Scheduler scheduler;
+    private final EdgeCrossingSolver solver = new EdgeCrossingSolver();
+    private final List<V> others = new ArrayList<>();
+    private int[] slots = new int[16];
 
     public VertexArrivalAction(final VertexProperties<V, E> vertexProperties) {
         this.vertexProperties = vertexProperties;
@@ -62,30 +64,25 @@ public class VertexArrivalAction<V, E> implements ActionListenerIfc {
 
     @Override
     public void action(final JSLEvent event) {
+        vertexProperties.cancelEdgeEvents(scheduler, ModelElement.getTime());
         setNewDirection();
         scheduleEdgeEvents();
         rescheduleThisEvent(event);
     }
 
     private void setNewDirection() {
-        final double tEnd = vertexProperties.getTEnd().getValue();
-        final double tStart = vertexProperties.getTStart().getValue();
+        final VertexStore store = vertexProperties.getStore();
+        final int slot = vertexProperties.getSlot();
+        final double tEnd = store.getTEnd(slot);
+        final double tStart = store.getTStart(slot);
         double travelTime = tEnd - tStart;
 
-        // update displacement variables
-        final double sx = vertexProperties.getSx().getValue();
-        final double vx = vertexProperties.getVx().getValue();
-        final double newSx = Motion.solveForFinalDisplacement(sx, vx, travelTime);
-        vertexProperties.getSx().setValue(newSx);
-
-        final double sy = vertexProperties.getSy().getValue();
-        final double vy = vertexProperties.getVy().getValue();
-        final double newSy = Motion.solveForFinalDisplacement(sy, vy, travelTime);
-        vertexProperties.getSy().setValue(newSy);
-
-        // update start time stamp
-        final double newTStart = vertexProperties.getTEnd().getValue();
-        vertexProperties.getTStart().setValue(newTStart);
+        // update displacement and start time stamp
+        final double newSx = Motion.solveForFinalDisplacement(store.getSx(slot),
+                store.getVx(slot), travelTime);
+        final double newSy = Motion.solveForFinalDisplacement(store.getSy(slot),
+                store.getVy(slot), travelTime);
+        store.setStart(slot, newSx, newSy, tEnd);
 
         // the rest of the variables are updated
         // according to the mobilityPattern
@@ -96,88 +93,33 @@ public class VertexArrivalAction<V, E> implements ActionListenerIfc {
         final Waypoint<V, E> nextWaypoint = mobilityPattern
                 .nextWaypoint(graph, vertex);
 
-        // set new velocities
+        // set new velocities and travel time
         final double newVx = nextWaypoint.getVelocityX(graph, vertex);
-        vertexProperties.getVx().setValue(newVx);
         final double newVy = nextWaypoint.getVelocityY(graph, vertex);
-        vertexProperties.getVy().setValue(newVy);
-
-        // set new travel time
         final double newTravelTime = nextWaypoint.getTravelTime(graph, vertex);
-        final double newTEnd = tEnd + newTravelTime;
-        vertexProperties.getTEnd().setValue(newTEnd);
+        store.setMotion(slot, newVx, newVy, tEnd + newTravelTime);
     }
 
     private void scheduleEdgeEvents() {
-        final Collection<V> vertices = graph.getVertices();
-
-        for (V other : vertices) {
-            if (vertexProperties.getVertex() == other)
-                continue;
-
-            scheduleEdgeEvents(vertexProperties.getVertex(), other);
-            scheduleEdgeEvents(other, vertexProperties.getVertex());
-        }
-    }
-
-    private void scheduleEdgeEvents(V from, V to) {
-        final VerticesDistance<V, E> distance = new VerticesDistance<V, E>(graph,
-                from, to);
-        final double tStart = distance.getTStart();
-        final double tEnd = distance.getTEnd();
-
-        if (tStart == tEnd)
-            return;
-
-        final double txRadius = graph.getRadiusTx(from, to);
-        final List<RootSolution> roots = distance.calcTimesAt(txRadius);
-
-        for (RootSolution root : roots) {
-
-            // cases 1, 2, and 3
-            if (root.getDerivative() > 0) {
-                // case 1
-                if (tStart == root.getValue())
-                    scheduleRemoveEdgeEvent(from, to, root.getValue());
-                    // case 2
-                else if (tStart < root.getValue() && root.getValue() < tEnd)
-                    scheduleRemoveEdgeEvent(from, to, root.getValue());
-                    // case 3
-                else if (root.getValue() == tEnd)
-                    continue; // ignore
-                else
-                    throw new AssertionError();
-            }
-            // cases 4, 5, and 6
-            else if (root.getDerivative() == 0) {
-                // case 4
-                if (tStart == root.getValue())
-                    scheduleRemoveEdgeEvent(from, to, root.getValue());
-                    // case 5
-                else if (tStart < root.getValue() && root.getValue() < tEnd)
-                    continue; // ignore
-                    // case 6
-                else if (root.getValue() == tEnd)
-                    scheduleAddEdgeEvent(from, to, root.getValue());
-                else
-                    throw new AssertionError();
-            }
-            // cases 7, 8, and 9
-            else if (root.getDerivative() < 0) {
-                // case 7
-                if (tStart == root.getValue())
-                    continue; // ignore
-                    // case 8
-                else if (tStart < root.getValue() && root.getValue() < tEnd)
-                    scheduleAddEdgeEvent(from, to, root.getValue());
-                    // case 9
-                else if (root.getValue() == tEnd)
-                    scheduleAddEdgeEvent(from, to, root.getValue());
-                else
-                    throw new AssertionError();
-            } else
-                throw new AssertionError();
-
+        final V vertex = vertexProperties.getVertex();
+        graph.updateSpatialIndex(vertex);
+        others.clear();
+        others.addAll(graph.getVerticesInReach(vertex));
+        if (slots.length < others.size())
+            slots = new int[Math.max(others.size(), 2 * slots.length)];
+        for (int k = 0; k < others.size(); k++)
+            slots[k] = graph.getVertexProperties(others.get(k)).getSlot();
+
+        final int crossings = solver.solve(vertexProperties.getStore(),
+                vertexProperties.getSlot(), slots, others.size());
+        for (int i = 0; i < crossings; i++) {
+            final V other = others.get(solver.getOther(i));
+            final V from = solver.isOutgoing(i) ? vertex : other;
+            final V to = solver.isOutgoing(i) ? other : vertex;
+            if (solver.isAddition(i))
+                scheduleAddEdgeEvent(from, to, solver.getTime(i));
+            else
+                scheduleRemoveEdgeEvent(from, to, solver.getTime(i));
         }
     }
 
@@ -186,13 +128,15 @@ public class VertexArrivalAction<V, E> implements ActionListenerIfc {
         ActionListenerIfc addEdgeAction = new ActionListenerIfc() {
             @Override
             public void action(JSLEvent evt) {
+                vertexProperties.untrackEdgeEvent(evt);
                 graph.addEdge(from, to);
             }
         };
 
         final double timeDelta = time - ModelElement.getTime();
-        scheduler.scheduleEvent(vertexProperties, addEdgeAction, timeDelta, "",
+        final JSLEvent event = scheduler.scheduleEvent(vertexProperties, addEdgeAction, timeDelta, "",
                 JSLEvent.DEFAULT_PRIORITY, null);
+        trackEdgeEvent(event, from, to);
 
         logger.debug(
                 "Scheduled edge addition event at time " + time + " from vertex '"
@@ -204,23 +148,30 @@ public class VertexArrivalAction<V, E> implements ActionListenerIfc {
         ActionListenerIfc removeEdgeAction = new ActionListenerIfc() {
             @Override
             public void action(JSLEvent evt) {
+                vertexProperties.untrackEdgeEvent(evt);
                 graph.removeEdge(from, to);
             }
         };
 
         final double timeDelta = time - ModelElement.getTime();
-        scheduler.scheduleEvent(vertexProperties, removeEdgeAction, timeDelta, "",
+        final JSLEvent event = scheduler.scheduleEvent(vertexProperties, removeEdgeAction, timeDelta, "",
                 JSLEvent.DEFAULT_PRIORITY, null);
+        trackEdgeEvent(event, from, to);
 
         logger.debug(
                 "Scheduled edge removal event at time " + time + " from vertex '" + from
                         + "' to vertex '" + to + "'");
     }
 
+    private void trackEdgeEvent(final JSLEvent event, final V from, final V to) {
+        final V other = from == vertexProperties.getVertex() ? to : from;
+        vertexProperties.trackEdgeEvent(event, graph.getVertexProperties(other));
+    }
+
     private void rescheduleThisEvent(final JSLEvent event) {
         final Scheduler scheduler = vertexProperties.getCurrentReplication()
                 .getScheduler();
-        final double tEnd = vertexProperties.getTEnd().getValue();
+        final double tEnd = vertexProperties.getStore().getTEnd(vertexProperties.getSlot());
         final double tNow = ModelElement.getTime();
         final double tDelta = tEnd - tNow;
         scheduler.reschedule(event, tDelta);
@@ -21,14 +21,21 @@
 
 package blue.happening.simulation.graph.internal;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
 import blue.happening.simulation.graph.NetworkGraph;
 import blue.happening.simulation.mobility.MobilityPattern;
+import jsl.modeling.JSLEvent;
+import jsl.modeling.Scheduler;
 import jsl.modeling.SchedulingElement;
-import jsl.modeling.elements.variable.Variable;
 
 
 /**
  * This is the internal representation of vertices inside {@code NetworkGraph}.
+ * The motion state of the vertex is kept in the graph's {@link VertexStore}
+ * at {@link #getSlot()}.
  *
  * @param <V> the type of vertex
  * @param <E> the type of edge
@@ -38,43 +45,23 @@ public class VertexProperties<V, E> extends SchedulingElement {
 
     private final NetworkGraph<V, E> graph;
     private final V vertex;
-
-    // object variables
-    private final Variable sx;
-    private final Variable vx;
-
-    private final Variable sy;
-    private final Variable vy;
-
-    private final Variable tStart;
-    private final Variable tEnd;
-
-    private final Variable txRadius;
-    private final Variable rxRadius;
+    private final VertexStore store;
+    private final int slot;
+    // pending edge events involving this vertex, mapped to the other vertex
+    private final Map<JSLEvent, VertexProperties<V, E>> edgeEvents = new HashMap<>();
 
     private final MobilityPattern<V, E> mobilityPattern;
 
     public VertexProperties(final NetworkGraph<V, E> graph, final String name,
-                            final V vertex, final double sx, final double sy,
-                            final MobilityPattern<V, E> mobilityPattern, final double txRadius,
-                            final double rxRadius) {
+                            final V vertex, final VertexStore store, final double sx,
+                            final double sy, final MobilityPattern<V, E> mobilityPattern,
+                            final double txRadius, final double rxRadius) {
         super(graph, name);
 
         this.graph = graph;
         this.vertex = vertex;
-
-        // construct and set initial values of motion parameters
-        this.sx = new Variable(this, sx);
-        this.vx = new Variable(this);
-
-        this.sy = new Variable(this, sy);
-        this.vy = new Variable(this);
-
-        this.tStart = new Variable(this);
-        this.tEnd = new Variable(this);
-
-        this.txRadius = new Variable(this, txRadius);
-        this.rxRadius = new Variable(this, rxRadius);
+        this.store = store;
+        this.slot = store.add(sx, sy, txRadius, rxRadius);
 
         this.mobilityPattern = mobilityPattern;
     }
@@ -83,9 +70,48 @@ public class VertexProperties<V, E> extends SchedulingElement {
     protected void initialize() {
         final VertexArrivalAction<V, E> action = new VertexArrivalAction<>(this);
         super.initialize();
+        store.reset(slot);
+        edgeEvents.clear();
         scheduleEvent(action, 0);
     }
 
+    /**
+     * Remembers that {@code event} adds or removes an edge between this
+     * vertex and {@code other}, so that it can be cancelled once either of
+     * them changes its trajectory.
+     */
+    void trackEdgeEvent(final JSLEvent event, final VertexProperties<V, E> other) {
+        edgeEvents.put(event, other);
+        other.edgeEvents.put(event, this);
+    }
+
+    /**
+     * Forgets {@code event}, which has fired.
+     */
+    void untrackEdgeEvent(final JSLEvent event) {
+        final VertexProperties<V, E> other = edgeEvents.remove(event);
+        if (other != null)
+            other.edgeEvents.remove(event);
+    }
+
+    /**
+     * Cancels the edge events involving this vertex that were computed for
+     * its previous leg. Events due at {@code time} are kept, they mark
+     * crossings at the very end of that leg.
+     */
+    void cancelEdgeEvents(final Scheduler scheduler, final double time) {
+        final Iterator<Map.Entry<JSLEvent, VertexProperties<V, E>>> iterator = edgeEvents
+                .entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<JSLEvent, VertexProperties<V, E>> entry = iterator.next();
+            if (entry.getKey().getTime() > time) {
+                scheduler.cancelEvent(entry.getKey());
+                entry.getValue().edgeEvents.remove(entry.getKey());
+                iterator.remove();
+            }
+        }
+    }
+
     public NetworkGraph<V, E> getNetworkGraph() {
         return graph;
     }
@@ -94,39 +120,39 @@ public class VertexProperties<V, E> extends SchedulingElement {
         return vertex;
     }
 
-    public Variable getSx() {
-        return sx;
+    public VertexStore getStore() {
+        return store;
     }
 
-    public Variable getVx() {
-        return vx;
+    public int getSlot() {
+        return slot;
     }
 
-    public Variable getSy() {
-        return sy;
+    public double getTxRadius() {
+        return store.getTxRadius(slot);
     }
 
-    public Variable getVy() {
-        return vy;
+    public void setTxRadius(final double txRadius) {
+        store.setTxRadius(slot, txRadius);
     }
 
-    public Variable getTStart() {
-        return tStart;
+    public double getInitialTxRadius() {
+        return store.getInitialTxRadius(slot);
     }
 
-    public Variable getTEnd() {
-        return tEnd;
+    public double getRxRadius() {
+        return store.getRxRadius(slot);
     }
 
-    public Variable getTxRadius() {
-        return txRadius;
+    public void setRxRadius(final double rxRadius) {
+        store.setRxRadius(slot, rxRadius);
     }
 
-    public Variable getRxRadius() {
-        return rxRadius;
+    public double getInitialRxRadius() {
+        return store.getInitialRxRadius(slot);
     }
 
     public MobilityPattern<V, E> getMobilityPattern() {
         return mobilityPattern;
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,247 @@
+package blue.happening.simulation.graph.internal;
+
+import java.util.Arrays;
+
+
+/**
+ * Motion state of all vertices of a {@code NetworkGraph}, kept in one
+ * primitive array per quantity and addressed by the slot a vertex is given
+ * when it is added. Each vertex travels its current leg from
+ * ({@code sx},{@code sy}) at {@code tStart} with velocity
+ * ({@code vx},{@code vy}) until {@code tEnd}. Slots are never reused, so
+ * events still pending for a removed vertex cannot disturb another one.
+ * <p>
+ * Like the JSL variables it replaces, every quantity remembers its value
+ * before the last change, and the positions and radii remember the value the
+ * vertex was added with, which every replication starts from.
+ */
+public class VertexStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size;
+
+    private double[] sx;
+    private double[] sy;
+    private double[] vx;
+    private double[] vy;
+    private double[] tStart;
+    private double[] tEnd;
+    private double[] txRadius;
+    private double[] rxRadius;
+
+    private double[] previousSx;
+    private double[] previousSy;
+    private double[] previousVx;
+    private double[] previousVy;
+    private double[] previousTStart;
+    private double[] previousTEnd;
+
+    private double[] initialSx;
+    private double[] initialSy;
+    private double[] initialTxRadius;
+    private double[] initialRxRadius;
+
+    public VertexStore() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        sx = grow(sx, capacity);
+        sy = grow(sy, capacity);
+        vx = grow(vx, capacity);
+        vy = grow(vy, capacity);
+        tStart = grow(tStart, capacity);
+        tEnd = grow(tEnd, capacity);
+        txRadius = grow(txRadius, capacity);
+        rxRadius = grow(rxRadius, capacity);
+        previousSx = grow(previousSx, capacity);
+        previousSy = grow(previousSy, capacity);
+        previousVx = grow(previousVx, capacity);
+        previousVy = grow(previousVy, capacity);
+        previousTStart = grow(previousTStart, capacity);
+        previousTEnd = grow(previousTEnd, capacity);
+        initialSx = grow(initialSx, capacity);
+        initialSy = grow(initialSy, capacity);
+        initialTxRadius = grow(initialTxRadius, capacity);
+        initialRxRadius = grow(initialRxRadius, capacity);
+    }
+
+    private static double[] grow(double[] array, int capacity) {
+        return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+    }
+
+    /**
+     * Reserves a slot for a vertex resting at ({@code sx},{@code sy}).
+     *
+     * @return slot of the vertex
+     */
+    public int add(double sx, double sy, double txRadius, double rxRadius) {
+        if (size == this.sx.length) {
+            allocate(size * 2);
+        }
+        final int slot = size++;
+        initialSx[slot] = sx;
+        initialSy[slot] = sy;
+        initialTxRadius[slot] = txRadius;
+        initialRxRadius[slot] = rxRadius;
+        reset(slot);
+        return slot;
+    }
+
+    /**
+     * Puts the vertex in {@code slot} back to where it was added, at rest and
+     * with its initial radii.
+     */
+    public void reset(int slot) {
+        sx[slot] = previousSx[slot] = initialSx[slot];
+        sy[slot] = previousSy[slot] = initialSy[slot];
+        vx[slot] = previousVx[slot] = 0;
+        vy[slot] = previousVy[slot] = 0;
+        tStart[slot] = previousTStart[slot] = 0;
+        tEnd[slot] = previousTEnd[slot] = 0;
+        txRadius[slot] = initialTxRadius[slot];
+        rxRadius[slot] = initialRxRadius[slot];
+    }
+
+    /**
+     * Starts a new leg of the vertex in {@code slot} at
+     * ({@code sx},{@code sy}) at time {@code tStart}.
+     */
+    public void setStart(int slot, double sx, double sy, double tStart) {
+        previousSx[slot] = this.sx[slot];
+        previousSy[slot] = this.sy[slot];
+        previousTStart[slot] = this.tStart[slot];
+        this.sx[slot] = sx;
+        this.sy[slot] = sy;
+        this.tStart[slot] = tStart;
+    }
+
+    /**
+     * Sets the velocity the vertex in {@code slot} travels its current leg
+     * with until {@code tEnd}.
+     */
+    public void setMotion(int slot, double vx, double vy, double tEnd) {
+        previousVx[slot] = this.vx[slot];
+        previousVy[slot] = this.vy[slot];
+        previousTEnd[slot] = this.tEnd[slot];
+        this.vx[slot] = vx;
+        this.vy[slot] = vy;
+        this.tEnd[slot] = tEnd;
+    }
+
+    public void setTxRadius(int slot, double txRadius) {
+        this.txRadius[slot] = txRadius;
+    }
+
+    public void setRxRadius(int slot, double rxRadius) {
+        this.rxRadius[slot] = rxRadius;
+    }
+
+    public double getSx(int slot) {
+        return sx[slot];
+    }
+
+    public double getSy(int slot) {
+        return sy[slot];
+    }
+
+    public double getVx(int slot) {
+        return vx[slot];
+    }
+
+    public double getVy(int slot) {
+        return vy[slot];
+    }
+
+    public double getTStart(int slot) {
+        return tStart[slot];
+    }
+
+    public double getTEnd(int slot) {
+        return tEnd[slot];
+    }
+
+    public double getTxRadius(int slot) {
+        return txRadius[slot];
+    }
+
+    public double getRxRadius(int slot) {
+        return rxRadius[slot];
+    }
+
+    public double getPreviousSx(int slot) {
+        return previousSx[slot];
+    }
+
+    public double getPreviousSy(int slot) {
+        return previousSy[slot];
+    }
+
+    public double getPreviousVx(int slot) {
+        return previousVx[slot];
+    }
+
+    public double getPreviousVy(int slot) {
+        return previousVy[slot];
+    }
+
+    public double getPreviousTStart(int slot) {
+        return previousTStart[slot];
+    }
+
+    public double getPreviousTEnd(int slot) {
+        return previousTEnd[slot];
+    }
+
+    public double getInitialSx(int slot) {
+        return initialSx[slot];
+    }
+
+    public double getInitialSy(int slot) {
+        return initialSy[slot];
+    }
+
+    public double getInitialTxRadius(int slot) {
+        return initialTxRadius[slot];
+    }
+
+    public double getInitialRxRadius(int slot) {
+        return initialRxRadius[slot];
+    }
+
+    /**
+     * @return x-axis coordinate of the vertex in {@code slot} at {@code time}
+     */
+    public double getX(int slot, double time) {
+        return Motion.solveForFinalDisplacement(sx[slot], vx[slot], time - tStart[slot]);
+    }
+
+    /**
+     * @return y-axis coordinate of the vertex in {@code slot} at {@code time}
+     */
+    public double getY(int slot, double time) {
+        return Motion.solveForFinalDisplacement(sy[slot], vy[slot], time - tStart[slot]);
+    }
+
+    /**
+     * Writes the coefficients {c0, c1, c2} of the polynomial in time whose
+     * roots are the times at which the vertices in slots {@code i} and
+     * {@code j} are {@code radius} apart, assuming both keep travelling their
+     * current legs.
+     *
+     * @param coefficients array of at least three elements to write to
+     * @return {@code coefficients}
+     */
+    public double[] distancePolynomial(int i, int j, double radius, double[] coefficients) {
+        // relative position at time zero and relative velocity
+        final double dx = sx[i] - vx[i] * tStart[i] - sx[j] + vx[j] * tStart[j];
+        final double dy = sy[i] - vy[i] * tStart[i] - sy[j] + vy[j] * tStart[j];
+        final double dvx = vx[i] - vx[j];
+        final double dvy = vy[i] - vy[j];
+        coefficients[0] = dx * dx + dy * dy - radius * radius;
+        coefficients[1] = 2 * dx * dvx + 2 * dy * dvy;
+        coefficients[2] = dvx * dvx + dvy * dvy;
+        return coefficients;
+    }
+}
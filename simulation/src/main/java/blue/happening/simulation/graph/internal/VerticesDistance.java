@@ -28,8 +28,6 @@ import java.util.List;
 
 import blue.happening.simulation.graph.NetworkGraph;
 
-import static java.lang.Math.pow;
-
 
 /**
  * This class represents physical distance between two vertices.
@@ -59,27 +57,11 @@ public class VerticesDistance<V, E> {
     public static <V, E> PolynomialFunction polynomial(
             final NetworkGraph<V, E> graph, final V v1, final V v2,
             final double radius) {
-
-        final double Sx1 = graph.getStartDisplacementX(v1);
-        final double Vx1 = graph.getVelocityX(v1);
-        final double Sy1 = graph.getStartDisplacementY(v1);
-        final double Vy1 = graph.getVelocityY(v1);
-        final double T1 = graph.getTimeStart(v1);
-
-        final double Sx2 = graph.getStartDisplacementX(v2);
-        final double Vx2 = graph.getVelocityX(v2);
-        final double Sy2 = graph.getStartDisplacementY(v2);
-        final double Vy2 = graph.getVelocityY(v2);
-        final double T2 = graph.getTimeStart(v2);
-
-        final double c0 = pow(Sx1 - Vx1 * T1 - Sx2 + Vx2 * T2, 0.2e1) + pow(
-                Sy1 - Vy1 * T1 - Sy2 + Vy2 * T2, 0.2e1) - (radius * radius);
-        final double c1 =
-                2 * (Sx1 - Vx1 * T1 - Sx2 + Vx2 * T2) * (Vx1 - Vx2) + 2 * (
-                        Sy1 - Vy1 * T1 - Sy2 + Vy2 * T2) * (Vy1 - Vy2);
-        final double c2 = pow(Vx1 - Vx2, 0.2e1) + Math.pow(Vy1 - Vy2, 0.2e1);
-
-        return new PolynomialFunction(new double[]{c0, c1, c2});
+        final VertexProperties<V, E> p1 = graph.getVertexProperties(v1);
+        final VertexProperties<V, E> p2 = graph.getVertexProperties(v2);
+        final double[] coefficients = p1.getStore().distancePolynomial(p1.getSlot(),
+                p2.getSlot(), radius, new double[3]);
+        return new PolynomialFunction(coefficients);
     }
 
     private static double calculateDistance(double x1, double y1, double x2,
@@ -0,0 +1,45 @@
+package blue.happening.simulation.headless;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import blue.happening.simulation.entities.Device;
+import blue.happening.simulation.graph.MeshGraph;
+import jsl.modeling.ActionListenerIfc;
+import jsl.modeling.JSLEvent;
+import jsl.modeling.SchedulingElement;
+
+
+/**
+ * Switches a random device off, or back on, every interval, so that devices
+ * keep leaving and joining the mesh.
+ */
+class ChurnAction extends SchedulingElement implements ActionListenerIfc {
+
+    private final MeshGraph graph;
+    private final double interval;
+    private final Random random;
+
+    ChurnAction(MeshGraph graph, double interval) {
+        super(graph);
+        this.graph = graph;
+        this.interval = interval;
+        this.random = graph.getRandomStreams().stream("churn");
+    }
+
+    @Override
+    protected void initialize() {
+        super.initialize();
+        scheduleEvent(this, interval, getName() + "-event");
+    }
+
+    @Override
+    public void action(JSLEvent event) {
+        List<Device> devices = new ArrayList<>(graph.getVertices());
+        if (!devices.isEmpty()) {
+            devices.get(random.nextInt(devices.size())).toggleEnabled();
+        }
+        rescheduleEvent(event, interval);
+    }
+}
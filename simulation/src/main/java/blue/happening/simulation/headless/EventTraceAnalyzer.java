@@ -0,0 +1,76 @@
+package blue.happening.simulation.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import blue.happening.simulation.statistic.TraceDeliveryStatistician;
+import blue.happening.simulation.statistic.TraceEdgeStatistician;
+import blue.happening.simulation.statistic.TraceFrameStatistician;
+import blue.happening.simulation.trace.EventTraceReader;
+
+
+/**
+ * Analyses event traces recorded by scenarios with {@code trace.events=true}
+ * and prints one CSV row of metrics per trace, without simulating anything.
+ * The measured time runs from {@code -from}, 0 by default, to {@code -to},
+ * the last event of each trace by default.
+ * <p>
+ * Usage: {@code EventTraceAnalyzer [-from time] [-to time] trace.events...}
+ */
+public class EventTraceAnalyzer {
+
+    static final String HEADER = "trace,devices,events,edge count,edge rate,edge duration,sent frames,"
+            + "sent bytes,dropped frames,lost frames,arrived frames,delivered messages,route changes,"
+            + "control bytes per node second,sent messages,delivery ratio,latency p50,latency p90,latency p99";
+
+    public static void main(String[] args) throws IOException {
+        double from = 0;
+        double to = Double.NaN;
+        List<File> traces = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-from") && i + 1 < args.length) {
+                from = Double.parseDouble(args[++i]);
+            } else if (args[i].equals("-to") && i + 1 < args.length) {
+                to = Double.parseDouble(args[++i]);
+            } else {
+                traces.add(new File(args[i]));
+            }
+        }
+        if (traces.isEmpty()) {
+            System.err.println("Usage: EventTraceAnalyzer [-from time] [-to time] trace.events...");
+            System.exit(1);
+        }
+        System.out.println(HEADER);
+        for (File file : traces) {
+            try (EventTraceReader reader = EventTraceReader.open(file)) {
+                System.out.println(file.getName() + "," + analyze(reader, from,
+                        Double.isNaN(to) ? reader.getEndTime() : to));
+            }
+        }
+    }
+
+    static String analyze(EventTraceReader reader, double from, double to) throws IOException {
+        TraceEdgeStatistician edges = new TraceEdgeStatistician(reader, from, to);
+        TraceFrameStatistician frames = new TraceFrameStatistician(reader, from, to);
+        TraceDeliveryStatistician deliveries = new TraceDeliveryStatistician(reader, from, to);
+        return reader.getDevices().size() + "," + reader.getEventCount() + "," + HeadlessRunner.join(new double[]{
+                edges.getAverageEdgeCount(),
+                edges.getEdgeCreationRate(),
+                edges.getAverageEdgeDuration(),
+                frames.getSentFrames(),
+                frames.getSentBytes(),
+                frames.getDroppedFrames(),
+                frames.getLostFrames(),
+                frames.getArrivedFrames(),
+                frames.getDeliveredMessages(),
+                frames.getRouteChanges(),
+                frames.getControlBytesPerDeviceSecond(),
+                deliveries.getSentMessages(),
+                deliveries.getDeliveryRatio(),
+                deliveries.getLatencyPercentile(50),
+                deliveries.getLatencyPercentile(90),
+                deliveries.getLatencyPercentile(99)});
+    }
+}
@@ -0,0 +1,271 @@
+package blue.happening.simulation.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import blue.happening.simulation.entities.RandomStreams;
+import blue.happening.simulation.statistic.ReplicationStoppingRule;
+import jsl.utilities.statistic.Statistic;
+
+
+/**
+ * Runs the replications of many experiment points on a work-stealing pool.
+ * <p>
+ * JSL keeps the simulation clock and its model bookkeeping in static state,
+ * and so does the mesh with its tunables. Two replications can therefore not
+ * share classes while running concurrently. Every worker thread loads the
+ * task class through its own class loader over the application class path,
+ * which gives it a private copy of all of that state.
+ * <p>
+ * A task class must be public, implement {@code Callable<double[]>} and have
+ * a public constructor taking the point's parameters ({@code double[]}) and
+ * the seed of its random stream ({@code long}). Every call of a task runs a
+ * single replication and returns its metrics.
+ */
+public class ExperimentExecutor {
+
+    private final int parallelism;
+    private final URL[] classPath;
+    private final List<URLClassLoader> loaders =
+            Collections.synchronizedList(new ArrayList<URLClassLoader>());
+    private final ThreadLocal<ClassLoader> workerLoader = new ThreadLocal<ClassLoader>() {
+        @Override
+        protected ClassLoader initialValue() {
+            URLClassLoader loader = new URLClassLoader(classPath,
+                    ClassLoader.getSystemClassLoader().getParent());
+            loaders.add(loader);
+            return loader;
+        }
+    };
+
+    public ExperimentExecutor(int parallelism) {
+        this.parallelism = parallelism;
+        this.classPath = getClassPath();
+    }
+
+    private static URL[] getClassPath() {
+        String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+        URL[] urls = new URL[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            try {
+                urls[i] = new File(entries[i]).toURI().toURL();
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException("Invalid class path entry " + entries[i], e);
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Derives the seed of one replication, so that every replication of every
+     * point draws from its own stream.
+     */
+    static long seedOf(long seed, int point, int replication) {
+        return RandomStreams.mix(seed + 0x9E3779B97F4A7C15L * ((long) point << 20 | replication));
+    }
+
+    /**
+     * Runs {@code replications} replications of every point and merges them.
+     *
+     * @param taskClass    task running a single replication
+     * @param points       parameters of every point
+     * @param replications number of replications per point
+     * @param seed         base seed all replication seeds are derived from
+     * @return per point, the statistics of every metric over its replications
+     * @throws InterruptedException If interrupted while waiting for results
+     * @throws ExecutionException   If a replication failed
+     */
+    public List<PointResult> run(Class<? extends Callable<double[]>> taskClass,
+                                 List<double[]> points, int replications, long seed)
+            throws InterruptedException, ExecutionException {
+        return run(taskClass, points, ReplicationStoppingRule.fixed(replications), new int[0], seed);
+    }
+
+    /**
+     * Runs replications of every point until {@code rule} is satisfied by
+     * the metrics at the indices {@code targets}, and merges them. The
+     * minimum number of replications of all points runs first, further
+     * replications only for the points that still need them. Replications
+     * are judged one by one in order, so the number of replications a point
+     * gets does not depend on the parallelism.
+     *
+     * @param taskClass task running a single replication
+     * @param points    parameters of every point
+     * @param rule      rule deciding how many replications a point needs
+     * @param targets   indices of the metrics whose precision is judged
+     * @param seed      base seed all replication seeds are derived from
+     * @return per point, the statistics of every metric over its replications
+     * @throws InterruptedException If interrupted while waiting for results
+     * @throws ExecutionException   If a replication failed
+     */
+    public List<PointResult> run(Class<? extends Callable<double[]>> taskClass, List<double[]> points,
+                                 ReplicationStoppingRule rule, int[] targets, long seed)
+            throws InterruptedException, ExecutionException {
+        List<PointResult> results = new ArrayList<>();
+        for (List<double[]> metrics : runReplications(taskClass, points, rule, targets, seed)) {
+            results.add(merge(metrics));
+        }
+        return results;
+    }
+
+    private List<List<double[]>> runReplications(Class<? extends Callable<double[]>> taskClass, List<double[]> points,
+                                     ReplicationStoppingRule rule, int[] targets, long seed)
+            throws InterruptedException, ExecutionException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<List<double[]>> metrics = new ArrayList<>();
+            List<Statistic[]> statistics = new ArrayList<>();
+            boolean[] done = new boolean[points.size()];
+            for (int p = 0; p < points.size(); p++) {
+                metrics.add(new ArrayList<double[]>());
+                Statistic[] targetStatistics = new Statistic[targets.length];
+                for (int t = 0; t < targets.length; t++) {
+                    targetStatistics[t] = new Statistic();
+                }
+                statistics.add(targetStatistics);
+            }
+
+            int remaining = points.size();
+            while (remaining > 0) {
+                // the first round runs the minimum, later ones spread the workers over the points left
+                List<Callable<double[]>> tasks = new ArrayList<>();
+                int[] batches = new int[points.size()];
+                for (int p = 0; p < points.size(); p++) {
+                    if (done[p]) {
+                        continue;
+                    }
+                    int run = metrics.get(p).size();
+                    int batch = run == 0 ? rule.getMinReplications() : Math.max(1, parallelism / remaining);
+                    batches[p] = Math.min(batch, rule.getMaxReplications() - run);
+                    for (int r = run; r < run + batches[p]; r++) {
+                        tasks.add(new ReplicationTask(taskClass.getName(), points.get(p), seedOf(seed, p, r)));
+                    }
+                }
+                List<Future<double[]>> futures = pool.invokeAll(tasks);
+
+                int next = 0;
+                for (int p = 0; p < points.size(); p++) {
+                    for (int r = 0; r < batches[p]; r++) {
+                        double[] replication = futures.get(next++).get();
+                        if (done[p]) {
+                            continue;
+                        }
+                        metrics.get(p).add(replication);
+                        Statistic[] targetStatistics = statistics.get(p);
+                        for (int t = 0; t < targets.length; t++) {
+                            if (!Double.isNaN(replication[targets[t]])) {
+                                targetStatistics[t].collect(replication[targets[t]]);
+                            }
+                        }
+                        if (rule.isDone(metrics.get(p).size(), targetStatistics)) {
+                            done[p] = true;
+                            remaining--;
+                        }
+                    }
+                }
+            }
+            return metrics;
+        } finally {
+            pool.shutdownNow();
+            closeLoaders();
+        }
+    }
+
+    private PointResult merge(List<double[]> metrics) {
+        int width = metrics.isEmpty() ? 0 : metrics.get(0).length;
+        Statistic[] statistics = new Statistic[width];
+        for (int i = 0; i < width; i++) {
+            statistics[i] = new Statistic();
+            for (double[] replication : metrics) {
+                if (!Double.isNaN(replication[i])) {
+                    statistics[i].collect(replication[i]);
+                }
+            }
+        }
+        return new PointResult(metrics.size(), statistics);
+    }
+
+    private void closeLoaders() {
+        synchronized (loaders) {
+            for (URLClassLoader loader : loaders) {
+                try {
+                    loader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            loaders.clear();
+        }
+    }
+
+    /**
+     * Replications of a single point, merged per metric.
+     */
+    public static class PointResult {
+
+        private final int replications;
+        private final Statistic[] statistics;
+
+        PointResult(int replications, Statistic[] statistics) {
+            this.replications = replications;
+            this.statistics = statistics;
+        }
+
+        /**
+         * @return number of replications run for the point
+         */
+        public int getReplications() {
+            return replications;
+        }
+
+        /**
+         * @param metric index of the metric, as returned by the task
+         * @return statistic of the metric over the replications; replications
+         * reporting {@code NaN} for it are left out, so its count may be
+         * lower than {@link #getReplications()}
+         */
+        public Statistic getStatistic(int metric) {
+            return statistics[metric];
+        }
+    }
+
+    private class ReplicationTask implements Callable<double[]> {
+
+        private final String taskClassName;
+        private final double[] parameters;
+        private final long seed;
+
+        ReplicationTask(String taskClassName, double[] parameters, long seed) {
+            this.taskClassName = taskClassName;
+            this.parameters = parameters;
+            this.seed = seed;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public double[] call() throws Exception {
+            ClassLoader loader = workerLoader.get();
+            Class<?> type = Class.forName(taskClassName, true, loader);
+            Constructor<?> constructor = type.getConstructor(double[].class, long.class);
+            Callable<double[]> task = (Callable<double[]>) constructor.newInstance(parameters.clone(), seed);
+            ClassLoader previous = Thread.currentThread().getContextClassLoader();
+            Thread.currentThread().setContextClassLoader(loader);
+            try {
+                return task.call();
+            } finally {
+                Thread.currentThread().setContextClassLoader(previous);
+            }
+        }
+    }
+}
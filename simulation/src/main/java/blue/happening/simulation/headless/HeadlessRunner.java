@@ -0,0 +1,304 @@
+package blue.happening.simulation.headless;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import blue.happening.mesh.MeshParameters;
+import blue.happening.simulation.entities.Connection;
+import blue.happening.simulation.entities.Device;
+import blue.happening.simulation.entities.FirstSeenPeerPolicy;
+import blue.happening.simulation.entities.NearestPeerPolicy;
+import blue.happening.simulation.entities.RandomStreams;
+import blue.happening.simulation.entities.VirtualMeshScheduler;
+import blue.happening.simulation.graph.MeshGraph;
+import blue.happening.simulation.mobility.MobilityPattern;
+import blue.happening.simulation.mobility.MobilityTrace;
+import blue.happening.simulation.mobility.OscillatingMobilityPattern;
+import blue.happening.simulation.mobility.RandomDSMobilityPattern;
+import blue.happening.simulation.mobility.RectangularBoundary;
+import blue.happening.simulation.mobility.StationaryMobilityPattern;
+import blue.happening.simulation.mobility.TraceMobilityPattern;
+import blue.happening.simulation.statistic.ConvergenceStatistician;
+import blue.happening.simulation.statistic.DeliveryStatistician;
+import blue.happening.simulation.statistic.EdgeCountStatistician;
+import blue.happening.simulation.statistic.EdgeCreationRateStatistician;
+import blue.happening.simulation.statistic.EdgeDurationStatistician;
+import blue.happening.simulation.statistic.OverheadStatistician;
+import blue.happening.simulation.statistic.ReachabilityStatistician;
+import blue.happening.simulation.statistic.ReplicationStoppingRule;
+import blue.happening.simulation.trace.EventRecorder;
+import blue.happening.simulation.visualization.PacingAction;
+import blue.happening.simulation.visualization.PacingController;
+import jsl.modeling.Replication;
+import jsl.utilities.statistic.Statistic;
+
+
+/**
+ * Runs mesh scenarios without any Swing components and writes one CSV file
+ * per scenario, containing a row per replication. Mesh timers and message
+ * deliveries run on the simulated clock, so replications run at CPU speed.
+ * <p>
+ * Usage: {@code HeadlessRunner [-o outputDirectory] scenario.properties...}
+ */
+public class HeadlessRunner {
+
+    static final String METRICS = "edge count,edge rate,edge duration,reachability,"
+            + "sent bytes,sent ucm bytes,dropped frames,convergence time,converged,"
+            + "control bytes per node second,delivery ratio,latency p50,latency p90,latency p99";
+    static final String HEADER = "replication,devices," + METRICS;
+
+    private final Scenario scenario;
+    private final File outputDirectory;
+    private final ReplicationStoppingRule stoppingRule;
+    private final int[] targets;
+    private final Statistic[] targetStatistics;
+    private int replications;
+
+    public HeadlessRunner(Scenario scenario, File outputDirectory) {
+        this.scenario = scenario;
+        this.outputDirectory = outputDirectory;
+        this.stoppingRule = scenario.getStoppingRule();
+        this.targets = scenario.getReplicationTargets();
+        this.targetStatistics = new Statistic[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            targetStatistics[i] = new Statistic();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        File outputDirectory = new File("results");
+        List<File> scenarios = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-o") && i + 1 < args.length) {
+                outputDirectory = new File(args[++i]);
+            } else {
+                scenarios.add(new File(args[i]));
+            }
+        }
+        if (scenarios.isEmpty()) {
+            System.err.println("Usage: HeadlessRunner [-o outputDirectory] scenario.properties...");
+            System.exit(1);
+        }
+        for (File file : scenarios) {
+            new HeadlessRunner(Scenario.load(file), outputDirectory).run();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Runs the replications the scenario's stopping rule asks for, flushing
+     * each row as soon as its replication has ended.
+     *
+     * @return CSV file the metrics have been written to
+     * @throws IOException If the output file cannot be written
+     */
+    public File run() throws IOException {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Could not create " + outputDirectory);
+        }
+        File file = new File(outputDirectory, scenario.getName() + ".csv");
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+            writer.println(HEADER);
+            boolean done = false;
+            for (int i = 1; !done; i++) {
+                // wall-clock time is only logged, it would make the rows irreproducible
+                long start = System.currentTimeMillis();
+                double[] metrics = runReplication(i - 1);
+                writer.println(i + "," + scenario.getDeviceCount() + "," + join(metrics));
+                writer.flush();
+                done = countReplication(metrics);
+                System.out.println(scenario.getName() + ": replication " + i + " of at most "
+                        + stoppingRule.getMaxReplications() + " done in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Adds the target metrics of a replication to their across replication
+     * statistics.
+     *
+     * @param metrics metrics of the replication, as returned by
+     *                {@link #runReplication(int)}
+     * @return True if the scenario's stopping rule needs no further
+     * replication
+     */
+    boolean countReplication(double[] metrics) {
+        replications++;
+        for (int i = 0; i < targets.length; i++) {
+            if (!Double.isNaN(metrics[targets[i]])) {
+                targetStatistics[i].collect(metrics[targets[i]]);
+            }
+        }
+        return stoppingRule.isDone(replications, targetStatistics);
+    }
+
+    static String join(double[] values) {
+        StringBuilder builder = new StringBuilder();
+        for (double value : values) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    private MeshParameters createMeshParameters() {
+        MeshParameters parameters = new MeshParameters();
+        parameters.setOgmInterval(scenario.getOgmInterval());
+        parameters.setPurgeInterval(scenario.getPurgeInterval());
+        parameters.setDeviceExpiration(scenario.getDeviceExpiration());
+        parameters.setHopPenalty(scenario.getHopPenalty());
+        parameters.setSlidingWindowSize(scenario.getWindowSize());
+        return parameters;
+    }
+
+    private MobilityPattern<Device, Connection> createMobilityPattern(RectangularBoundary<Device, Connection> bound,
+                                                                      double sx, Random random) {
+        switch (scenario.getMobility()) {
+            case "static":
+                return new StationaryMobilityPattern<>();
+            case "partition":
+                if (sx >= bound.getX() + bound.getWidth() / 2) {
+                    return new OscillatingMobilityPattern<>(scenario.getPartitionDistance(),
+                            scenario.getPartitionPeriod());
+                }
+                return new StationaryMobilityPattern<>();
+            default:
+                return new RandomDSMobilityPattern<>(bound, scenario.getSpeedMin(), scenario.getSpeedMax(), random);
+        }
+    }
+
+    /**
+     * Builds a fresh graph with fresh devices, so that no routing state leaks
+     * from one replication into the next. All randomness is drawn from
+     * streams split off the scenario's seed and {@code index}, so
+     * running a replication again gives the same results. Replications with
+     * the same index see the same random numbers across scenarios, which
+     * keeps comparisons between scenarios from drowning in noise.
+     *
+     * @param index zero based index of the replication
+     * @return metrics of the replication, in the order of {@link #METRICS}
+     * @throws IOException If the mobility trace cannot be read or the event
+     *                     trace cannot be written
+     */
+    double[] runReplication(int index) throws IOException {
+        RandomStreams streams = new RandomStreams(ExperimentExecutor.seedOf(scenario.getSeed(), 0, index));
+        MeshGraph graph = new MeshGraph(streams);
+        if (scenario.getRealTimeFactor() > 0) {
+            new PacingAction(graph, new PacingController(scenario.getRealTimeFactor()));
+        }
+        VirtualMeshScheduler scheduler = new VirtualMeshScheduler(graph);
+        RectangularBoundary<Device, Connection> bound = new RectangularBoundary<>(0, 0,
+                scenario.getArenaWidth(), scenario.getArenaHeight());
+        Random random = streams.stream("layout");
+        MobilityTrace trace = null;
+        if (scenario.getMobility().equals("trace")) {
+            trace = MobilityTrace.open(scenario.getMobilityTrace());
+            if (trace.getDevices().size() < scenario.getDeviceCount()) {
+                trace.close();
+                throw new IOException(scenario.getMobilityTrace() + " records only "
+                        + trace.getDevices().size() + " devices");
+            }
+        }
+        MeshParameters parameters = createMeshParameters();
+        for (int i = 0; i < scenario.getDeviceCount(); i++) {
+            Device device = new Device("device_" + i, scheduler,
+                    scenario.getMessageDelay(), scenario.getMessageLoss(), streams, parameters);
+            device.setBitRate(scenario.getBitRate());
+            device.setFrameOverhead(scenario.getFrameOverhead());
+            device.setQueueCapacity(scenario.getQueueCapacity());
+            device.setMaxConnections(scenario.getMaxConnections());
+            device.setConnectLatency(scenario.getConnectLatencyMin(), scenario.getConnectLatencyMax());
+            device.setPeerSelectionPolicy(scenario.getPeerPolicy().equals("nearest")
+                    ? new NearestPeerPolicy() : new FirstSeenPeerPolicy());
+            double sx;
+            double sy;
+            if (trace != null) {
+                TraceMobilityPattern<Device, Connection> replay = trace.createPattern(trace.getDevices().get(i));
+                graph.addVertex(device, replay.getStartX(), replay.getStartY(), replay,
+                        scenario.getTxRadius(), scenario.getRxRadius());
+                continue;
+            } else if (scenario.getLayout().equals("grid")) {
+                int columns = (int) Math.ceil(Math.sqrt(scenario.getDeviceCount()));
+                sx = bound.getX() + (i % columns) * scenario.getLayoutSpacing();
+                sy = bound.getY() + (i / columns) * scenario.getLayoutSpacing();
+            } else {
+                sx = bound.getX() + random.nextDouble() * bound.getWidth();
+                sy = bound.getY() + random.nextDouble() * bound.getHeight();
+            }
+            graph.addVertex(device, sx, sy, createMobilityPattern(bound, sx, streams.stream(device.getName() + "/mobility")),
+                    scenario.getTxRadius(), scenario.getRxRadius());
+        }
+        if (trace != null) {
+            // the patterns keep their records mapped
+            trace.close();
+        }
+
+        EdgeCountStatistician<Device, Connection> edgeCount = new EdgeCountStatistician<>(graph);
+        EdgeCreationRateStatistician<Device, Connection> edgeRate = new EdgeCreationRateStatistician<>(graph);
+        EdgeDurationStatistician<Device, Connection> edgeDuration = new EdgeDurationStatistician<>(graph);
+        ReachabilityStatistician reachability = new ReachabilityStatistician(graph, scenario.getSampleInterval());
+        ConvergenceStatistician convergence = new ConvergenceStatistician(graph, scenario.getSampleInterval());
+        OverheadStatistician overhead = new OverheadStatistician(graph, scenario.getSampleInterval());
+        DeliveryStatistician delivery = null;
+        if (scenario.getTrafficInterval() > 0) {
+            delivery = new DeliveryStatistician(graph, scenario.getTrafficInterval(), scenario.getTrafficTimeout());
+        }
+        if (scenario.getChurnInterval() > 0) {
+            new ChurnAction(graph, scenario.getChurnInterval());
+        }
+
+        EventRecorder recorder = null;
+        if (scenario.isRecordingEvents()) {
+            recorder = new EventRecorder(graph, new File(outputDirectory,
+                    scenario.getName() + "-" + (index + 1) + ".events"));
+        }
+
+        Replication replication = new Replication(graph.getModel());
+        replication.setLengthOfReplication(scenario.getReplicationLength());
+        replication.setLengthOfWarmUp(scenario.getWarmUpLength());
+        try {
+            replication.runAll();
+        } finally {
+            if (recorder != null) {
+                recorder.close();
+            }
+            for (Connection connection : graph.getEdges()) {
+                connection.destroy();
+            }
+        }
+
+        long sentBytes = 0;
+        long sentUcmBytes = 0;
+        long droppedFrames = 0;
+        for (Device device : graph.getVertices()) {
+            sentBytes += device.getSentBytes();
+            sentUcmBytes += device.getSentUcmBytes();
+            droppedFrames += device.getDroppedFrames();
+        }
+
+        return new double[]{
+                edgeCount.getAcrossReplicationAverageEdgeCount(),
+                edgeRate.getAcrossReplicationAverageRate(),
+                edgeDuration.getAcrossReplicationAverageEdgeDuration(),
+                reachability.getAcrossReplicationAverageReachability(),
+                sentBytes,
+                sentUcmBytes,
+                droppedFrames,
+                convergence.getAcrossReplicationAverageConvergenceTime(),
+                convergence.getAcrossReplicationAverageConverged(),
+                overhead.getAcrossReplicationAverageControlBytes(),
+                delivery != null ? delivery.getAcrossReplicationAverageDeliveryRatio() : Double.NaN,
+                delivery != null ? delivery.getLatencyPercentile(50) : Double.NaN,
+                delivery != null ? delivery.getLatencyPercentile(90) : Double.NaN,
+                delivery != null ? delivery.getLatencyPercentile(99) : Double.NaN};
+    }
+}
@@ -0,0 +1,385 @@
+package blue.happening.simulation.headless;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import blue.happening.simulation.statistic.ReplicationStoppingRule;
+
+
+/**
+ * Parameters of a headless simulation run, read from a properties file. Every
+ * key is optional and falls back to the values used by the interactive demos,
+ * except that the simulation is not slowed down by default.
+ */
+public class Scenario {
+
+    private final String name;
+    private final int deviceCount;
+    private final double arenaWidth;
+    private final double arenaHeight;
+    private final double txRadius;
+    private final double rxRadius;
+    private final double speedMin;
+    private final double speedMax;
+    private final String layout;
+    private final double layoutSpacing;
+    private final String mobility;
+    private final String mobilityTrace;
+    private final double partitionDistance;
+    private final double partitionPeriod;
+    private final double churnInterval;
+    private final double trafficInterval;
+    private final double trafficTimeout;
+    private final int messageDelay;
+    private final float messageLoss;
+    private final int bitRate;
+    private final int frameOverhead;
+    private final int queueCapacity;
+    private final int maxConnections;
+    private final int connectLatencyMin;
+    private final int connectLatencyMax;
+    private final String peerPolicy;
+    private final double replicationLength;
+    private final double warmUpLength;
+    private final int replications;
+    private final int maxReplications;
+    private final double replicationPrecision;
+    private final double replicationConfidence;
+    private final int[] replicationTargets;
+    private final long seed;
+    private final double sampleInterval;
+    private final double realTimeFactor;
+    private final boolean recordingEvents;
+    private final int ogmInterval;
+    private final int purgeInterval;
+    private final int deviceExpiration;
+    private final int hopPenalty;
+    private final int windowSize;
+
+    public Scenario(Properties properties) {
+        name = properties.getProperty("name", "scenario");
+        deviceCount = Integer.parseInt(properties.getProperty("devices", "10"));
+        arenaWidth = Double.parseDouble(properties.getProperty("arena.width", "500"));
+        arenaHeight = Double.parseDouble(properties.getProperty("arena.height", "500"));
+        txRadius = Double.parseDouble(properties.getProperty("radius.tx", "100"));
+        rxRadius = Double.parseDouble(properties.getProperty("radius.rx", "100"));
+        speedMin = Double.parseDouble(properties.getProperty("speed.min", "0.25"));
+        speedMax = Double.parseDouble(properties.getProperty("speed.max", "0.75"));
+        layout = properties.getProperty("layout", "random");
+        layoutSpacing = Double.parseDouble(properties.getProperty("layout.spacing", "80"));
+        mobility = properties.getProperty("mobility", "random");
+        mobilityTrace = properties.getProperty("mobility.trace", "");
+        partitionDistance = Double.parseDouble(properties.getProperty("partition.distance",
+                String.valueOf(arenaWidth / 2)));
+        partitionPeriod = Double.parseDouble(properties.getProperty("partition.period", "120"));
+        churnInterval = Double.parseDouble(properties.getProperty("churn.interval", "0"));
+        trafficInterval = Double.parseDouble(properties.getProperty("traffic.interval", "0"));
+        trafficTimeout = Double.parseDouble(properties.getProperty("traffic.timeout", "10"));
+        messageDelay = Integer.parseInt(properties.getProperty("message.delay", "240"));
+        messageLoss = Float.parseFloat(properties.getProperty("message.loss", "0.1"));
+        bitRate = Integer.parseInt(properties.getProperty("link.bit_rate", "0"));
+        frameOverhead = Integer.parseInt(properties.getProperty("link.frame_overhead", "0"));
+        queueCapacity = Integer.parseInt(properties.getProperty("link.queue_capacity", "0"));
+        maxConnections = Integer.parseInt(properties.getProperty("piconet.max_connections", "0"));
+        connectLatencyMin = Integer.parseInt(properties.getProperty("piconet.connect_latency.min", "0"));
+        connectLatencyMax = Integer.parseInt(properties.getProperty("piconet.connect_latency.max",
+                String.valueOf(connectLatencyMin)));
+        peerPolicy = properties.getProperty("piconet.policy", "first");
+        replicationLength = Double.parseDouble(properties.getProperty("replication.length", "500"));
+        warmUpLength = Double.parseDouble(properties.getProperty("replication.warmup", "0"));
+        replications = Integer.parseInt(properties.getProperty("replications", "10"));
+        maxReplications = Integer.parseInt(properties.getProperty("replications.max",
+                String.valueOf(replications)));
+        replicationPrecision = Double.parseDouble(properties.getProperty("replications.precision", "0.05"));
+        replicationConfidence = Double.parseDouble(properties.getProperty("replications.confidence", "0.95"));
+        replicationTargets = metricIndices(properties.getProperty("replications.targets", "edge count"));
+        seed = Long.parseLong(properties.getProperty("seed", "1"));
+        sampleInterval = Double.parseDouble(properties.getProperty("sample.interval", "1"));
+        realTimeFactor = Double.parseDouble(properties.getProperty("realtime.factor", "0"));
+        recordingEvents = Boolean.parseBoolean(properties.getProperty("trace.events", "false"));
+        ogmInterval = Integer.parseInt(properties.getProperty("mesh.ogm_interval", "3"));
+        purgeInterval = Integer.parseInt(properties.getProperty("mesh.purge_interval", "8"));
+        deviceExpiration = Integer.parseInt(properties.getProperty("mesh.device_expiration", "8"));
+        hopPenalty = Integer.parseInt(properties.getProperty("mesh.hop_penalty", "15"));
+        windowSize = Integer.parseInt(properties.getProperty("mesh.window_size", "12"));
+
+        if (deviceCount < 1 || replications < 1) {
+            throw new IllegalArgumentException("Scenario " + name + " needs at least one device and replication");
+        } else if (arenaWidth <= 0 || arenaHeight <= 0) {
+            throw new IllegalArgumentException("Scenario " + name + " needs a positive arena size");
+        } else if (speedMin < 0 || speedMax < speedMin) {
+            throw new IllegalArgumentException("Scenario " + name + " has an invalid speed range");
+        } else if (replicationLength <= 0 || sampleInterval <= 0) {
+            throw new IllegalArgumentException("Scenario " + name + " needs a positive replication length and sample interval");
+        } else if (bitRate < 0 || frameOverhead < 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("Scenario " + name + " has a negative link parameter");
+        } else if (maxConnections < 0 || connectLatencyMin < 0 || connectLatencyMax < connectLatencyMin) {
+            throw new IllegalArgumentException("Scenario " + name + " has invalid piconet limits");
+        } else if (!peerPolicy.equals("first") && !peerPolicy.equals("nearest")) {
+            throw new IllegalArgumentException("Scenario " + name + " has unknown piconet policy " + peerPolicy);
+        } else if (!layout.equals("random") && !layout.equals("grid")) {
+            throw new IllegalArgumentException("Scenario " + name + " has unknown layout " + layout);
+        } else if (!mobility.equals("random") && !mobility.equals("static") && !mobility.equals("partition")
+                && !mobility.equals("trace")) {
+            throw new IllegalArgumentException("Scenario " + name + " has unknown mobility " + mobility);
+        } else if (mobility.equals("trace") && mobilityTrace.isEmpty()) {
+            throw new IllegalArgumentException("Scenario " + name + " needs a mobility.trace file");
+        } else if (layoutSpacing <= 0 || partitionPeriod <= 0) {
+            throw new IllegalArgumentException("Scenario " + name + " needs a positive layout spacing and partition period");
+        } else if (churnInterval < 0 || trafficInterval < 0 || trafficTimeout <= 0) {
+            throw new IllegalArgumentException("Scenario " + name + " has invalid churn or traffic intervals");
+        } else if (realTimeFactor < 0) {
+            throw new IllegalArgumentException("Scenario " + name + " has a negative real-time factor");
+        } else if (maxReplications < replications || replicationPrecision < 0
+                || !(replicationConfidence > 0 && replicationConfidence < 1)) {
+            throw new IllegalArgumentException("Scenario " + name + " has invalid adaptive replication settings");
+        } else if (windowSize < 1) {
+            throw new IllegalArgumentException("Scenario " + name + " needs a positive mesh window size");
+        }
+    }
+
+    private int[] metricIndices(String names) {
+        List<String> metrics = Arrays.asList(HeadlessRunner.METRICS.split(","));
+        String[] targets = names.split("\\s*,\\s*");
+        int[] indices = new int[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            indices[i] = metrics.indexOf(targets[i].trim());
+            if (indices[i] < 0) {
+                throw new IllegalArgumentException("Scenario " + name + " has unknown metric " + targets[i]);
+            }
+        }
+        return indices;
+    }
+
+    public static Scenario load(File file) throws IOException {
+        return new Scenario(loadProperties(file));
+    }
+
+    /**
+     * Reads {@code file} and names the scenario after it, unless it sets a
+     * name of its own.
+     */
+    static Properties loadProperties(File file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        }
+        if (properties.getProperty("name") == null) {
+            String fileName = file.getName();
+            int extension = fileName.lastIndexOf('.');
+            properties.setProperty("name", extension > 0 ? fileName.substring(0, extension) : fileName);
+        }
+        return properties;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    public double getArenaWidth() {
+        return arenaWidth;
+    }
+
+    public double getArenaHeight() {
+        return arenaHeight;
+    }
+
+    public double getTxRadius() {
+        return txRadius;
+    }
+
+    public double getRxRadius() {
+        return rxRadius;
+    }
+
+    public double getSpeedMin() {
+        return speedMin;
+    }
+
+    public double getSpeedMax() {
+        return speedMax;
+    }
+
+    /**
+     * @return How devices are placed initially, either "random" or "grid"
+     */
+    public String getLayout() {
+        return layout;
+    }
+
+    public double getLayoutSpacing() {
+        return layoutSpacing;
+    }
+
+    /**
+     * @return How devices move, either "random" waypoints, "static",
+     * "partition", where the devices right of the arena's center repeatedly
+     * move away from the others and come back, or "trace", where the devices
+     * replay the recorded positions of {@link #getMobilityTrace()}
+     */
+    public String getMobility() {
+        return mobility;
+    }
+
+    /**
+     * @return Trace file converted with {@code MobilityTrace}, whose first
+     * devices are replayed in order when the mobility is "trace"
+     */
+    public File getMobilityTrace() {
+        return new File(mobilityTrace);
+    }
+
+    public double getPartitionDistance() {
+        return partitionDistance;
+    }
+
+    public double getPartitionPeriod() {
+        return partitionPeriod;
+    }
+
+    /**
+     * @return Simulated time between switching a random device off or on, or
+     * 0 to keep all devices on
+     */
+    public double getChurnInterval() {
+        return churnInterval;
+    }
+
+    /**
+     * @return Simulated time between benchmark messages, or 0 to send none
+     */
+    public double getTrafficInterval() {
+        return trafficInterval;
+    }
+
+    public double getTrafficTimeout() {
+        return trafficTimeout;
+    }
+
+    public int getMessageDelay() {
+        return messageDelay;
+    }
+
+    public float getMessageLoss() {
+        return messageLoss;
+    }
+
+    public int getBitRate() {
+        return bitRate;
+    }
+
+    public int getFrameOverhead() {
+        return frameOverhead;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getConnectLatencyMin() {
+        return connectLatencyMin;
+    }
+
+    public int getConnectLatencyMax() {
+        return connectLatencyMax;
+    }
+
+    /**
+     * @return Policy picking peers to connect to, either "first" or "nearest"
+     */
+    public String getPeerPolicy() {
+        return peerPolicy;
+    }
+
+    public double getReplicationLength() {
+        return replicationLength;
+    }
+
+    public double getWarmUpLength() {
+        return warmUpLength;
+    }
+
+    public int getReplications() {
+        return replications;
+    }
+
+    /**
+     * @return Decides how many replications to run, {@link #getReplications()}
+     * unless {@code replications.max} is larger, in which case replications
+     * continue until the confidence intervals of the target metrics are
+     * within {@code replications.precision} of their means
+     */
+    public ReplicationStoppingRule getStoppingRule() {
+        return new ReplicationStoppingRule(replications, maxReplications, replicationPrecision,
+                replicationConfidence);
+    }
+
+    /**
+     * @return Indices into {@link HeadlessRunner#METRICS} of the metrics the
+     * stopping rule judges
+     */
+    public int[] getReplicationTargets() {
+        return replicationTargets.clone();
+    }
+
+    /**
+     * @return Root seed all random streams of the scenario's replications are
+     * split off
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public double getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * @return Simulated time units per wall clock second, 0 to run as fast as
+     * possible
+     */
+    public double getRealTimeFactor() {
+        return realTimeFactor;
+    }
+
+    /**
+     * @return True to record an event trace of every replication next to the
+     * scenario's CSV file, for analysing it offline
+     */
+    public boolean isRecordingEvents() {
+        return recordingEvents;
+    }
+
+    public int getOgmInterval() {
+        return ogmInterval;
+    }
+
+    public int getPurgeInterval() {
+        return purgeInterval;
+    }
+
+    public int getDeviceExpiration() {
+        return deviceExpiration;
+    }
+
+    public int getHopPenalty() {
+        return hopPenalty;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+}
@@ -0,0 +1,215 @@
+package blue.happening.simulation.headless;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+
+
+/**
+ * A set of scenarios derived from one base scenario by varying some of its
+ * keys. Sweep files are scenario files with additional keys:
+ * <ul>
+ * <li>{@code sweep.design}: {@code grid} (default), {@code random} or
+ * {@code lhs} for a Latin hypercube</li>
+ * <li>{@code sweep.samples}: number of points of a random or Latin hypercube
+ * design</li>
+ * <li>{@code sweep.seed}: seed the points of a random or Latin hypercube
+ * design are drawn with</li>
+ * <li>{@code sweep.param.<key>}: values of the scenario key {@code <key>},
+ * either a comma separated list or, outside of grids, a {@code min:max}
+ * range. Ranges whose bounds are both integers only yield integers.</li>
+ * </ul>
+ * The points only depend on the sweep file, so a sweep can be generated again
+ * to resume it.
+ */
+public class Sweep {
+
+    static final String PARAM_PREFIX = "sweep.param.";
+
+    private final String name;
+    private final List<String> keys;
+    private final List<Properties> points;
+
+    public Sweep(Properties properties) {
+        Properties base = new Properties();
+        TreeMap<String, Dimension> dimensions = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(PARAM_PREFIX)) {
+                String param = key.substring(PARAM_PREFIX.length());
+                dimensions.put(param, new Dimension(param, properties.getProperty(key)));
+            } else if (!key.startsWith("sweep.")) {
+                base.setProperty(key, properties.getProperty(key));
+            }
+        }
+        name = base.getProperty("name", "sweep");
+        keys = Collections.unmodifiableList(new ArrayList<>(dimensions.keySet()));
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("Sweep " + name + " does not vary any key");
+        }
+
+        String design = properties.getProperty("sweep.design", "grid");
+        List<Dimension> axes = new ArrayList<>(dimensions.values());
+        List<String[]> values;
+        if (design.equals("grid")) {
+            values = grid(axes);
+        } else {
+            int samples = Integer.parseInt(properties.getProperty("sweep.samples", "10"));
+            Random random = new Random(Long.parseLong(properties.getProperty("sweep.seed", "1")));
+            if (samples < 1) {
+                throw new IllegalArgumentException("Sweep " + name + " needs at least one sample");
+            } else if (design.equals("random")) {
+                values = sample(axes, samples, random, false);
+            } else if (design.equals("lhs")) {
+                values = sample(axes, samples, random, true);
+            } else {
+                throw new IllegalArgumentException("Sweep " + name + " has unknown design " + design);
+            }
+        }
+
+        List<Properties> points = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            Properties point = new Properties();
+            point.putAll(base);
+            point.setProperty("name", name + "-" + i);
+            for (int k = 0; k < keys.size(); k++) {
+                point.setProperty(keys.get(k), values.get(i)[k]);
+            }
+            // fail before the sweep starts rather than at a single point
+            new Scenario(point);
+            points.add(point);
+        }
+        this.points = Collections.unmodifiableList(points);
+    }
+
+    public static Sweep load(File file) throws IOException {
+        return new Sweep(Scenario.loadProperties(file));
+    }
+
+    private static List<String[]> grid(List<Dimension> axes) {
+        List<String[]> values = new ArrayList<>();
+        values.add(new String[0]);
+        for (Dimension axis : axes) {
+            if (axis.values == null) {
+                throw new IllegalArgumentException("Grid sweeps need a list of values for " + axis.key);
+            }
+            List<String[]> extended = new ArrayList<>();
+            for (String[] prefix : values) {
+                for (String value : axis.values) {
+                    String[] point = new String[prefix.length + 1];
+                    System.arraycopy(prefix, 0, point, 0, prefix.length);
+                    point[prefix.length] = value;
+                    extended.add(point);
+                }
+            }
+            values = extended;
+        }
+        return values;
+    }
+
+    /**
+     * Draws {@code samples} points. A Latin hypercube splits every axis into
+     * {@code samples} strata and uses each stratum exactly once per axis.
+     */
+    private static List<String[]> sample(List<Dimension> axes, int samples, Random random,
+                                         boolean stratified) {
+        List<String[]> values = new ArrayList<>();
+        for (int i = 0; i < samples; i++) {
+            values.add(new String[axes.size()]);
+        }
+        for (int k = 0; k < axes.size(); k++) {
+            List<Integer> strata = new ArrayList<>();
+            for (int i = 0; i < samples; i++) {
+                strata.add(i);
+            }
+            Collections.shuffle(strata, random);
+            for (int i = 0; i < samples; i++) {
+                double u = stratified
+                        ? (strata.get(i) + random.nextDouble()) / samples
+                        : random.nextDouble();
+                values.get(i)[k] = axes.get(k).valueAt(u);
+            }
+        }
+        return values;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the varied scenario keys, in the order of a point's values
+     */
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return the scenario properties of every point, in sweep order
+     */
+    public List<Properties> getPoints() {
+        return points;
+    }
+
+    private static class Dimension {
+
+        private final String key;
+        private final List<String> values;
+        private final double min;
+        private final double max;
+        private final boolean integral;
+
+        Dimension(String key, String definition) {
+            this.key = key;
+            String[] range = definition.split(":");
+            if (range.length == 2) {
+                values = null;
+                min = Double.parseDouble(range[0].trim());
+                max = Double.parseDouble(range[1].trim());
+                integral = isInteger(range[0].trim()) && isInteger(range[1].trim());
+                if (max < min) {
+                    throw new IllegalArgumentException("Empty range for " + key + ": " + definition);
+                }
+            } else {
+                values = new ArrayList<>();
+                for (String value : definition.split(",")) {
+                    if (!value.trim().isEmpty()) {
+                        values.add(value.trim());
+                    }
+                }
+                min = max = 0;
+                integral = false;
+                if (values.isEmpty()) {
+                    throw new IllegalArgumentException("No values for " + key);
+                }
+            }
+        }
+
+        private static boolean isInteger(String value) {
+            try {
+                Long.parseLong(value);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        /**
+         * @param u position along this axis, from 0 (inclusive) to 1 (exclusive)
+         */
+        String valueAt(double u) {
+            if (values != null) {
+                return values.get(Math.min(values.size() - 1, (int) (u * values.size())));
+            } else if (integral) {
+                long value = (long) Math.floor(min + u * (max - min + 1));
+                return String.valueOf(Math.min((long) max, value));
+            } else {
+                return String.valueOf(min + u * (max - min));
+            }
+        }
+    }
+}
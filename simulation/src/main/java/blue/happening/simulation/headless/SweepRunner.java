@@ -0,0 +1,214 @@
+package blue.happening.simulation.headless;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+
+/**
+ * Runs every point of a {@link Sweep} and appends one CSV row per point as
+ * soon as the point is done. A row holds the mean of every metric over the
+ * replications that reported it, followed by the number of replications and,
+ * per metric, the number of them that went into its mean.
+ * <p>
+ * Running a sweep again continues where it stopped: rows already in the CSV
+ * file are kept and their points skipped, and a row cut short by a crash is
+ * dropped and run again.
+ * <p>
+ * Usage: {@code SweepRunner [-o outputDirectory] sweep.properties...}
+ */
+public class SweepRunner {
+
+    private final Sweep sweep;
+    private final File outputDirectory;
+
+    public SweepRunner(Sweep sweep, File outputDirectory) {
+        this.sweep = sweep;
+        this.outputDirectory = outputDirectory;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File outputDirectory = new File("results");
+        List<File> sweeps = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-o") && i + 1 < args.length) {
+                outputDirectory = new File(args[++i]);
+            } else {
+                sweeps.add(new File(args[i]));
+            }
+        }
+        if (sweeps.isEmpty()) {
+            System.err.println("Usage: SweepRunner [-o outputDirectory] sweep.properties...");
+            System.exit(1);
+        }
+        for (File file : sweeps) {
+            new SweepRunner(Sweep.load(file), outputDirectory).run();
+        }
+        System.exit(0);
+    }
+
+    private String header() {
+        StringBuilder header = new StringBuilder("point");
+        for (String key : sweep.getKeys()) {
+            header.append(',').append(key);
+        }
+        header.append(',').append(HeadlessRunner.METRICS).append(",replications");
+        for (String metric : HeadlessRunner.METRICS.split(",")) {
+            header.append(',').append(metric).append(" replications");
+        }
+        return header.toString();
+    }
+
+    private String parameters(int point) {
+        StringBuilder columns = new StringBuilder(String.valueOf(point));
+        for (String key : sweep.getKeys()) {
+            columns.append(',').append(sweep.getPoints().get(point).getProperty(key));
+        }
+        return columns.toString();
+    }
+
+    /**
+     * Runs all points that have no row in the CSV file yet.
+     *
+     * @return CSV file the rows have been written to
+     * @throws IOException If the output file cannot be written, or belongs to
+     *                     a different sweep
+     */
+    public File run() throws IOException {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Could not create " + outputDirectory);
+        }
+        File file = new File(outputDirectory, sweep.getName() + ".csv");
+        Set<Integer> done = resume(file);
+        List<Properties> points = sweep.getPoints();
+        if (done.size() > 0) {
+            System.out.println(sweep.getName() + ": resuming with " + done.size() + " of "
+                    + points.size() + " points done");
+        }
+
+        try (FileOutputStream out = new FileOutputStream(file, true);
+             PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            if (file.length() == 0) {
+                writer.println(header());
+            }
+            for (int i = 0; i < points.size(); i++) {
+                if (done.contains(i)) {
+                    continue;
+                }
+                Scenario scenario = new Scenario(points.get(i));
+                HeadlessRunner runner = new HeadlessRunner(scenario, outputDirectory);
+                long start = System.currentTimeMillis();
+                double[] sum = null;
+                int[] counts = null;
+                int replications = 0;
+                boolean pointDone = false;
+                while (!pointDone) {
+                    double[] metrics = runner.runReplication(replications++);
+                    if (sum == null) {
+                        sum = new double[metrics.length];
+                        counts = new int[metrics.length];
+                    }
+                    // a replication without e.g. any delivery reports NaN, which would poison the mean
+                    for (int m = 0; m < metrics.length; m++) {
+                        if (!Double.isNaN(metrics[m])) {
+                            sum[m] += metrics[m];
+                            counts[m]++;
+                        }
+                    }
+                    pointDone = runner.countReplication(metrics);
+                }
+                StringBuilder row = new StringBuilder(parameters(i));
+                for (int m = 0; m < sum.length; m++) {
+                    row.append(',').append(counts[m] == 0 ? Double.NaN : sum[m] / counts[m]);
+                }
+                row.append(',').append(replications);
+                for (int count : counts) {
+                    row.append(',').append(count);
+                }
+                writer.println(row);
+                writer.flush();
+                out.getFD().sync();
+                System.out.println(sweep.getName() + ": point " + (i + 1) + " of "
+                        + points.size() + " done after " + replications + " replications in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Reads the points already written to {@code file}. Rows that are
+     * incomplete are removed from the file, so that new rows can be appended.
+     *
+     * @return indices of the points that are done
+     */
+    private Set<Integer> resume(File file) throws IOException {
+        Set<Integer> done = new HashSet<>();
+        if (!file.exists()) {
+            return done;
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        // every complete row ends with a line break, anything after the last one was cut short
+        boolean truncated = false;
+        try (RandomAccessFile access = new RandomAccessFile(file, "r")) {
+            if (access.length() > 0) {
+                access.seek(access.length() - 1);
+                if (access.read() != '\n') {
+                    lines.remove(lines.size() - 1);
+                    truncated = true;
+                }
+            }
+        }
+        if (lines.isEmpty()) {
+            if (truncated && !file.delete()) {
+                throw new IOException("Could not remove " + file);
+            }
+            return done;
+        } else if (!lines.get(0).equals(header())) {
+            throw new IOException(file + " belongs to a different sweep, remove it to start over");
+        }
+
+        List<String> rows = lines.subList(1, lines.size());
+        for (String row : rows) {
+            String[] values = row.split(",", -1);
+            int point = values.length > 0 && values[0].matches("\\d+") ? Integer.parseInt(values[0]) : -1;
+            if (point < 0 || point >= sweep.getPoints().size()
+                    || !row.startsWith(parameters(point) + ",")) {
+                throw new IOException(file + " has row " + Arrays.toString(values)
+                        + " that is not part of this sweep, remove it to start over");
+            }
+            done.add(point);
+        }
+        if (truncated) {
+            File temporary = new File(file.getPath() + ".tmp");
+            try (PrintWriter writer = new PrintWriter(temporary, "UTF-8")) {
+                writer.println(header());
+                for (String row : rows) {
+                    writer.println(row);
+                }
+            }
+            if (!file.delete() || !temporary.renameTo(file)) {
+                throw new IOException("Could not replace " + file);
+            }
+        }
+        return done;
+    }
+}
@@ -0,0 +1,275 @@
+package blue.happening.simulation.mobility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Recorded positions of many devices, read from a binary trace file that is
+ * memory-mapped rather than loaded, so traces of thousands of devices over
+ * many hours only occupy the pages that are being replayed.
+ * <p>
+ * A trace file starts with a header holding the magic number, the format
+ * version and the number of devices, followed by the name, record offset and
+ * record count of every device. The records of a device are stored in one
+ * block, ordered by time, each one being the time since the trace started,
+ * the x and the y coordinate as big-endian floats.
+ * <p>
+ * Trace files are converted from CSV logs with lines of
+ * {@code device,time,x,y}, see {@link #convert(File, File)}.
+ */
+public class MobilityTrace implements Closeable {
+
+    static final int MAGIC = 0x4d545243;
+    static final int VERSION = 1;
+    static final int RECORD_FLOATS = 3;
+    static final int RECORD_BYTES = RECORD_FLOATS * 4;
+
+    // records buffered per device while converting, before they are written
+    private static final int CONVERT_BUFFER_RECORDS = 256;
+
+    private final File file;
+    private final FileChannel channel;
+    private final List<String> devices;
+    private final long[] offsets;
+    private final int[] counts;
+
+    private MobilityTrace(File file, FileChannel channel) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        // the stream is not closed, that would close the channel
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        if (in.readInt() != MAGIC) {
+            throw new IOException(file + " is not a mobility trace");
+        } else if (in.readInt() != VERSION) {
+            throw new IOException(file + " has an unsupported trace version");
+        }
+        int deviceCount = in.readInt();
+        List<String> names = new ArrayList<>(deviceCount);
+        offsets = new long[deviceCount];
+        counts = new int[deviceCount];
+        for (int i = 0; i < deviceCount; i++) {
+            names.add(in.readUTF());
+            offsets[i] = in.readLong();
+            counts[i] = in.readInt();
+            if (counts[i] < 1 || offsets[i] + (long) counts[i] * RECORD_BYTES > channel.size()) {
+                throw new IOException(file + " is truncated");
+            }
+        }
+        devices = Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Usage: {@code MobilityTrace positions.csv positions.trace}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: MobilityTrace positions.csv positions.trace");
+            System.exit(1);
+        }
+        convert(new File(args[0]), new File(args[1]));
+    }
+
+    /**
+     * Opens a trace file. Only its header is read, the records are mapped
+     * once a pattern replays them.
+     *
+     * @throws IOException If {@code file} cannot be read or is no trace
+     */
+    public static MobilityTrace open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return new MobilityTrace(file, raf.getChannel());
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Names of the recorded devices, in the order of the trace file
+     */
+    public List<String> getDevices() {
+        return devices;
+    }
+
+    /**
+     * Creates a pattern replaying the recorded positions of {@code device}.
+     * The pattern stays usable after this trace has been closed.
+     *
+     * @throws IOException If the records cannot be mapped
+     */
+    public <V, E> TraceMobilityPattern<V, E> createPattern(String device) throws IOException {
+        int index = devices.indexOf(device);
+        if (index < 0) {
+            throw new IllegalArgumentException(file + " has no device " + device);
+        }
+        ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, offsets[index],
+                (long) counts[index] * RECORD_BYTES);
+        return new TraceMobilityPattern<>(records.asFloatBuffer());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Converts a CSV position log with lines of {@code device,time,x,y} into
+     * a trace file. Times are in simulated time units and may start anywhere,
+     * the trace starts at the earliest one. The positions of every device
+     * must be in chronological order, but the devices may be interleaved in
+     * any way. Empty lines and a header line are skipped.
+     * <p>
+     * The log is read twice, once to count the records of every device and
+     * once to write them, so it never has to fit into memory.
+     *
+     * @throws IOException If a file cannot be accessed or the log is invalid
+     */
+    public static void convert(File csv, File trace) throws IOException {
+        // first pass, count the records and find the start of the trace
+        Map<String, DeviceBlock> blocks = new LinkedHashMap<>();
+        double start = Double.POSITIVE_INFINITY;
+        try (BufferedReader reader = openLog(csv)) {
+            String line;
+            for (int number = 1; (line = reader.readLine()) != null; number++) {
+                String[] fields = parse(csv, line, number);
+                if (fields == null) {
+                    continue;
+                }
+                DeviceBlock block = blocks.get(fields[0]);
+                if (block == null) {
+                    block = new DeviceBlock();
+                    blocks.put(fields[0], block);
+                }
+                double time = Double.parseDouble(fields[1]);
+                if (time < block.lastTime) {
+                    throw new IOException(csv + ":" + number + ": time of " + fields[0] + " goes backwards");
+                }
+                block.lastTime = time;
+                block.count++;
+                start = Math.min(start, time);
+            }
+        }
+        if (blocks.isEmpty()) {
+            throw new IOException(csv + " contains no positions");
+        }
+
+        // the header has the same size whatever the offsets are
+        long offset = header(blocks).length;
+        for (DeviceBlock block : blocks.values()) {
+            block.offset = offset;
+            block.position = offset;
+            offset += (long) block.count * RECORD_BYTES;
+        }
+
+        // second pass, write every record to the block of its device
+        try (RandomAccessFile raf = new RandomAccessFile(trace, "rw");
+             BufferedReader reader = openLog(csv)) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            channel.write(ByteBuffer.wrap(header(blocks)), 0);
+            String line;
+            for (int number = 1; (line = reader.readLine()) != null; number++) {
+                String[] fields = parse(csv, line, number);
+                if (fields == null) {
+                    continue;
+                }
+                DeviceBlock block = blocks.get(fields[0]);
+                if (block.buffer == null) {
+                    block.buffer = ByteBuffer.allocate(CONVERT_BUFFER_RECORDS * RECORD_BYTES);
+                }
+                block.buffer.putFloat((float) (Double.parseDouble(fields[1]) - start));
+                block.buffer.putFloat(Float.parseFloat(fields[2]));
+                block.buffer.putFloat(Float.parseFloat(fields[3]));
+                if (!block.buffer.hasRemaining()) {
+                    block.flush(channel);
+                }
+            }
+            for (DeviceBlock block : blocks.values()) {
+                block.flush(channel);
+            }
+        }
+    }
+
+    private static BufferedReader openLog(File csv) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(csv), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The fields of {@code line}, or null if it is to be skipped
+     */
+    private static String[] parse(File csv, String line, int number) throws IOException {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        String[] fields = trimmed.split("\\s*,\\s*");
+        if (fields.length != 4) {
+            throw new IOException(csv + ":" + number + ": expected device,time,x,y");
+        }
+        try {
+            Double.parseDouble(fields[1]);
+            Float.parseFloat(fields[2]);
+            Float.parseFloat(fields[3]);
+        } catch (NumberFormatException e) {
+            if (number == 1) {
+                return null;
+            }
+            throw new IOException(csv + ":" + number + ": " + e.getMessage());
+        }
+        return fields;
+    }
+
+    private static byte[] header(Map<String, DeviceBlock> blocks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(blocks.size());
+        for (Map.Entry<String, DeviceBlock> entry : blocks.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue().offset);
+            out.writeInt(entry.getValue().count);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static class DeviceBlock {
+        int count;
+        double lastTime = Double.NEGATIVE_INFINITY;
+        long offset;
+        long position;
+        ByteBuffer buffer;
+
+        void flush(FileChannel channel) throws IOException {
+            if (buffer == null) {
+                return;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+}
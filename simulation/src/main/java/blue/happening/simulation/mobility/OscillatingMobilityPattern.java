@@ -0,0 +1,68 @@
+package blue.happening.simulation.mobility;
+
+import blue.happening.simulation.graph.NetworkGraph;
+
+
+/**
+ * A mobility pattern that moves a vertex {@code distanceX} away from where it
+ * started and back again, over and over. Every cycle takes {@code period}
+ * and is split into four equal phases: moving away, staying away, moving back
+ * and staying home. Assigning it to some vertices of a group splits the group
+ * and merges it again at known times.
+ * <p>
+ * This mobility pattern is not sharable, it tracks the phase of its vertex.
+ *
+ * @param <V> the type of vertex
+ * @param <E> the type of edge
+ */
+public final class OscillatingMobilityPattern<V, E> implements MobilityPattern<V, E> {
+
+    private final double distanceX;
+    private final double period;
+    private int phase;
+    private Waypoint<V, E> startpoint;
+
+    /**
+     * @param distanceX displacement along the x axis at the far end, may be
+     *                  negative
+     * @param period    duration of a full cycle, must be positive
+     */
+    public OscillatingMobilityPattern(final double distanceX, final double period) {
+        if (!(period > 0))
+            throw new IllegalArgumentException("invalid period: " + period);
+        this.distanceX = distanceX;
+        this.period = period;
+    }
+
+    @Override
+    public Waypoint<V, E> nextWaypoint(final NetworkGraph<V, E> networkGraph, final V vertex) {
+        final double quarter = period / 4;
+        final double velocity;
+        switch (phase) {
+            case 0:
+                velocity = distanceX / quarter;
+                break;
+            case 2:
+                velocity = -distanceX / quarter;
+                break;
+            default:
+                velocity = 0;
+        }
+        phase = (phase + 1) % 4;
+        return new VTWaypoint<>(velocity, 0, quarter);
+    }
+
+    @Override
+    public Waypoint<V, E> getStartpoint(NetworkGraph<V, E> networkGraph, V vertex) {
+        return startpoint;
+    }
+
+    @Override
+    public void setStartpoint(Waypoint<V, E> startpoint) {
+        this.startpoint = startpoint;
+    }
+
+    @Override
+    public void nudge(double width, double height) {
+    }
+}
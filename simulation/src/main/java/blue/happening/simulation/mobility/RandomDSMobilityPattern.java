@@ -61,11 +61,28 @@ public final class RandomDSMobilityPattern<V, E> implements MobilityPattern<V, E
      */
     public RandomDSMobilityPattern(final RectangularBoundary<V, E> boundary,
                                    final double speedMin, final double speedMax) {
+        this(boundary, speedMin, speedMax, new Random());
+    }
+
+    /**
+     * Constructs a new {@code RandomDSMobilityPattern} like
+     * {@link #RandomDSMobilityPattern(RectangularBoundary, double, double)},
+     * drawing displacements and speeds from {@code random}.
+     *
+     * @param boundary a {@code RectangularBoundary} defining the limits of
+     *                 displacement
+     * @param speedMin minimum speed (inclusive)
+     * @param speedMax maximum speed (exclusive)
+     * @param random   source of the random displacements and speeds
+     */
+    public RandomDSMobilityPattern(final RectangularBoundary<V, E> boundary,
+                                   final double speedMin, final double speedMax,
+                                   final Random random) {
 
         this.boundary = boundary;
         this.speedMin = speedMin;
         this.speedMax = speedMax;
-        this.random = new Random();
+        this.random = random;
     }
 
     @Override
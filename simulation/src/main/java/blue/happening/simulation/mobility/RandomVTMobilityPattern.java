@@ -67,14 +67,32 @@ public final class RandomVTMobilityPattern<V, E> implements MobilityPattern<V, E
     public RandomVTMobilityPattern(final double vxMin, final double vxMax,
                                    final double vyMin, final double vyMax, final double travelTimeMin,
                                    final double travelTimeMax) {
+        this(vxMin, vxMax, vyMin, vyMax, travelTimeMin, travelTimeMax, new Random());
+    }
+
+    /**
+     * Constructs a new {@code RandomVTMobilityPattern} like
+     * {@link #RandomVTMobilityPattern(double, double, double, double, double, double)},
+     * drawing velocities and travel times from {@code random}.
+     *
+     * @param vxMin         minimum x-axis velocity (inclusive)
+     * @param vxMax         maximum x-axis velocity (exclusive)
+     * @param vyMin         minimum y-axis velocity (inclusive)
+     * @param vyMax         maximum y-axis velocity (exclusive)
+     * @param travelTimeMin minimum travel time (inclusive)
+     * @param travelTimeMax maximum travel time (exclusive)
+     * @param random        source of the random velocities and travel times
+     */
+    public RandomVTMobilityPattern(final double vxMin, final double vxMax,
+                                   final double vyMin, final double vyMax, final double travelTimeMin,
+                                   final double travelTimeMax, final Random random) {
         this.vxMin = vxMin;
         this.vxMax = vxMax;
         this.vyMin = vyMin;
         this.vyMax = vyMax;
         this.travelTimeMin = travelTimeMin;
         this.travelTimeMax = travelTimeMax;
-
-        this.random = new Random();
+        this.random = random;
     }
 
     @Override
@@ -0,0 +1,120 @@
+package blue.happening.simulation.mobility;
+
+import java.nio.FloatBuffer;
+
+import blue.happening.simulation.graph.NetworkGraph;
+
+
+/**
+ * A mobility pattern that replays the recorded positions of one device of a
+ * {@link MobilityTrace}. The vertex moves in a straight line from each
+ * recorded position to the next one, arriving at the recorded time. Before
+ * its first record the vertex waits at the first recorded position, after its
+ * last record it stays where it was last seen.
+ * <p>
+ * Records are read from the mapped trace file as the vertex reaches them.
+ * When a new replication starts at an earlier time, the replay seeks back to
+ * it.
+ * <p>
+ * This mobility pattern is not sharable, it tracks the replay position of its
+ * vertex.
+ *
+ * @param <V> the type of vertex
+ * @param <E> the type of edge
+ */
+public final class TraceMobilityPattern<V, E> implements MobilityPattern<V, E> {
+
+    // records closer to the current time than this count as reached
+    private static final double EPSILON = 1e-9;
+
+    private final Waypoint<V, E> stationaryWaypoint = new VTWaypoint<>(0, 0, Double.POSITIVE_INFINITY);
+    private final FloatBuffer records;
+    private final int count;
+    private int next;
+    private Waypoint<V, E> startpoint;
+
+    TraceMobilityPattern(final FloatBuffer records) {
+        this.records = records;
+        this.count = records.limit() / MobilityTrace.RECORD_FLOATS;
+    }
+
+    /**
+     * @return x-axis coordinate of the first recorded position
+     */
+    public double getStartX() {
+        return getX(0);
+    }
+
+    /**
+     * @return y-axis coordinate of the first recorded position
+     */
+    public double getStartY() {
+        return getY(0);
+    }
+
+    /**
+     * @return time of the last recorded position, after which the vertex
+     * stays where it is
+     */
+    public double getEndTime() {
+        return getTime(count - 1);
+    }
+
+    @Override
+    public Waypoint<V, E> nextWaypoint(final NetworkGraph<V, E> networkGraph, final V vertex) {
+        final double now = networkGraph.getTimeEnd(vertex);
+        if (next > 0 && getTime(next - 1) > now + EPSILON) {
+            next = seek(now);
+        }
+        while (next < count && getTime(next) <= now + EPSILON) {
+            next++;
+        }
+        if (next == count) {
+            return stationaryWaypoint;
+        }
+        return new DTWaypoint<>(getX(next), getY(next), getTime(next) - now);
+    }
+
+    /**
+     * @return index of the first record after {@code time}
+     */
+    private int seek(final double time) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (getTime(middle) <= time + EPSILON) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private double getTime(final int index) {
+        return records.get(index * MobilityTrace.RECORD_FLOATS);
+    }
+
+    private double getX(final int index) {
+        return records.get(index * MobilityTrace.RECORD_FLOATS + 1);
+    }
+
+    private double getY(final int index) {
+        return records.get(index * MobilityTrace.RECORD_FLOATS + 2);
+    }
+
+    @Override
+    public Waypoint<V, E> getStartpoint(NetworkGraph<V, E> networkGraph, V vertex) {
+        return startpoint;
+    }
+
+    @Override
+    public void setStartpoint(Waypoint<V, E> startpoint) {
+        this.startpoint = startpoint;
+    }
+
+    @Override
+    public void nudge(double width, double height) {
+    }
+}
@@ -0,0 +1,138 @@
+package blue.happening.simulation.statistic;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import blue.happening.mesh.MeshDevice;
+import blue.happening.simulation.entities.Connection;
+import blue.happening.simulation.entities.Device;
+import blue.happening.simulation.entities.PiconetManager;
+import blue.happening.simulation.graph.MeshGraph;
+import blue.happening.simulation.graph.NetworkGraph;
+import blue.happening.simulation.graph.NetworkGraphObserver;
+import jsl.modeling.ActionListenerIfc;
+import jsl.modeling.JSLEvent;
+import jsl.modeling.SchedulingElement;
+import jsl.modeling.elements.variable.ResponseVariable;
+
+
+/**
+ * Samples whether the mesh has converged, meaning every device has a route to
+ * exactly the devices it is connected to through the current links. Records
+ * how long the mesh took to converge again after the topology changed, and
+ * the share of samples it was converged.
+ */
+public class ConvergenceStatistician extends SchedulingElement implements ActionListenerIfc {
+
+    private final MeshGraph graph;
+    private final double interval;
+    private final ResponseVariable convergenceTime;
+    private final ResponseVariable converged;
+    private double lastChange;
+    private double disturbedAt;
+
+    public ConvergenceStatistician(MeshGraph graph, double interval) {
+        super(graph);
+        this.graph = graph;
+        this.interval = interval;
+        this.convergenceTime = new ResponseVariable(this);
+        this.converged = new ResponseVariable(this);
+        graph.addObserver(new TopologyObserver());
+    }
+
+    @Override
+    protected void initialize() {
+        super.initialize();
+        lastChange = 0;
+        disturbedAt = Double.NaN;
+        scheduleEvent(this, interval, getName() + "-event");
+    }
+
+    @Override
+    public void action(JSLEvent event) {
+        if (isConverged()) {
+            if (!Double.isNaN(disturbedAt)) {
+                convergenceTime.setValue(getTime() - disturbedAt);
+                disturbedAt = Double.NaN;
+            }
+            converged.setValue(1);
+        } else {
+            if (Double.isNaN(disturbedAt)) {
+                disturbedAt = lastChange;
+            }
+            converged.setValue(0);
+        }
+        rescheduleEvent(event, interval);
+    }
+
+    private boolean isConverged() {
+        PiconetManager piconet = graph.getPiconetManager();
+        Map<Device, Set<String>> components = new HashMap<>();
+        for (Device device : graph.getVertices()) {
+            if (components.containsKey(device)) {
+                continue;
+            }
+            Set<String> component = new HashSet<>();
+            Queue<Device> queue = new ArrayDeque<>();
+            queue.add(device);
+            components.put(device, component);
+            while (!queue.isEmpty()) {
+                Device next = queue.remove();
+                component.add(next.getName());
+                for (Device peer : piconet.getConnectedPeers(next)) {
+                    if (!components.containsKey(peer)) {
+                        components.put(peer, component);
+                        queue.add(peer);
+                    }
+                }
+            }
+        }
+
+        for (Device device : graph.getVertices()) {
+            Set<String> component = components.get(device);
+            List<MeshDevice> routes = device.getDevices();
+            if (routes.size() != component.size() - 1) {
+                return false;
+            }
+            for (MeshDevice route : routes) {
+                if (route.getUuid().equals(device.getName()) || !component.contains(route.getUuid())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Average simulated time from a topology change until every
+     * device had converged again
+     */
+    public double getAcrossReplicationAverageConvergenceTime() {
+        return convergenceTime.getAcrossReplicationAverage();
+    }
+
+    /**
+     * @return Share of samples at which the mesh had converged
+     */
+    public double getAcrossReplicationAverageConverged() {
+        return converged.getAcrossReplicationAverage();
+    }
+
+    private class TopologyObserver extends NetworkGraphObserver<Device, Connection> {
+
+        @Override
+        protected void addedEdge(NetworkGraph<Device, Connection> networkGraph, Connection edge) {
+            lastChange = getTime();
+        }
+
+        @Override
+        protected void removedEdge(NetworkGraph<Device, Connection> networkGraph, Connection edge) {
+            lastChange = getTime();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package blue.happening.simulation.statistic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Random;
+import java.util.Set;
+
+import blue.happening.simulation.entities.Device;
+import blue.happening.simulation.entities.VirtualMeshScheduler;
+import blue.happening.simulation.graph.MeshGraph;
+import blue.happening.simulation.visualization.listener.DeviceObserver;
+import jsl.modeling.ActionListenerIfc;
+import jsl.modeling.JSLEvent;
+import jsl.modeling.SchedulingElement;
+import jsl.modeling.elements.variable.ResponseVariable;
+
+
+/**
+ * Sends a unicast message between two random enabled devices every interval
+ * and tracks whether it arrives within the timeout, given in simulated time
+ * units. Records the delivery ratio
+ * and the end-to-end latency of delivered messages.
+ */
+public class DeliveryStatistician extends SchedulingElement implements ActionListenerIfc, Observer {
+
+    private static final String PREFIX = "bench:";
+
+    private final MeshGraph graph;
+    private final double interval;
+    private final double timeout;
+    private final Random random;
+    private final ResponseVariable delivered;
+    private final ResponseVariable latency;
+    // guarded by this, deliveries arrive on the mesh threads
+    private final Map<Long, Double> pending = new LinkedHashMap<>();
+    private final Set<Long> arrived = new HashSet<>();
+    private final List<Double> latencies = new ArrayList<>();
+    private final List<Double> unrecorded = new ArrayList<>();
+    private long nextId;
+
+    public DeliveryStatistician(MeshGraph graph, double interval, double timeout) {
+        super(graph);
+        this.graph = graph;
+        this.interval = interval;
+        this.timeout = timeout;
+        this.random = graph.getRandomStreams().stream("delivery");
+        this.delivered = new ResponseVariable(this);
+        this.latency = new ResponseVariable(this);
+    }
+
+    @Override
+    protected void initialize() {
+        super.initialize();
+        synchronized (this) {
+            pending.clear();
+            arrived.clear();
+            unrecorded.clear();
+        }
+        for (Device device : graph.getVertices()) {
+            device.deleteObserver(this);
+            device.addObserver(this);
+        }
+        scheduleEvent(this, interval, getName() + "-event");
+    }
+
+    @Override
+    public void action(JSLEvent event) {
+        recordOutcomes();
+        List<Device> devices = new ArrayList<>();
+        for (Device device : graph.getVertices()) {
+            if (device.isEnabled()) {
+                devices.add(device);
+            }
+        }
+        if (devices.size() > 1) {
+            Device source = devices.remove(random.nextInt(devices.size()));
+            Device destination = devices.get(random.nextInt(devices.size()));
+            long id;
+            synchronized (this) {
+                id = nextId++;
+                pending.put(id, getTime());
+            }
+            byte[] body = (PREFIX + id).getBytes(StandardCharsets.UTF_8);
+            source.sendMessage(body, destination.getName());
+        }
+        rescheduleEvent(event, interval);
+    }
+
+    private synchronized void recordOutcomes() {
+        for (Double value : unrecorded) {
+            latency.setValue(value);
+        }
+        unrecorded.clear();
+        double deadline = getTime() - timeout;
+        Iterator<Map.Entry<Long, Double>> i = pending.entrySet().iterator();
+        while (i.hasNext()) {
+            Map.Entry<Long, Double> entry = i.next();
+            boolean hasArrived = arrived.remove(entry.getKey());
+            if (hasArrived) {
+                delivered.setValue(1);
+                i.remove();
+            } else if (entry.getValue() <= deadline) {
+                delivered.setValue(0);
+                i.remove();
+            }
+        }
+    }
+
+    @Override
+    public void update(Observable observable, Object arg) {
+        Device.DeviceChangedEvent event = (Device.DeviceChangedEvent) arg;
+        if (event.getType() != DeviceObserver.Events.MESSAGE_RECEIVED) {
+            return;
+        }
+        String body = new String((byte[]) event.getOptions(), StandardCharsets.UTF_8);
+        if (!body.startsWith(PREFIX)) {
+            return;
+        }
+        long id;
+        try {
+            id = Long.parseLong(body.substring(PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        synchronized (this) {
+            Double sentAt = pending.get(id);
+            // late arrivals are left to be recorded as lost
+            if (sentAt != null && getTime() - sentAt <= timeout && arrived.add(id)) {
+                double millis = (getTime() - sentAt) * VirtualMeshScheduler.MILLIS_PER_TIME_UNIT;
+                latencies.add(millis);
+                unrecorded.add(millis);
+            }
+        }
+    }
+
+    /**
+     * @return Share of messages that arrived within the timeout
+     */
+    public double getAcrossReplicationAverageDeliveryRatio() {
+        return delivered.getAcrossReplicationAverage();
+    }
+
+    /**
+     * @return Average milliseconds from sending to delivery
+     */
+    public double getAcrossReplicationAverageLatency() {
+        return latency.getAcrossReplicationAverage();
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return Milliseconds from sending to delivery that {@code percentile}
+     * percent of all delivered messages did not exceed, or NaN if none
+     * arrived
+     */
+    public synchronized double getLatencyPercentile(double percentile) {
+        if (latencies.isEmpty()) {
+            return Double.NaN;
+        }
+        List<Double> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+}
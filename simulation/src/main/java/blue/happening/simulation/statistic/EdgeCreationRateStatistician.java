@@ -21,12 +21,11 @@
 
 package blue.happening.simulation.statistic;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import blue.happening.simulation.graph.NetworkGraph;
 import blue.happening.simulation.graph.NetworkGraphObserver;
 import jsl.modeling.ModelElement;
+import jsl.utilities.statistic.Statistic;
+import jsl.utilities.statistic.StatisticAccessorIfc;
 
 
 /**
@@ -45,13 +44,26 @@ import jsl.modeling.ModelElement;
  */
 public class EdgeCreationRateStatistician<V, E> {
 
-    private final List<Double> samlpes = new ArrayList<Double>();
+    private final Statistic rates = new Statistic();
     private double counter;
 
     public EdgeCreationRateStatistician(final NetworkGraph<V, E> graph) {
         graph.addObserver(new EdgeDurationMeterObserver());
     }
 
+    /**
+     * Returns a {@code statisticAccessorIfc} for the across replication
+     * statistics for the edge creation rate.
+     * <p>
+     * Call this <em>after</em> the simulation is over.
+     *
+     * @return a {@code statisticAccessorIfc} for the across replication
+     * statistics that have been collected
+     */
+    public StatisticAccessorIfc getAcrossReplicationStatistic() {
+        return rates;
+    }
+
     /**
      * Returns the average edge creation rate.
      * <p>
@@ -60,18 +72,14 @@ public class EdgeCreationRateStatistician<V, E> {
      * @return the average edge creation rate.
      */
     public double getAcrossReplicationAverageRate() {
-        double sum = 0;
-        for (double d : samlpes) {
-            sum += d;
-        }
-        return (sum / samlpes.size());
+        return rates.getCount() == 0 ? Double.NaN : rates.getAverage();
     }
 
     private class EdgeDurationMeterObserver extends NetworkGraphObserver<V, E> {
 
         @Override
         protected void beforeExperiment(ModelElement m, Object arg) {
-            samlpes.clear();
+            rates.reset();
         }
 
         @Override
@@ -87,7 +95,7 @@ public class EdgeCreationRateStatistician<V, E> {
         @Override
         protected void afterReplication(ModelElement m, Object arg) {
             final double time = m.getCurrentReplication().getTime();
-            samlpes.add(counter / time);
+            rates.collect(counter / time);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package blue.happening.simulation.statistic;
+
+import blue.happening.simulation.entities.Device;
+import blue.happening.simulation.graph.MeshGraph;
+import jsl.modeling.ActionListenerIfc;
+import jsl.modeling.JSLEvent;
+import jsl.modeling.SchedulingElement;
+import jsl.modeling.elements.variable.ResponseVariable;
+
+
+/**
+ * Samples the bytes devices spend on everything but unicast messages, like
+ * OGMs, probes and route discovery, including frame overhead.
+ */
+public class OverheadStatistician extends SchedulingElement implements ActionListenerIfc {
+
+    private final MeshGraph graph;
+    private final double interval;
+    private final ResponseVariable controlBytes;
+    private long lastTotal;
+
+    public OverheadStatistician(MeshGraph graph, double interval) {
+        super(graph);
+        this.graph = graph;
+        this.interval = interval;
+        this.controlBytes = new ResponseVariable(this);
+    }
+
+    private long getTotal() {
+        long total = 0;
+        for (Device device : graph.getVertices()) {
+            total += device.getSentControlBytes();
+        }
+        return total;
+    }
+
+    @Override
+    protected void initialize() {
+        super.initialize();
+        lastTotal = getTotal();
+        scheduleEvent(this, interval, getName() + "-event");
+    }
+
+    @Override
+    public void action(JSLEvent event) {
+        long total = getTotal();
+        if (graph.getVertexCount() > 0) {
+            controlBytes.setValue((total - lastTotal) / interval / graph.getVertexCount());
+        }
+        lastTotal = total;
+        rescheduleEvent(event, interval);
+    }
+
+    /**
+     * @return Control bytes sent per device and simulated second
+     */
+    public double getAcrossReplicationAverageControlBytes() {
+        return controlBytes.getAcrossReplicationAverage();
+    }
+}
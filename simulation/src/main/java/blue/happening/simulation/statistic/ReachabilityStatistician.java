@@ -0,0 +1,50 @@
+package blue.happening.simulation.statistic;
+
+import blue.happening.simulation.entities.Device;
+import blue.happening.simulation.graph.MeshGraph;
+import jsl.modeling.ActionListenerIfc;
+import jsl.modeling.JSLEvent;
+import jsl.modeling.SchedulingElement;
+import jsl.modeling.elements.variable.ResponseVariable;
+
+
+/**
+ * Samples the share of other devices each device can reach through the mesh,
+ * averaged over all devices, once per {@code interval} of simulation time.
+ */
+public class ReachabilityStatistician extends SchedulingElement implements ActionListenerIfc {
+
+    private final MeshGraph graph;
+    private final double interval;
+    private final ResponseVariable reachability;
+
+    public ReachabilityStatistician(MeshGraph graph, double interval) {
+        super(graph);
+        this.graph = graph;
+        this.interval = interval;
+        this.reachability = new ResponseVariable(this);
+    }
+
+    @Override
+    protected void initialize() {
+        super.initialize();
+        scheduleEvent(this, interval, getName() + "-event");
+    }
+
+    @Override
+    public void action(JSLEvent event) {
+        int others = graph.getVertexCount() - 1;
+        if (others > 0) {
+            double sum = 0;
+            for (Device device : graph.getVertices()) {
+                sum += (double) device.getDevices().size() / others;
+            }
+            reachability.setValue(sum / graph.getVertexCount());
+        }
+        rescheduleEvent(event, interval);
+    }
+
+    public double getAcrossReplicationAverageReachability() {
+        return reachability.getAcrossReplicationAverage();
+    }
+}
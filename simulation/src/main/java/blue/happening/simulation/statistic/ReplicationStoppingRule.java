@@ -0,0 +1,111 @@
+package blue.happening.simulation.statistic;
+
+import jsl.utilities.statistic.StatisticAccessorIfc;
+
+
+/**
+ * Decides how many replications an experiment point needs. Replications are
+ * run until the confidence interval of the across replication mean of every
+ * target statistic is narrower than a share of that mean, but at least
+ * {@code minReplications} and at most {@code maxReplications} of them.
+ * Points whose statistics settle quickly stop early, noisy points run up to
+ * the cap.
+ * <p>
+ * A statistic with fewer than two observations has no confidence interval
+ * and is never precise.
+ */
+public class ReplicationStoppingRule {
+
+    private final int minReplications;
+    private final int maxReplications;
+    private final double relativeHalfWidth;
+    private final double confidenceLevel;
+
+    /**
+     * @param minReplications   replications to run at least, at least two to
+     *                          allow for a confidence interval unless it is
+     *                          also the maximum
+     * @param maxReplications   replications to run at most
+     * @param relativeHalfWidth half-width of the confidence interval relative
+     *                          to the mean at which a statistic is precise
+     * @param confidenceLevel   level of the confidence interval, such as 0.95
+     */
+    public ReplicationStoppingRule(int minReplications, int maxReplications,
+                                   double relativeHalfWidth, double confidenceLevel) {
+        if (minReplications < 1 || maxReplications < minReplications) {
+            throw new IllegalArgumentException("Invalid replication range: "
+                    + minReplications + " to " + maxReplications);
+        } else if (relativeHalfWidth < 0) {
+            throw new IllegalArgumentException("Negative relative half-width: " + relativeHalfWidth);
+        } else if (!(confidenceLevel > 0 && confidenceLevel < 1)) {
+            throw new IllegalArgumentException("Invalid confidence level: " + confidenceLevel);
+        }
+        this.minReplications = minReplications;
+        this.maxReplications = maxReplications;
+        this.relativeHalfWidth = relativeHalfWidth;
+        this.confidenceLevel = confidenceLevel;
+    }
+
+    /**
+     * @return A rule that always runs exactly {@code replications}
+     */
+    public static ReplicationStoppingRule fixed(int replications) {
+        return new ReplicationStoppingRule(replications, replications, 0, 0.95);
+    }
+
+    public int getMinReplications() {
+        return minReplications;
+    }
+
+    public int getMaxReplications() {
+        return maxReplications;
+    }
+
+    public double getRelativeHalfWidth() {
+        return relativeHalfWidth;
+    }
+
+    public double getConfidenceLevel() {
+        return confidenceLevel;
+    }
+
+    /**
+     * @return True if the confidence interval of {@code statistic} is narrow
+     * enough
+     */
+    public boolean isPrecise(StatisticAccessorIfc statistic) {
+        if (statistic.getCount() < 2) {
+            return false;
+        }
+        double halfWidth = statistic.getHalfWidth(confidenceLevel);
+        return halfWidth <= relativeHalfWidth * Math.abs(statistic.getAverage());
+    }
+
+    /**
+     * @param replications replications run so far
+     * @param statistics   across replication statistics of the targets
+     * @return True if no further replication is needed
+     */
+    public boolean isDone(int replications, StatisticAccessorIfc... statistics) {
+        if (replications >= maxReplications) {
+            return true;
+        } else if (replications < minReplications) {
+            return false;
+        }
+        for (StatisticAccessorIfc statistic : statistics) {
+            if (!isPrecise(statistic)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        if (minReplications == maxReplications) {
+            return String.valueOf(maxReplications);
+        }
+        return minReplications + " to " + maxReplications + ", until the " + Math.round(confidenceLevel * 100)
+                + "% confidence half-width is within " + relativeHalfWidth * 100 + "% of the mean";
+    }
+}
@@ -0,0 +1,85 @@
+package blue.happening.simulation.statistic;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import blue.happening.simulation.entities.VirtualMeshScheduler;
+import blue.happening.simulation.trace.EventTrace;
+import blue.happening.simulation.trace.EventTraceReader;
+
+
+/**
+ * Follows the unicast messages of a recorded event trace sent between
+ * {@code from} and {@code to} to their delivery, matching both by message
+ * id. Deliveries are counted up to {@code to}, so messages sent shortly
+ * before it may not have had the time to arrive.
+ */
+public class TraceDeliveryStatistician {
+
+    private long sentMessages;
+    private long deliveredMessages;
+    private final List<Double> latencies = new ArrayList<>();
+
+    /**
+     * @param from Start of the measured time
+     * @param to   End of the measured time
+     * @throws IOException If the trace cannot be read
+     */
+    public TraceDeliveryStatistician(EventTraceReader reader, double from, double to) throws IOException {
+        if (!(to > from)) {
+            throw new IllegalArgumentException("Empty time span: " + from + " to " + to);
+        }
+        Map<Integer, Double> pending = new HashMap<>();
+        reader.seek(from);
+        while (reader.next() && reader.getTime() <= to) {
+            switch (reader.getType()) {
+                case EventTrace.MESSAGE_SENT:
+                    sentMessages++;
+                    pending.put(reader.getMessageId(), reader.getTime());
+                    break;
+                case EventTrace.MESSAGE_DELIVERED:
+                    Double sentAt = pending.remove(reader.getMessageId());
+                    if (sentAt != null) {
+                        deliveredMessages++;
+                        latencies.add((reader.getTime() - sentAt) * VirtualMeshScheduler.MILLIS_PER_TIME_UNIT);
+                    }
+                    break;
+                default:
+            }
+        }
+        Collections.sort(latencies);
+    }
+
+    /**
+     * @return Messages sent in the measured time
+     */
+    public long getSentMessages() {
+        return sentMessages;
+    }
+
+    /**
+     * @return Share of the messages sent in the measured time that arrived
+     * in it, or NaN if none were sent
+     */
+    public double getDeliveryRatio() {
+        return sentMessages == 0 ? Double.NaN : deliveredMessages / (double) sentMessages;
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return Milliseconds from sending to delivery that {@code percentile}
+     * percent of all delivered messages did not exceed, or NaN if none
+     * arrived
+     */
+    public double getLatencyPercentile(double percentile) {
+        if (latencies.isEmpty()) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile / 100 * latencies.size()) - 1;
+        return latencies.get(Math.max(0, Math.min(latencies.size() - 1, index)));
+    }
+}
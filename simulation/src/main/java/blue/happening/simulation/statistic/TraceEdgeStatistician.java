@@ -0,0 +1,95 @@
+package blue.happening.simulation.statistic;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import blue.happening.simulation.trace.EventTrace;
+import blue.happening.simulation.trace.EventTraceReader;
+
+
+/**
+ * Computes the edge statistics of {@link EdgeCountStatistician},
+ * {@link EdgeCreationRateStatistician} and {@link EdgeDurationStatistician}
+ * offline, from a recorded event trace. Only the time between {@code from}
+ * and {@code to} is measured, but the trace is replayed from its start so
+ * that the edges that are up at {@code from} are known.
+ */
+public class TraceEdgeStatistician {
+
+    private final double from;
+    private final double to;
+    private final Map<Long, Double> startTimes = new HashMap<>();
+    private double weightedCount;
+    private long createdEdges;
+    private long endedEdges;
+    private double durations;
+
+    /**
+     * Replays {@code reader} from its first event.
+     *
+     * @param from Start of the measured time, like the warm-up of a
+     *             replication
+     * @param to   End of the measured time, like the length of a
+     *             replication
+     * @throws IOException If the trace cannot be read
+     */
+    public TraceEdgeStatistician(EventTraceReader reader, double from, double to) throws IOException {
+        if (!(to > from)) {
+            throw new IllegalArgumentException("Empty time span: " + from + " to " + to);
+        }
+        this.from = from;
+        this.to = to;
+        double lastTime = from;
+        reader.seek(0);
+        while (reader.next()) {
+            final double time = reader.getTime();
+            if (time > to) {
+                break;
+            }
+            final int type = reader.getType();
+            if (type != EventTrace.EDGE_ADDED && type != EventTrace.EDGE_REMOVED) {
+                continue;
+            }
+            if (time > lastTime) {
+                weightedCount += startTimes.size() * (time - lastTime);
+                lastTime = time;
+            }
+            final long edge = ((long) reader.getFrom() << 32) | (reader.getTo() & 0xffffffffL);
+            if (type == EventTrace.EDGE_ADDED) {
+                startTimes.put(edge, time);
+                if (time >= from) {
+                    createdEdges++;
+                }
+            } else {
+                final Double startTime = startTimes.remove(edge);
+                if (startTime != null && time >= from) {
+                    endedEdges++;
+                    durations += time - startTime;
+                }
+            }
+        }
+        weightedCount += startTimes.size() * (to - lastTime);
+    }
+
+    /**
+     * @return Time weighted average number of edges
+     */
+    public double getAverageEdgeCount() {
+        return weightedCount / (to - from);
+    }
+
+    /**
+     * @return Edges created per time unit
+     */
+    public double getEdgeCreationRate() {
+        return createdEdges / (to - from);
+    }
+
+    /**
+     * @return Average duration of the edges that ended, or NaN if none did
+     */
+    public double getAverageEdgeDuration() {
+        return endedEdges == 0 ? Double.NaN : durations / endedEdges;
+    }
+}
@@ -0,0 +1,117 @@
+package blue.happening.simulation.statistic;
+
+import java.io.IOException;
+
+import blue.happening.mesh.MeshHandler;
+import blue.happening.simulation.trace.EventTrace;
+import blue.happening.simulation.trace.EventTraceReader;
+
+
+/**
+ * Counts the frames, message deliveries and routing table changes of a
+ * recorded event trace between {@code from} and {@code to}. Seeks to
+ * {@code from}, so only the events in between are read.
+ */
+public class TraceFrameStatistician {
+
+    private final double from;
+    private final double to;
+    private final int devices;
+    private long sentFrames;
+    private long sentBytes;
+    private long sentControlBytes;
+    private long droppedFrames;
+    private long lostFrames;
+    private long arrivedFrames;
+    private long deliveredMessages;
+    private long routeChanges;
+
+    /**
+     * @param from Start of the measured time
+     * @param to   End of the measured time
+     * @throws IOException If the trace cannot be read
+     */
+    public TraceFrameStatistician(EventTraceReader reader, double from, double to) throws IOException {
+        if (!(to > from)) {
+            throw new IllegalArgumentException("Empty time span: " + from + " to " + to);
+        }
+        this.from = from;
+        this.to = to;
+        this.devices = reader.getDevices().size();
+        reader.seek(from);
+        while (reader.next() && reader.getTime() <= to) {
+            switch (reader.getType()) {
+                case EventTrace.FRAME_SENT:
+                    sentFrames++;
+                    sentBytes += reader.getValue();
+                    if (reader.getMessageType() != MeshHandler.MESSAGE_TYPE_UCM) {
+                        sentControlBytes += reader.getValue();
+                    }
+                    break;
+                case EventTrace.FRAME_DROPPED:
+                    droppedFrames++;
+                    break;
+                case EventTrace.FRAME_LOST:
+                    lostFrames++;
+                    break;
+                case EventTrace.FRAME_ARRIVED:
+                    arrivedFrames++;
+                    break;
+                case EventTrace.MESSAGE_DELIVERED:
+                    deliveredMessages++;
+                    break;
+                case EventTrace.ROUTE_ADDED:
+                case EventTrace.ROUTE_UPDATED:
+                case EventTrace.ROUTE_REMOVED:
+                    routeChanges++;
+                    break;
+                default:
+            }
+        }
+    }
+
+    public long getSentFrames() {
+        return sentFrames;
+    }
+
+    /**
+     * @return Bytes transmitted including frame overhead
+     */
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public long getLostFrames() {
+        return lostFrames;
+    }
+
+    public long getArrivedFrames() {
+        return arrivedFrames;
+    }
+
+    /**
+     * @return Messages the mesh delivered to their destination
+     */
+    public long getDeliveredMessages() {
+        return deliveredMessages;
+    }
+
+    /**
+     * @return Routes added, updated or removed on any device
+     */
+    public long getRouteChanges() {
+        return routeChanges;
+    }
+
+    /**
+     * @return Bytes of all frames but unicast messages every device sent per
+     * time unit, including frame overhead
+     */
+    public double getControlBytesPerDeviceSecond() {
+        return devices == 0 ? Double.NaN : sentControlBytes / (double) devices / (to - from);
+    }
+}
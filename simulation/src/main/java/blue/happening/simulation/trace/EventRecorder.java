@@ -0,0 +1,386 @@
+package blue.happening.simulation.trace;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import blue.happening.mesh.MeshDevice;
+import blue.happening.mesh.Message;
+import blue.happening.simulation.entities.Connection;
+import blue.happening.simulation.entities.Device;
+import blue.happening.simulation.entities.LinkObserver;
+import blue.happening.simulation.graph.MeshGraph;
+import blue.happening.simulation.graph.NetworkGraph;
+import blue.happening.simulation.graph.NetworkGraphObserver;
+import jsl.modeling.ModelElement;
+
+
+/**
+ * Records the link changes, frames, sent and delivered messages and routing
+ * table changes of a {@link MeshGraph} to a binary {@link EventTrace}, so
+ * that a run can be analysed again and again without simulating it again.
+ * <p>
+ * Events are encoded into chunks on the thread they happen on, and a writer
+ * thread writes full chunks to the trace file. The file is written through
+ * its channel rather than mapped, as mapped files cannot be resized on every
+ * platform. When the writer falls behind by more than a few chunks,
+ * recording blocks until it has caught up. Events are stamped with the
+ * simulated time, which never goes backwards within a trace, so one recorder
+ * should record one replication. The trace is complete once the recorder has
+ * been closed.
+ */
+public class EventRecorder implements Closeable {
+
+    private static final int CHUNK_BYTES = EventTrace.RECORD_BYTES * 2048;
+    private static final int QUEUED_CHUNKS = 16;
+    // marks the end of the recording for the writer thread
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final MeshGraph graph;
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final EdgeObserver edgeObserver = new EdgeObserver();
+    private final FrameObserver frameObserver = new FrameObserver();
+    private final RouteObserver routeObserver = new RouteObserver();
+    private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final Thread writer;
+
+    // guarded by this
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    // ids of the messages not delivered yet, by source, destination and body
+    private final Map<List<Object>, Queue<Integer>> sentMessages = new HashMap<>();
+    private int nextMessageId;
+    private double[] index = new double[16];
+    private int indexSize;
+    private ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES);
+    private long count;
+    private double lastTime;
+    private boolean closed;
+
+    // written by the writer thread only
+    private long position = EventTrace.HEADER_BYTES;
+    private volatile IOException failure;
+
+    /**
+     * Starts recording the events of {@code graph} and its current devices
+     * to {@code file}, replacing it.
+     *
+     * @throws IOException If {@code file} cannot be written
+     */
+    public EventRecorder(MeshGraph graph, File file) throws IOException {
+        this.graph = graph;
+        this.file = file;
+        raf = new RandomAccessFile(file, "rw");
+        raf.setLength(0);
+        channel = raf.getChannel();
+        channel.write(header(0), 0);
+
+        for (Device device : graph.getVertices()) {
+            id(device.getName());
+            device.addObserver(routeObserver);
+        }
+        graph.addObserver(edgeObserver);
+        graph.addLinkObserver(frameObserver);
+
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, "event-recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return Number of events recorded so far
+     */
+    public synchronized long getEventCount() {
+        return count;
+    }
+
+    private void record(int type, int messageType, String from, String to, float value) {
+        record(type, messageType, from, to, value, -1);
+    }
+
+    /**
+     * Records a sent or delivered message. A delivery carries the id of the
+     * earliest undelivered message with the same source, destination and
+     * body.
+     */
+    private synchronized void recordMessage(int type, String from, String to, byte[] body) {
+        if (closed) {
+            return;
+        }
+        List<Object> key = Arrays.<Object>asList(from, to, ByteBuffer.wrap(body));
+        Queue<Integer> sent = sentMessages.get(key);
+        int messageId = -1;
+        if (type == EventTrace.MESSAGE_SENT) {
+            messageId = nextMessageId++;
+            if (sent == null) {
+                // the body is copied, so that the sender cannot change the key
+                sent = new ArrayDeque<>();
+                sentMessages.put(Arrays.<Object>asList(from, to, ByteBuffer.wrap(body.clone())), sent);
+            }
+            sent.offer(messageId);
+        } else if (sent != null) {
+            messageId = sent.poll();
+            if (sent.isEmpty()) {
+                sentMessages.remove(key);
+            }
+        }
+        record(type, 0, from, to, body.length, messageId);
+    }
+
+    private synchronized void record(int type, int messageType, String from, String to, float value,
+                                     int messageId) {
+        if (closed) {
+            return;
+        }
+        lastTime = Math.max(lastTime, ModelElement.getTime());
+        if (count % EventTrace.INDEX_INTERVAL == 0) {
+            if (indexSize == index.length) {
+                index = Arrays.copyOf(index, indexSize * 2);
+            }
+            index[indexSize++] = lastTime;
+        }
+        chunk.putDouble(lastTime);
+        chunk.put((byte) type);
+        chunk.put((byte) messageType);
+        chunk.putInt(from == null ? -1 : id(from));
+        chunk.putInt(to == null ? -1 : id(to));
+        chunk.putFloat(value);
+        chunk.putInt(messageId);
+        count++;
+        if (!chunk.hasRemaining()) {
+            // handed over while holding the lock, so chunks stay in order
+            hand(chunk);
+            chunk = free.poll();
+            if (chunk == null) {
+                chunk = ByteBuffer.allocate(CHUNK_BYTES);
+            }
+        }
+    }
+
+    private int id(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+
+    private void hand(ByteBuffer chunk) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                full.put(chunk);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write() {
+        try {
+            while (true) {
+                ByteBuffer chunk = full.take();
+                if (chunk == END) {
+                    return;
+                }
+                chunk.flip();
+                while (chunk.hasRemaining()) {
+                    position += channel.write(chunk, position);
+                }
+                chunk.clear();
+                free.offer(chunk);
+            }
+        } catch (IOException e) {
+            failure = e;
+            // keep taking chunks so that recording threads do not block
+            while (true) {
+                try {
+                    if (full.take() == END) {
+                        return;
+                    }
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            failure = new IOException("Recording to " + file + " has been interrupted");
+        }
+    }
+
+    /**
+     * Stops recording, waits for the writer thread to write every event and
+     * completes the trace with its footer.
+     *
+     * @throws IOException If the trace could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        ByteBuffer last;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            last = chunk;
+        }
+        graph.deleteObserver(edgeObserver);
+        graph.removeLinkObserver(frameObserver);
+        for (Device device : graph.getVertices()) {
+            device.deleteObserver(routeObserver);
+        }
+        try {
+            if (last.position() > 0) {
+                hand(last);
+            }
+            hand(END);
+            writer.join();
+            if (failure != null) {
+                throw failure;
+            }
+            long end = EventTrace.HEADER_BYTES + count * EventTrace.RECORD_BYTES;
+            channel.write(footer(), end);
+            channel.write(header(end), 0);
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while closing " + file);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private synchronized ByteBuffer header(long footerOffset) {
+        ByteBuffer header = ByteBuffer.allocate(EventTrace.HEADER_BYTES);
+        header.putInt(EventTrace.MAGIC);
+        header.putInt(EventTrace.VERSION);
+        header.putLong(footerOffset);
+        header.putLong(count);
+        header.flip();
+        return header;
+    }
+
+    private synchronized ByteBuffer footer() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(names.size());
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+        out.writeInt(EventTrace.INDEX_INTERVAL);
+        out.writeInt(indexSize);
+        for (int i = 0; i < indexSize; i++) {
+            out.writeDouble(index[i]);
+        }
+        out.flush();
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private class EdgeObserver extends NetworkGraphObserver<Device, Connection> {
+
+        @Override
+        protected void addedVertex(NetworkGraph<Device, Connection> networkGraph, Device vertex) {
+            vertex.addObserver(routeObserver);
+        }
+
+        @Override
+        protected void addedEdge(NetworkGraph<Device, Connection> networkGraph, Connection edge) {
+            record(EventTrace.EDGE_ADDED, 0, edge.getFromDevice().getName(), edge.getToDevice().getName(), 0);
+        }
+
+        @Override
+        protected void removedEdge(NetworkGraph<Device, Connection> networkGraph, Connection edge) {
+            record(EventTrace.EDGE_REMOVED, 0, edge.getFromDevice().getName(), edge.getToDevice().getName(), 0);
+        }
+    }
+
+    private class FrameObserver implements LinkObserver {
+
+        @Override
+        public void frameSent(Connection connection, Message message, int frameSize) {
+            record(EventTrace.FRAME_SENT, message.getType(), connection, frameSize);
+        }
+
+        @Override
+        public void frameDropped(Connection connection, Message message, int frameSize) {
+            record(EventTrace.FRAME_DROPPED, message.getType(), connection, frameSize);
+        }
+
+        @Override
+        public void frameLost(Connection connection, Message message, int frameSize) {
+            record(EventTrace.FRAME_LOST, message.getType(), connection, frameSize);
+        }
+
+        @Override
+        public void frameArrived(Connection connection, Message message, int frameSize) {
+            record(EventTrace.FRAME_ARRIVED, message.getType(), connection, frameSize);
+        }
+
+        private void record(int type, int messageType, Connection connection, int frameSize) {
+            EventRecorder.this.record(type, messageType, connection.getFromDevice().getName(),
+                    connection.getToDevice().getName(), frameSize);
+        }
+    }
+
+    private class RouteObserver implements Observer {
+
+        @Override
+        public void update(Observable observable, Object arg) {
+            Device device = (Device) observable;
+            Device.DeviceChangedEvent event = (Device.DeviceChangedEvent) arg;
+            switch (event.getType()) {
+                case MESSAGE_SENT:
+                    recordMessage(EventTrace.MESSAGE_SENT, device.getName(), event.getPeer(),
+                            (byte[]) event.getOptions());
+                    break;
+                case MESSAGE_RECEIVED:
+                    recordMessage(EventTrace.MESSAGE_DELIVERED, event.getPeer(), device.getName(),
+                            (byte[]) event.getOptions());
+                    break;
+                case NEIGHBOUR_ADDED:
+                    recordRoute(EventTrace.ROUTE_ADDED, device, event);
+                    break;
+                case NEIGHBOUR_UPDATED:
+                    recordRoute(EventTrace.ROUTE_UPDATED, device, event);
+                    break;
+                case NEIGHBOUR_REMOVED:
+                    recordRoute(EventTrace.ROUTE_REMOVED, device, event);
+                    break;
+                default:
+            }
+        }
+
+        private void recordRoute(int type, Device device, Device.DeviceChangedEvent event) {
+            MeshDevice route = (MeshDevice) event.getOptions();
+            record(type, 0, device.getName(), route.getUuid(), route.getQuality());
+        }
+    }
+}
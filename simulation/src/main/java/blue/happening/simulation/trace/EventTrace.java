@@ -0,0 +1,98 @@
+package blue.happening.simulation.trace;
+
+
+/**
+ * Event types and file layout of the binary event traces written by
+ * {@link EventRecorder} and read by {@link EventTraceReader}.
+ * <p>
+ * A trace starts with a header of the magic number, the format version, the
+ * offset of the footer and the number of events. The events follow as
+ * fixed-size big-endian records of the simulated time, the event type, the
+ * message type, the ids of the two devices involved, a value and the id of
+ * the unicast message the event belongs to. The footer
+ * holds the device names, indexed by id, and the time of every
+ * {@link #INDEX_INTERVAL}th event, which lets readers seek to a time without
+ * scanning the events before it. A trace whose recorder has not been closed
+ * has no footer.
+ */
+public final class EventTrace {
+
+    /**
+     * The link from device {@code from} to device {@code to} came up.
+     */
+    public static final int EDGE_ADDED = 1;
+
+    /**
+     * The link from device {@code from} to device {@code to} went down.
+     */
+    public static final int EDGE_REMOVED = 2;
+
+    /**
+     * Device {@code from} queued a frame of {@code value} bytes for device
+     * {@code to}.
+     */
+    public static final int FRAME_SENT = 3;
+
+    /**
+     * Device {@code from} dropped a frame of {@code value} bytes for device
+     * {@code to} from its full transmit queue.
+     */
+    public static final int FRAME_DROPPED = 4;
+
+    /**
+     * A frame of {@code value} bytes from device {@code from} was lost on the
+     * link to device {@code to}.
+     */
+    public static final int FRAME_LOST = 5;
+
+    /**
+     * A frame of {@code value} bytes from device {@code from} arrived at
+     * device {@code to}.
+     */
+    public static final int FRAME_ARRIVED = 6;
+
+    /**
+     * The mesh of device {@code to} delivered a message of {@code value}
+     * bytes that device {@code from} had sent. Carries the id of its
+     * {@link #MESSAGE_SENT} event, or -1 if it was sent before recording
+     * started.
+     */
+    public static final int MESSAGE_DELIVERED = 7;
+
+    /**
+     * Device {@code from} learned a route to device {@code to} with quality
+     * {@code value}.
+     */
+    public static final int ROUTE_ADDED = 8;
+
+    /**
+     * The route of device {@code from} to device {@code to} changed to
+     * quality {@code value}.
+     */
+    public static final int ROUTE_UPDATED = 9;
+
+    /**
+     * Device {@code from} lost its route to device {@code to}.
+     */
+    public static final int ROUTE_REMOVED = 10;
+
+    /**
+     * Device {@code from} sent a message of {@code value} bytes to device
+     * {@code to}. Carries a message id unique within the trace.
+     */
+    public static final int MESSAGE_SENT = 11;
+
+    /**
+     * Events between two entries of the time index.
+     */
+    public static final int INDEX_INTERVAL = 4096;
+
+    static final int MAGIC = 0x45545243;
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 24;
+    // time, type, message type, from, to, value and message id
+    static final int RECORD_BYTES = 8 + 1 + 1 + 4 + 4 + 4 + 4;
+
+    private EventTrace() {
+    }
+}
@@ -0,0 +1,251 @@
+package blue.happening.simulation.trace;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Reads a binary {@link EventTrace} written by {@link EventRecorder}. The
+ * events are mapped from the file window by window and read one after
+ * another, starting at the first event or at the time {@link #seek(double)}
+ * has moved to:
+ * <pre>
+ * reader.seek(warmUp);
+ * while (reader.next()) {
+ *     if (reader.getType() == EventTrace.FRAME_SENT) ...
+ * }
+ * </pre>
+ */
+public class EventTraceReader implements Closeable {
+
+    // whole records, so that no record spans two windows
+    private static final long WINDOW_BYTES = EventTrace.RECORD_BYTES * 1024L * 1024;
+
+    private final File file;
+    private final FileChannel channel;
+    private final long count;
+    private final List<String> devices;
+    private final int indexInterval;
+    private final double[] index;
+
+    private ByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+    // index of the next event
+    private long next;
+    private int position = -1;
+
+    private EventTraceReader(File file, FileChannel channel) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(EventTrace.HEADER_BYTES);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < EventTrace.HEADER_BYTES || header.getInt() != EventTrace.MAGIC) {
+            throw new IOException(file + " is not an event trace");
+        } else if (header.getInt() != EventTrace.VERSION) {
+            throw new IOException(file + " has an unsupported trace version");
+        }
+        long footerOffset = header.getLong();
+        count = header.getLong();
+        if (footerOffset == 0) {
+            throw new IOException(file + " has not been completed");
+        }
+
+        channel.position(footerOffset);
+        // the stream is not closed, that would close the channel
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        int deviceCount = in.readInt();
+        List<String> names = new ArrayList<>(deviceCount);
+        for (int i = 0; i < deviceCount; i++) {
+            names.add(in.readUTF());
+        }
+        devices = Collections.unmodifiableList(names);
+        indexInterval = in.readInt();
+        index = new double[in.readInt()];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = in.readDouble();
+        }
+    }
+
+    /**
+     * Opens a trace and positions it before its first event.
+     *
+     * @throws IOException If {@code file} cannot be read or is no complete
+     *                     trace
+     */
+    public static EventTraceReader open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return new EventTraceReader(file, raf.getChannel());
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Names of the recorded devices, indexed by the ids of the
+     * events
+     */
+    public List<String> getDevices() {
+        return devices;
+    }
+
+    public long getEventCount() {
+        return count;
+    }
+
+    /**
+     * @return Simulated time of the last event, or 0 if there is none
+     * @throws IOException If the trace cannot be read
+     */
+    public double getEndTime() throws IOException {
+        if (count == 0) {
+            return 0;
+        }
+        ByteBuffer time = ByteBuffer.allocate(8);
+        channel.read(time, EventTrace.HEADER_BYTES + (count - 1) * EventTrace.RECORD_BYTES);
+        return time.getDouble(0);
+    }
+
+    /**
+     * Positions the reader before the first event at or after {@code time}.
+     * Only the events since the closest index entry before {@code time} are
+     * read to find it.
+     *
+     * @throws IOException If the trace cannot be read
+     */
+    public void seek(double time) throws IOException {
+        int low = 0;
+        int high = index.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (index[middle] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        next = Math.max(0, low - 1) * (long) indexInterval;
+        position = -1;
+        while (next < count) {
+            map(next);
+            if (window.getDouble(offset(next)) >= time) {
+                return;
+            }
+            next++;
+        }
+    }
+
+    /**
+     * Advances to the next event.
+     *
+     * @return false if there are no more events
+     * @throws IOException If the trace cannot be read
+     */
+    public boolean next() throws IOException {
+        if (next >= count) {
+            position = -1;
+            return false;
+        }
+        map(next);
+        position = offset(next);
+        next++;
+        return true;
+    }
+
+    private void map(long event) throws IOException {
+        long start = EventTrace.HEADER_BYTES + event * EventTrace.RECORD_BYTES;
+        if (window == null || start < windowStart || start >= windowEnd) {
+            long end = EventTrace.HEADER_BYTES + count * EventTrace.RECORD_BYTES;
+            windowStart = start;
+            windowEnd = Math.min(end, start + WINDOW_BYTES);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+        }
+    }
+
+    private int offset(long event) {
+        return (int) (EventTrace.HEADER_BYTES + event * EventTrace.RECORD_BYTES - windowStart);
+    }
+
+    private void checkPosition() {
+        if (position < 0) {
+            throw new IllegalStateException("No current event in " + file);
+        }
+    }
+
+    /**
+     * @return Simulated time of the current event
+     */
+    public double getTime() {
+        checkPosition();
+        return window.getDouble(position);
+    }
+
+    /**
+     * @return Type of the current event, one of the constants of
+     * {@link EventTrace}
+     */
+    public int getType() {
+        checkPosition();
+        return window.get(position + 8);
+    }
+
+    /**
+     * @return Type of the message of a frame event, or 0 for other events
+     */
+    public int getMessageType() {
+        checkPosition();
+        return window.get(position + 9);
+    }
+
+    /**
+     * @return Id of the first device of the current event, or -1 if unknown
+     */
+    public int getFrom() {
+        checkPosition();
+        return window.getInt(position + 10);
+    }
+
+    /**
+     * @return Id of the second device of the current event, or -1 if unknown
+     */
+    public int getTo() {
+        checkPosition();
+        return window.getInt(position + 14);
+    }
+
+    /**
+     * @return Bytes of a frame or message, quality of a route, or 0 for
+     * other events
+     */
+    public float getValue() {
+        checkPosition();
+        return window.getFloat(position + 18);
+    }
+
+    /**
+     * @return Id of the message of a message event, or -1 for other events
+     * and messages sent before recording started
+     */
+    public int getMessageId() {
+        checkPosition();
+        return window.getInt(position + 22);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -17,11 +17,15 @@ public class DeviceLogTableModel extends AbstractTableModel {
     private Class[] columnClasses = {String.class, String.class, String.class, String.class,
             Integer.class, Integer.class, Integer.class};
 
-    private List<LogItem> logs = new ArrayList<>();
+    private List<LogItem> logs;
     private Device device;
 
+    /**
+     * @param logs Live view of a device's log, the table shows its current
+     *             content whenever it is repainted
+     */
     public DeviceLogTableModel(List<LogItem> logs, Device device) {
-        this.logs.addAll(logs);
+        this.logs = logs;
         this.device = device;
     }
 
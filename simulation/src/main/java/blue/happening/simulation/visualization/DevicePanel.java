@@ -7,6 +7,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.swing.BorderFactory;
@@ -33,7 +34,6 @@ import blue.happening.mesh.statistics.Stat;
 import blue.happening.mesh.statistics.StatsResult;
 import blue.happening.simulation.demo.HappeningDemo;
 import blue.happening.simulation.entities.Device;
-import blue.happening.simulation.entities.LogItem;
 
 
 public class DevicePanel extends JPanel {
@@ -41,6 +41,8 @@ public class DevicePanel extends JPanel {
     private static final int PANEL_WIDTH = 500;
     private static final int PANEL_HEIGHT = 1000;
     private static final int TIME_WINDOW_SIZE = 25;
+    private static final String MAX_SPEED = "Max";
+    private static final String[] SPEEDS = {"1x", "10x", "20x", "100x", MAX_SPEED};
     private TitledBorder deviceTitle;
     private TitledBorder demoTitle;
     private JPanel devicePanel;
@@ -52,6 +54,7 @@ public class DevicePanel extends JPanel {
     private JTable ucmLogTable;
     private JButton sendButton;
     private JButton pauseButton;
+    private JButton stepButton;
     private JButton loopButton;
     private JButton nextButton;
     private JButton demoButton;
@@ -70,6 +73,7 @@ public class DevicePanel extends JPanel {
     private Device device;
     private NetworkStatsPanel ogmNetworkStats;
     private NetworkStatsPanel ucmNetworkStats;
+    private final DevicePanelUpdater updater = new DevicePanelUpdater(this);
 
     DevicePanel() {
         messageCount = true;
@@ -102,10 +106,29 @@ public class DevicePanel extends JPanel {
         controlPanel.setOpaque(false);
         loopButton = new JButton("Loop");
         pauseButton = new JButton("Pause");
+        stepButton = new JButton("Step");
+        stepButton.setEnabled(false);
         nextButton = new JButton("Next");
         demoButton = new JButton("Select Demo");
+        final JComboBox<String> speedBox = new JComboBox<>(SPEEDS);
+        final String speed = speedLabel(HappeningDemo.getPacing().getRealTimeFactor());
+        if (!Arrays.asList(SPEEDS).contains(speed)) {
+            speedBox.addItem(speed);
+        }
+        speedBox.setSelectedItem(speed);
+        speedBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent actionEvent) {
+                String speed = (String) speedBox.getSelectedItem();
+                HappeningDemo.getPacing().setRealTimeFactor(speed.equals(MAX_SPEED)
+                        ? PacingController.MAX_SPEED
+                        : Double.parseDouble(speed.substring(0, speed.length() - 1)));
+            }
+        });
         controlPanel.add(loopButton);
         controlPanel.add(pauseButton);
+        controlPanel.add(stepButton);
+        controlPanel.add(speedBox);
         controlPanel.add(nextButton);
         controlPanel.add(demoButton);
 
@@ -418,7 +441,7 @@ public class DevicePanel extends JPanel {
                         "Send Message", JOptionPane.PLAIN_MESSAGE, null, null, "Hallo");
                 for (RemoteDevice remotedevice : selectedDevices) {
                     if (device != null) {
-                        device.getMeshHandler().sendMessage(s.getBytes(), remotedevice.getUuid());
+                        device.sendMessage(s.getBytes(), remotedevice.getUuid());
                     }
                 }
             }
@@ -428,8 +451,14 @@ public class DevicePanel extends JPanel {
             @Override
             public void actionPerformed(ActionEvent actionEvent) {
                 if (device != null) {
-                    device.toggleEnabled();
-                    disableButton.setText(device.isEnabled() ? "Disable" : "Enable");
+                    final Device toggled = device;
+                    HappeningDemo.getPacing().invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            toggled.toggleEnabled();
+                        }
+                    });
+                    disableButton.setText(toggled.isEnabled() ? "Enable" : "Disable");
                 }
             }
         });
@@ -457,6 +486,14 @@ public class DevicePanel extends JPanel {
                     pauseButton.setText("Play");
                     HappeningDemo.setPause(true);
                 }
+                stepButton.setEnabled(HappeningDemo.isPaused());
+            }
+        });
+
+        stepButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent actionEvent) {
+                HappeningDemo.getPacing().step(1);
             }
         });
 
@@ -465,6 +502,7 @@ public class DevicePanel extends JPanel {
             public void actionPerformed(ActionEvent actionEvent) {
                 if (HappeningDemo.isPaused()) {
                     pauseButton.setText("Pause");
+                    stepButton.setEnabled(false);
                     HappeningDemo.setPause(false);
                 }
                 HappeningDemo.setInterrupt(true);
@@ -485,7 +523,15 @@ public class DevicePanel extends JPanel {
         });
     }
 
-    private void updateNetworkStats(StatsResult stats) {
+    private static String speedLabel(double realTimeFactor) {
+        if (Double.isInfinite(realTimeFactor)) {
+            return MAX_SPEED;
+        }
+        return (realTimeFactor == Math.rint(realTimeFactor)
+                ? String.valueOf((long) realTimeFactor) : String.valueOf(realTimeFactor)) + "x";
+    }
+
+    void updateNetworkStats(StatsResult stats) {
         Stat ogmIn = stats.getOgmIncoming();
         Stat ogmOut = stats.getOgmOutgoing();
 
@@ -539,33 +585,35 @@ public class DevicePanel extends JPanel {
 
     private void setNeighbourList(Device device) {
         tablePanel.setVisible(true);
-        List<MeshDevice> neighbours = device.getDevices();
+        List<MeshDevice> neighbours = new ArrayList<>(device.getDevices());
         DeviceNeighbourTableModel neighbourTableModel = new DeviceNeighbourTableModel(neighbours);
         table.setModel(neighbourTableModel);
         table.getSelectionModel().addListSelectionListener(new SharedListSelectionHandler());
     }
 
-    private void addNeighbour(MeshDevice neighbour) {
-        DeviceNeighbourTableModel neighbourTableModel = (DeviceNeighbourTableModel) table.getModel();
-        neighbourTableModel.getNeighbours().add(neighbour);
-        neighbourTableModel.fireTableDataChanged();
-    }
-
-    private void updateNeighbour(MeshDevice neighbour) {
+    /**
+     * Shows the current neighbours of the device, keeping the selected rows.
+     */
+    void refreshNeighbours() {
+        if (device == null) {
+            return;
+        }
         DeviceNeighbourTableModel neighbourTableModel = (DeviceNeighbourTableModel) table.getModel();
         List<MeshDevice> neighbours = neighbourTableModel.getNeighbours();
-        int indexOfExisting = neighbours.indexOf(neighbour);
-        try {
-            neighbours.set(indexOfExisting, neighbour);
-            neighbourTableModel.fireTableRowsUpdated(indexOfExisting, indexOfExisting);
-        } catch (IndexOutOfBoundsException ignored) {
+        neighbours.clear();
+        neighbours.addAll(device.getDevices());
+        List<String> selectedDeviceNames = new ArrayList<>();
+        for (RemoteDevice selectedDevice : selectedDevices) {
+            if (selectedDevice != null) {
+                selectedDeviceNames.add(selectedDevice.getUuid());
+            }
         }
-    }
-
-    private void removeNeighbour(MeshDevice neighbour) {
-        DeviceNeighbourTableModel neighbourTableModel = (DeviceNeighbourTableModel) table.getModel();
-        neighbourTableModel.getNeighbours().remove(neighbour);
         neighbourTableModel.fireTableDataChanged();
+        for (int row = 0; row < table.getRowCount(); row++) {
+            if (selectedDeviceNames.contains((String) table.getValueAt(row, 0))) {
+                table.addRowSelectionInterval(row, row);
+            }
+        }
     }
 
     private void setOgmLog(Device device) {
@@ -575,14 +623,8 @@ public class DevicePanel extends JPanel {
         ogmLogTable.updateUI();
     }
 
-    private void updateOgmLog(LogItem log) {
-        DeviceLogTableModel ogmLogTableModel = (DeviceLogTableModel) ogmLogTable.getModel();
-        if (ogmLogTableModel.getLogs().contains(log)) {
-            ogmLogTableModel.getLogs().set(ogmLogTableModel.getLogs().indexOf(log), log);
-        } else {
-            ogmLogTableModel.getLogs().add(log);
-        }
-        ogmLogTableModel.fireTableDataChanged();
+    void refreshOgmLog() {
+        ((DeviceLogTableModel) ogmLogTable.getModel()).fireTableDataChanged();
     }
 
     private void setUcmLog(Device device) {
@@ -592,15 +634,8 @@ public class DevicePanel extends JPanel {
         ucmLogTable.updateUI();
     }
 
-    private void updateUcmLog(LogItem log) {
-        DeviceLogTableModel ucmLogTableModel = (DeviceLogTableModel) ucmLogTable.getModel();
-        if (ucmLogTableModel.getLogs().contains(log)) {
-            ucmLogTableModel.getLogs().set(ucmLogTableModel.getLogs().indexOf(log), log);
-        } else {
-            ucmLogTableModel.getLogs().add(log);
-        }
-        ucmLogTableModel.fireTableDataChanged();
-
+    void refreshUcmLog() {
+        ((DeviceLogTableModel) ucmLogTable.getModel()).fireTableDataChanged();
     }
 
     public void setDevice(Device device) {
@@ -626,37 +661,31 @@ public class DevicePanel extends JPanel {
         ucmNetworkStats.clear();
     }
 
+    /**
+     * Queues a change of the shown device, or shows {@code device} if
+     * {@code event} is null. Can be called from any thread, the panel picks up
+     * all queued changes with its next frame.
+     */
     public void updateDevice(Device device, Device.DeviceChangedEvent event) {
         if (event != null) {
-            try {
-                switch (event.getType()) {
-                    case NEIGHBOUR_ADDED:
-                        addNeighbour((MeshDevice) event.getOptions());
-                        break;
-                    case NEIGHBOUR_UPDATED:
-                        updateNeighbour((MeshDevice) event.getOptions());
-                        break;
-                    case NEIGHBOUR_REMOVED:
-                        removeNeighbour((MeshDevice) event.getOptions());
-                        break;
-                    case NETWORK_STATS_UPDATED:
-                        updateNetworkStats((StatsResult) event.getOptions());
-                        break;
-                    case OGM_LOG_ITEM_ADDED:
-                        updateOgmLog((LogItem) event.getOptions());
-                        break;
-                    case UCM_LOG_ITEM_ADDED:
-                        updateUcmLog((LogItem) event.getOptions());
-                        break;
-                }
-            } catch (ClassCastException e) {
-                e.printStackTrace();
-            }
+            updater.post(event);
         } else {
-            setDevice(device);
+            updater.show(device);
         }
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        updater.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        updater.stop();
+        super.removeNotify();
+    }
+
     private void setSelectedDevicesFromSelectedDeviceNames(List<String> selectedDeviceNames) {
         selectedDevices.clear();
         for (String name : selectedDeviceNames) {
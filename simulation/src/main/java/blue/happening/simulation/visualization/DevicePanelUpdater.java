@@ -0,0 +1,114 @@
+package blue.happening.simulation.visualization;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.Timer;
+
+import blue.happening.mesh.statistics.StatsResult;
+import blue.happening.simulation.entities.Device;
+
+
+/**
+ * Collects changes of the shown device from the simulation threads and
+ * applies them to the {@link DevicePanel} once per frame on the event
+ * dispatch thread. Neighbour and log changes only mark their table as dirty,
+ * so any number of them between two frames cost a single refresh, and no
+ * Swing code runs on the threads driving the simulation.
+ */
+class DevicePanelUpdater implements ActionListener {
+
+    static final int FRAME_MILLIS = 40;
+
+    private final DevicePanel panel;
+    private final Timer timer;
+    // guarded by this
+    private Device shownDevice;
+    private boolean neighboursDirty;
+    private boolean ogmLogDirty;
+    private boolean ucmLogDirty;
+    private List<StatsResult> stats = new ArrayList<>();
+
+    DevicePanelUpdater(DevicePanel panel) {
+        this.panel = panel;
+        this.timer = new Timer(FRAME_MILLIS, this);
+        timer.setCoalesce(true);
+    }
+
+    void start() {
+        timer.start();
+    }
+
+    void stop() {
+        timer.stop();
+    }
+
+    /**
+     * Shows {@code device} from the next frame on, dropping changes of the
+     * previously shown device that have not been applied yet.
+     */
+    synchronized void show(Device device) {
+        shownDevice = device;
+        neighboursDirty = false;
+        ogmLogDirty = false;
+        ucmLogDirty = false;
+        stats.clear();
+    }
+
+    synchronized void post(Device.DeviceChangedEvent event) {
+        switch (event.getType()) {
+            case NEIGHBOUR_ADDED:
+            case NEIGHBOUR_UPDATED:
+            case NEIGHBOUR_REMOVED:
+                neighboursDirty = true;
+                break;
+            case NETWORK_STATS_UPDATED:
+                // every result is a point of the stats charts, so none are dropped
+                stats.add((StatsResult) event.getOptions());
+                break;
+            case OGM_LOG_ITEM_ADDED:
+                ogmLogDirty = true;
+                break;
+            case UCM_LOG_ITEM_ADDED:
+                ucmLogDirty = true;
+                break;
+        }
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent actionEvent) {
+        Device device;
+        boolean neighbours;
+        boolean ogmLog;
+        boolean ucmLog;
+        List<StatsResult> results;
+        synchronized (this) {
+            device = shownDevice;
+            neighbours = neighboursDirty;
+            ogmLog = ogmLogDirty;
+            ucmLog = ucmLogDirty;
+            results = stats;
+            shownDevice = null;
+            neighboursDirty = ogmLogDirty = ucmLogDirty = false;
+            stats = new ArrayList<>();
+        }
+
+        if (device != null) {
+            panel.setDevice(device);
+        }
+        if (neighbours) {
+            panel.refreshNeighbours();
+        }
+        if (ogmLog) {
+            panel.refreshOgmLog();
+        }
+        if (ucmLog) {
+            panel.refreshUcmLog();
+        }
+        for (StatsResult result : results) {
+            panel.updateNetworkStats(result);
+        }
+    }
+}
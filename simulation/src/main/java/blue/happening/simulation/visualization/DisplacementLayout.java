@@ -32,16 +32,19 @@ import edu.uci.ics.jung.algorithms.layout.AbstractLayout;
 
 public class DisplacementLayout<V, E> extends AbstractLayout<V, E> {
 
-    private final DisplacementTransformer<V, E> transformer;
+    private final Transformer<V, Point2D> graphPositions;
+    private Transformer<V, Point2D> transformer;
 
     public DisplacementLayout(NetworkGraph<V, E> graph) {
         super(graph, new DisplacementTransformer<V, E>(graph));
-        transformer = new DisplacementTransformer<V, E>(graph);
+        graphPositions = new DisplacementTransformer<V, E>(graph);
+        transformer = graphPositions;
     }
 
     public DisplacementLayout(NetworkGraph<V, E> graph, Dimension size) {
         super(graph, new DisplacementLayout<V, E>(graph), size);
-        transformer = new DisplacementTransformer<V, E>(graph);
+        graphPositions = new DisplacementTransformer<V, E>(graph);
+        transformer = graphPositions;
     }
 
     @Override
@@ -56,6 +59,21 @@ public class DisplacementLayout<V, E> extends AbstractLayout<V, E> {
         return transformer.transform(v);
     }
 
+    /**
+     * Replaces the positions read from the graph, e.g. by positions captured
+     * once per frame.
+     */
+    public void setPositions(Transformer<V, Point2D> positions) {
+        this.transformer = positions;
+    }
+
+    /**
+     * @return Positions read from the graph at the time they are requested
+     */
+    public Transformer<V, Point2D> getGraphPositions() {
+        return graphPositions;
+    }
+
     private static class DisplacementTransformer<V, E>
             implements Transformer<V, Point2D> {
 
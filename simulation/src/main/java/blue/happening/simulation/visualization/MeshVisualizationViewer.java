@@ -1,37 +1,50 @@
 package blue.happening.simulation.visualization;
 
+import org.apache.commons.collections15.Predicate;
+import org.apache.commons.collections15.Transformer;
+
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.geom.Point2D;
+import java.util.ConcurrentModificationException;
 
 import blue.happening.simulation.entities.Connection;
 import blue.happening.simulation.entities.Device;
-import blue.happening.simulation.graph.NetworkGraph;
+import blue.happening.simulation.graph.MeshGraph;
 import blue.happening.simulation.visualization.control.MeshModalGraphMouse;
 import blue.happening.simulation.visualization.listener.DeviceMouseListener;
 import blue.happening.simulation.visualization.transformer.ConnectionStrokeTransformer;
 import blue.happening.simulation.visualization.transformer.DeviceFillPaintTransformer;
 import blue.happening.simulation.visualization.transformer.DeviceFontTransformer;
 import blue.happening.simulation.visualization.transformer.DeviceLabeler;
+import edu.uci.ics.jung.graph.Graph;
+import edu.uci.ics.jung.graph.util.Context;
 import edu.uci.ics.jung.visualization.VisualizationViewer;
 import edu.uci.ics.jung.visualization.control.AbstractModalGraphMouse;
-import edu.uci.ics.jung.visualization.decorators.ToStringLabeller;
 import edu.uci.ics.jung.visualization.renderers.Renderer;
+import jsl.modeling.ModelElement;
 
 
+/**
+ * Paints the mesh from a {@link RenderSnapshot} taken at the start of every
+ * frame, and only when the simulation has advanced since the last frame.
+ */
 public class MeshVisualizationViewer extends VisualizationViewer<Device, Connection> {
 
     private static final long serialVersionUID = 3201919504663243765L;
 
-    public MeshVisualizationViewer(NetworkGraph<Device, Connection> graph, final Dimension preferredSize) {
+    private final MeshGraph graph;
+    private volatile RenderSnapshot snapshot;
+
+    public MeshVisualizationViewer(MeshGraph graph, final Dimension preferredSize) {
         super(new DisplacementLayout<>(graph, preferredSize));
+        this.graph = graph;
+        this.snapshot = RenderSnapshot.capture(graph);
         init();
     }
 
     private void init() {
-        // set label render to call toString
-        // getRenderContext().setVertexLabelTransformer(new VertexNameLabeller());
-        getRenderContext().setVertexLabelTransformer(new ToStringLabeller<Device>());
-
         // set label render to paint in center of node
         getRenderer().getVertexLabelRenderer().setPosition(Renderer.VertexLabel.Position.CNTR);
 
@@ -48,14 +61,54 @@ public class MeshVisualizationViewer extends VisualizationViewer<Device, Connect
         // Custom listener --> add Device click listener
         addGraphMouseListener(new DeviceMouseListener());
 
-        // Custom Colors and Labels
-        getRenderContext().setVertexFillPaintTransformer(new DeviceFillPaintTransformer());
-        getRenderContext().setEdgeStrokeTransformer(new ConnectionStrokeTransformer());
-        getRenderContext().setVertexLabelTransformer(new DeviceLabeler());
+        // Positions, colors and labels of the current frame
+        final DisplacementLayout<Device, Connection> layout = (DisplacementLayout<Device, Connection>) getGraphLayout();
+        final Transformer<Device, Point2D> graphPositions = layout.getGraphPositions();
+        layout.setPositions(new Transformer<Device, Point2D>() {
+            @Override
+            public Point2D transform(Device device) {
+                RenderSnapshot frame = snapshot;
+                if (!frame.contains(device)) {
+                    return graphPositions.transform(device);
+                }
+                return new Point2D.Double(frame.getX(device), frame.getY(device));
+            }
+        });
+        getRenderContext().setEdgeIncludePredicate(new Predicate<Context<Graph<Device, Connection>, Connection>>() {
+            @Override
+            public boolean evaluate(Context<Graph<Device, Connection>, Connection> context) {
+                return snapshot.isVisible(context.element);
+            }
+        });
+        getRenderContext().setVertexFillPaintTransformer(new DeviceFillPaintTransformer(this));
+        getRenderContext().setEdgeStrokeTransformer(new ConnectionStrokeTransformer(this));
+        getRenderContext().setVertexLabelTransformer(new DeviceLabeler(this));
         getRenderContext().setVertexFontTransformer(new DeviceFontTransformer());
     }
 
-    public void setGraph(NetworkGraph<Device, Connection> graph) {
-        getGraphLayout().setGraph(graph);
+    /**
+     * @return State of the mesh in the frame being painted
+     */
+    public RenderSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return Whether the simulation moved on, or another device has been
+     * clicked, since the last frame was painted
+     */
+    boolean isOutdated() {
+        RenderSnapshot frame = snapshot;
+        return ModelElement.getTime() != frame.getTime() || graph.getClickedDevice() != frame.getClickedDevice();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        try {
+            snapshot = RenderSnapshot.capture(graph);
+        } catch (ConcurrentModificationException e) {
+            // the simulation changed the graph while copying it, keep the last frame's state
+        }
+        super.paintComponent(g);
     }
 }
@@ -19,7 +19,7 @@ import blue.happening.simulation.mobility.MobilityPattern;
 public class MeshVisualizerFrame extends JFrame {
 
     private DevicePanel devicePanel;
-    private TimedJComponentRepainter repainter;
+    private SimulationRepainter repainter;
     private MeshVisualizationViewer visualizerPanel;
 
     public MeshVisualizerFrame() {
@@ -37,7 +37,7 @@ public class MeshVisualizerFrame extends JFrame {
         Dimension dimension = new Dimension(getContentPane().getWidth() - 500, getContentPane().getHeight());
         visualizerPanel = new MeshVisualizationViewer(HappeningDemo.getGraph(), dimension);
         getContentPane().add(visualizerPanel);
-        repainter = new TimedJComponentRepainter(visualizerPanel, 15);
+        repainter = new SimulationRepainter(visualizerPanel, 15);
 
         visualizerPanel.addComponentListener(new ComponentAdapter() {
             public void componentResized(ComponentEvent evt) {
@@ -0,0 +1,43 @@
+package blue.happening.simulation.visualization;
+
+import jsl.modeling.ActionListenerIfc;
+import jsl.modeling.JSLEvent;
+import jsl.modeling.ModelElement;
+import jsl.modeling.SchedulingElement;
+
+
+/**
+ * Ticks a {@link PacingController} on the simulation thread, at the interval
+ * its real-time factor asks for. A simulation without this element runs at
+ * full speed.
+ */
+public class PacingAction extends SchedulingElement implements ActionListenerIfc {
+
+    private final PacingController controller;
+
+    public PacingAction(ModelElement parent, PacingController controller) {
+        super(parent);
+        this.controller = controller;
+    }
+
+    public PacingController getController() {
+        return controller;
+    }
+
+    @Override
+    protected void initialize() {
+        super.initialize();
+        controller.restart();
+        scheduleEvent(this, 0);
+    }
+
+    @Override
+    public void action(JSLEvent event) {
+        try {
+            controller.pace(getTime());
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        rescheduleEvent(event, controller.getTickInterval());
+    }
+}
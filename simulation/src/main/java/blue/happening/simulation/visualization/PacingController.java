@@ -0,0 +1,188 @@
+package blue.happening.simulation.visualization;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+/**
+ * Paces a simulation against the wall clock. The simulation thread calls
+ * {@link #pace(double)} at every tick of a {@link PacingAction}, and is held
+ * back until the wall clock has caught up with the simulated time, scaled by
+ * the real-time factor. Any other thread may change the factor, pause,
+ * resume or step the simulation at any time.
+ * <p>
+ * When the simulation falls behind, for instance because a tick took long to
+ * compute, it runs unpaced until it has caught up. Falling behind by more
+ * than {@link #MAX_LAG_MILLIS} is not caught up, the simulation continues at
+ * the factor from where it is instead of racing through the missed time.
+ * <p>
+ * Tasks handed to {@link #invokeLater(Runnable)} run on the simulation thread
+ * between two ticks, also while paused, so that other threads can safely
+ * change the simulated world.
+ */
+public class PacingController {
+
+    /**
+     * Real-time factor that runs the simulation as fast as possible.
+     */
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    /**
+     * Wall clock milliseconds between two ticks when paced.
+     */
+    public static final long TICK_MILLIS = 20;
+
+    /**
+     * Lag in wall clock milliseconds beyond which the simulation stops
+     * catching up.
+     */
+    public static final long MAX_LAG_MILLIS = 250;
+
+    // simulated time between two ticks at maximum speed
+    private static final double UNPACED_TICK = 1;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private double realTimeFactor;
+    private boolean paused;
+    private double stepUntil;
+    private double lastTime;
+    private boolean anchored;
+    private long anchorNanos;
+    private double anchorTime;
+
+    /**
+     * @param realTimeFactor Simulated time units per wall clock second, or
+     *                       {@link #MAX_SPEED}
+     */
+    public PacingController(double realTimeFactor) {
+        setRealTimeFactor(realTimeFactor);
+    }
+
+    public synchronized double getRealTimeFactor() {
+        return realTimeFactor;
+    }
+
+    /**
+     * @param realTimeFactor Simulated time units per wall clock second, or
+     *                       {@link #MAX_SPEED}
+     */
+    public synchronized void setRealTimeFactor(double realTimeFactor) {
+        if (!(realTimeFactor > 0)) {
+            throw new IllegalArgumentException("Real-time factor must be positive: " + realTimeFactor);
+        }
+        this.realTimeFactor = realTimeFactor;
+        anchored = false;
+        notifyAll();
+    }
+
+    /**
+     * @return Simulated time between two ticks at the current factor
+     */
+    public synchronized double getTickInterval() {
+        return Double.isInfinite(realTimeFactor) ? UNPACED_TICK : realTimeFactor * TICK_MILLIS / 1000D;
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    public synchronized void pause() {
+        paused = true;
+        stepUntil = lastTime;
+        notifyAll();
+    }
+
+    public synchronized void resume() {
+        paused = false;
+        anchored = false;
+        notifyAll();
+    }
+
+    /**
+     * Lets a paused simulation advance by {@code duration}, as fast as
+     * possible, and pauses it again.
+     */
+    public synchronized void step(double duration) {
+        if (paused) {
+            stepUntil = Math.max(stepUntil, lastTime) + duration;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Runs {@code task} on the simulation thread before the next tick.
+     */
+    public void invokeLater(Runnable task) {
+        tasks.add(task);
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Blocks the calling thread while the simulation is paused.
+     */
+    public synchronized void awaitResumed() throws InterruptedException {
+        while (paused) {
+            wait();
+        }
+    }
+
+    /**
+     * Forgets the previous run, called when a replication starts at time 0.
+     */
+    synchronized void restart() {
+        tasks.clear();
+        lastTime = 0;
+        stepUntil = 0;
+        anchored = false;
+    }
+
+    /**
+     * Called by the simulation thread at simulated {@code time}. Returns once
+     * the simulation may advance beyond {@code time}.
+     */
+    synchronized void pace(double time) throws InterruptedException {
+        lastTime = time;
+        while (true) {
+            runTasks();
+            if (paused) {
+                anchored = false;
+                if (time < stepUntil) {
+                    return;
+                }
+                wait();
+                continue;
+            } else if (Double.isInfinite(realTimeFactor)) {
+                anchored = false;
+                return;
+            }
+            long now = System.nanoTime();
+            if (!anchored) {
+                anchor(now, time);
+                return;
+            }
+            long ahead = anchorNanos + (long) ((time - anchorTime) / realTimeFactor * 1e9) - now;
+            if (ahead <= 0) {
+                if (-ahead > MAX_LAG_MILLIS * 1000000L) {
+                    anchor(now, time);
+                }
+                return;
+            }
+            wait(Math.max(1, ahead / 1000000L));
+        }
+    }
+
+    private void anchor(long nanos, double time) {
+        anchored = true;
+        anchorNanos = nanos;
+        anchorTime = time;
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package blue.happening.simulation.visualization;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import blue.happening.simulation.entities.Connection;
+import blue.happening.simulation.entities.Device;
+import blue.happening.simulation.graph.MeshGraph;
+import jsl.modeling.ModelElement;
+
+
+/**
+ * Positions, device states and link states of a mesh graph, captured once per
+ * frame so that painting reads plain arrays instead of computing motion and
+ * link status for every shape it draws. All parts of a frame see the same
+ * instant.
+ * <p>
+ * The level of detail drops as the crowd grows: labels are left out above
+ * {@link #LABEL_LIMIT} devices, the two directions of a link are painted as
+ * one edge above {@link #AGGREGATE_LIMIT} devices, and idle links are left
+ * out above {@link #IDLE_EDGE_LIMIT} devices.
+ */
+public class RenderSnapshot {
+
+    public static final int LABEL_LIMIT = 150;
+    public static final int AGGREGATE_LIMIT = 300;
+    public static final int IDLE_EDGE_LIMIT = 1000;
+
+    public static final int DISABLED = 0;
+    public static final int CLICKED = 1;
+    public static final int NEIGHBOUR = 2;
+    public static final int DEFAULT = 3;
+
+    private final double time;
+    private final Device clickedDevice;
+    private final Map<Device, Integer> vertices;
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] states;
+    private final Map<Connection, Integer> edges;
+    private final int[] statuses;
+    private final boolean[] visible;
+    private final boolean labels;
+
+    private RenderSnapshot(double time, Device clickedDevice, int vertexCount, int edgeCount) {
+        this.time = time;
+        this.clickedDevice = clickedDevice;
+        vertices = new HashMap<>(vertexCount * 2);
+        xs = new double[vertexCount];
+        ys = new double[vertexCount];
+        states = new int[vertexCount];
+        edges = new HashMap<>(edgeCount * 2);
+        statuses = new int[edgeCount];
+        visible = new boolean[edgeCount];
+        labels = vertexCount <= LABEL_LIMIT;
+    }
+
+    public static RenderSnapshot capture(MeshGraph graph) {
+        List<Device> devices = new ArrayList<>(graph.getVertices());
+        List<Connection> connections = new ArrayList<>(graph.getEdges());
+        Device clicked = graph.getClickedDevice();
+        RenderSnapshot snapshot = new RenderSnapshot(ModelElement.getTime(), clicked,
+                devices.size(), connections.size());
+
+        for (int i = 0; i < devices.size(); i++) {
+            Device device = devices.get(i);
+            snapshot.vertices.put(device, i);
+            snapshot.xs[i] = graph.getDisplacementX(device);
+            snapshot.ys[i] = graph.getDisplacementY(device);
+            if (!device.isEnabled()) {
+                snapshot.states[i] = DISABLED;
+            } else if (device.equals(clicked)) {
+                snapshot.states[i] = CLICKED;
+            } else if (device.isNeighbour()) {
+                snapshot.states[i] = NEIGHBOUR;
+            } else {
+                snapshot.states[i] = DEFAULT;
+            }
+        }
+
+        boolean aggregate = devices.size() > AGGREGATE_LIMIT;
+        boolean hideIdle = devices.size() > IDLE_EDGE_LIMIT;
+        Map<Connection, Integer> edges = snapshot.edges;
+        for (int i = 0; i < connections.size(); i++) {
+            Connection connection = connections.get(i);
+            edges.put(connection, i);
+            snapshot.statuses[i] = connection.getStatus(clicked);
+            snapshot.visible[i] = !hideIdle || snapshot.statuses[i] != Connection.IDLE;
+        }
+        if (aggregate) {
+            // paint each pair of links once, keeping the busier direction
+            for (int i = 0; i < connections.size(); i++) {
+                Connection connection = connections.get(i);
+                Integer reverse = edges.get(graph.findEdge(connection.getToDevice(), connection.getFromDevice()));
+                if (reverse != null && reverse > i) {
+                    int hidden = snapshot.statuses[i] >= snapshot.statuses[reverse] ? reverse : i;
+                    snapshot.visible[hidden] = false;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return Simulated time the snapshot has been taken at
+     */
+    public double getTime() {
+        return time;
+    }
+
+    public Device getClickedDevice() {
+        return clickedDevice;
+    }
+
+    public int getVertexCount() {
+        return xs.length;
+    }
+
+    public boolean contains(Device device) {
+        return vertices.containsKey(device);
+    }
+
+    public double getX(Device device) {
+        return xs[vertices.get(device)];
+    }
+
+    public double getY(Device device) {
+        return ys[vertices.get(device)];
+    }
+
+    /**
+     * @return One of {@link #DISABLED}, {@link #CLICKED}, {@link #NEIGHBOUR}
+     * and {@link #DEFAULT}
+     */
+    public int getState(Device device) {
+        Integer i = vertices.get(device);
+        return i == null ? DEFAULT : states[i];
+    }
+
+    /**
+     * @return Status of the link as of {@link Connection#getStatus()}, or
+     * {@link Connection#IDLE} for links that appeared after the snapshot
+     */
+    public int getStatus(Connection connection) {
+        Integer i = edges.get(connection);
+        return i == null ? Connection.IDLE : statuses[i];
+    }
+
+    public boolean isVisible(Connection connection) {
+        Integer i = edges.get(connection);
+        return i != null && visible[i];
+    }
+
+    public boolean hasLabels() {
+        return labels;
+    }
+}
@@ -0,0 +1,34 @@
+package blue.happening.simulation.visualization;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.Timer;
+
+
+/**
+ * Repaints a {@link MeshVisualizationViewer} at most once per period, and
+ * only if the simulation has advanced since its last frame. A paused
+ * simulation costs no painting at all.
+ */
+public class SimulationRepainter {
+
+    private final Timer timer;
+
+    public SimulationRepainter(final MeshVisualizationViewer viewer, int period) {
+        timer = new Timer(period, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent actionEvent) {
+                if (viewer.isOutdated()) {
+                    viewer.repaint();
+                }
+            }
+        });
+        timer.setCoalesce(true);
+        timer.start();
+    }
+
+    public void cancel() {
+        timer.stop();
+    }
+}
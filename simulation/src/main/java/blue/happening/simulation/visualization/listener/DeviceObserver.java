@@ -63,7 +63,7 @@ public class DeviceObserver implements Observer {
     private void setDevicePanel(Device device) {
         DevicePanel panel = HappeningDemo.getFrame().getDevicePanel();
         if (panel != null) {
-            panel.setDevice(device);
+            panel.updateDevice(device, null);
         }
     }
 
@@ -84,6 +84,8 @@ public class DeviceObserver implements Observer {
         DEVICE_UNCLICKED,
         NETWORK_STATS_UPDATED,
         OGM_LOG_ITEM_ADDED,
-        UCM_LOG_ITEM_ADDED
+        UCM_LOG_ITEM_ADDED,
+        MESSAGE_RECEIVED,
+        MESSAGE_SENT
     }
 }
@@ -6,6 +6,7 @@ import java.awt.BasicStroke;
 import java.awt.Stroke;
 
 import blue.happening.simulation.entities.Connection;
+import blue.happening.simulation.visualization.MeshVisualizationViewer;
 
 
 public class ConnectionStrokeTransformer implements Transformer<Connection, Stroke> {
@@ -16,10 +17,15 @@ public class ConnectionStrokeTransformer implements Transformer<Connection, Stro
             BasicStroke.JOIN_MITER, 10.0f);
     private final Stroke thickStroke = new BasicStroke(4.5f, BasicStroke.CAP_BUTT,
             BasicStroke.JOIN_MITER, 10.0f);
+    private final MeshVisualizationViewer viewer;
+
+    public ConnectionStrokeTransformer(MeshVisualizationViewer viewer) {
+        this.viewer = viewer;
+    }
 
     @Override
     public Stroke transform(Connection connection) {
-        switch (connection.getStatus()) {
+        switch (viewer.getSnapshot().getStatus(connection)) {
             case Connection.IDLE:
                 return thinStroke;
             case Connection.SEND:
@@ -6,20 +6,33 @@ import java.awt.Color;
 import java.awt.Paint;
 
 import blue.happening.simulation.entities.Device;
+import blue.happening.simulation.visualization.MeshVisualizationViewer;
+import blue.happening.simulation.visualization.RenderSnapshot;
 
 
 public class DeviceFillPaintTransformer implements Transformer<Device, Paint> {
 
+    private static final Color DISABLED = new Color(208, 26, 65);
+    private static final Color CLICKED = new Color(85, 165, 50);
+    private static final Color NEIGHBOUR = new Color(5, 140, 185);
+
+    private final MeshVisualizationViewer viewer;
+
+    public DeviceFillPaintTransformer(MeshVisualizationViewer viewer) {
+        this.viewer = viewer;
+    }
+
     @Override
     public Paint transform(Device device) {
-        if (!device.isEnabled()) {
-            return new Color(208, 26, 65);
-        } else if (device.isClicked()) {
-            return new Color(85, 165, 50);
-        } else if (device.isNeighbour()) {
-            return new Color(5, 140, 185);
-        } else {
-            return Color.GRAY;
+        switch (viewer.getSnapshot().getState(device)) {
+            case RenderSnapshot.DISABLED:
+                return DISABLED;
+            case RenderSnapshot.CLICKED:
+                return CLICKED;
+            case RenderSnapshot.NEIGHBOUR:
+                return NEIGHBOUR;
+            default:
+                return Color.GRAY;
         }
     }
 }
@@ -8,8 +8,10 @@ import blue.happening.simulation.entities.Device;
 
 public class DeviceFontTransformer implements Transformer<Device, Font> {
 
+    private final Font font = new Font("Comic Sans MS", Font.BOLD, 14);
+
     @Override
     public Font transform(Device device) {
-        return new Font("Comic Sans MS", Font.BOLD, 14);
+        return font;
     }
 }
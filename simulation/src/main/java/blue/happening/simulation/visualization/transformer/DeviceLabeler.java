@@ -3,12 +3,23 @@ package blue.happening.simulation.visualization.transformer;
 import org.apache.commons.collections15.Transformer;
 
 import blue.happening.simulation.entities.Device;
+import blue.happening.simulation.visualization.MeshVisualizationViewer;
 
 
 public class DeviceLabeler implements Transformer<Device, String> {
 
+    private final MeshVisualizationViewer viewer;
+
+    public DeviceLabeler(MeshVisualizationViewer viewer) {
+        this.viewer = viewer;
+    }
+
     @Override
     public String transform(Device device) {
-        return device.toString().replaceFirst("^device_", "");
+        if (!viewer.getSnapshot().hasLabels()) {
+            return null;
+        }
+        String name = device.getName();
+        return name.startsWith("device_") ? name.substring("device_".length()) : name;
     }
 }